@@ -0,0 +1,19 @@
+package com.nelumbo.parking.config;
+
+import com.nelumbo.parking.services.ActivePlateIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class ActivePlateIndexLoader {
+
+    private final ActivePlateIndex activePlateIndex;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadActivePlates() {
+        activePlateIndex.rebuild();
+    }
+}
@@ -0,0 +1,94 @@
+package com.nelumbo.parking.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Habilita la caché (Caffeine, ver spring.cache.* en application.properties).
+ * Las estadísticas de aciertos/fallos se publican en /actuator/metrics/cache.gets.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PARKING_CACHE = "parking";
+    public static final String VEHICLES_CACHE = "vehicles";
+    public static final String USERS_CACHE = "users";
+    public static final String REPORTS_CACHE = "reports";
+    public static final String IMMUTABLE_REPORTS_CACHE = "reports-immutable";
+
+    /**
+     * La caché placa → id de vehículo tiene su propio límite: crece con la
+     * cantidad de placas distintas, no con la de parqueadores o usuarios.
+     */
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> vehicleIdCacheCustomizer(
+            @Value("${app.cache.vehicle-ids.max-size:10000}") long maxSize
+    ) {
+        return cacheManager -> cacheManager.registerCustomCache(VEHICLES_CACHE,
+                Caffeine.newBuilder().maximumSize(maxSize).recordStats().build());
+    }
+
+    /**
+     * Resultados de reportes. Se invalidan por parqueadero al registrar salidas
+     * (ver ReportResultCache); el TTL es solo un respaldo. Los reportes de días
+     * cerrados no cambian y no expiran; como pueden incluir el detalle de todas
+     * las salidas del día, se limitan por tamaño estimado en bytes y no por cantidad.
+     */
+    @Bean
+    public CacheManagerCustomizer<CaffeineCacheManager> reportCacheCustomizer(
+            @Value("${app.cache.reports.max-size:1000}") long maxSize,
+            @Value("${app.cache.reports.ttl:300}") long ttlSeconds,
+            @Value("${app.cache.reports.immutable-max-bytes:67108864}") long immutableMaxBytes
+    ) {
+        return cacheManager -> {
+            cacheManager.registerCustomCache(REPORTS_CACHE, Caffeine.newBuilder()
+                    .maximumSize(maxSize).expireAfterWrite(Duration.ofSeconds(ttlSeconds)).recordStats().build());
+            cacheManager.registerCustomCache(IMMUTABLE_REPORTS_CACHE, Caffeine.newBuilder()
+                    .maximumWeight(immutableMaxBytes)
+                    .weigher((Object key, Object value) -> (int) Math.min(Integer.MAX_VALUE, estimateBytes(value)))
+                    .recordStats().build());
+        };
+    }
+
+    /**
+     * Tamaño aproximado de un resultado de reporte: bytes de JSON ya serializado,
+     * o la suma de sus listas y mapas. No pretende ser exacto, solo proporcional
+     * al detalle que carga cada entrada.
+     */
+    static long estimateBytes(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof byte[] bytes) {
+            return bytes.length;
+        }
+        if (value instanceof CharSequence text) {
+            return 40L + 2L * text.length();
+        }
+        if (value instanceof Collection<?> collection) {
+            long total = 16L + 8L * collection.size();
+            for (Object element : collection) {
+                total += estimateBytes(element);
+            }
+            return total;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long total = 48L;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                total += 32L + estimateBytes(entry.getKey()) + estimateBytes(entry.getValue());
+            }
+            return total;
+        }
+        return 24;
+    }
+}
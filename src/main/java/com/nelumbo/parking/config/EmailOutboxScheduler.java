@@ -0,0 +1,31 @@
+package com.nelumbo.parking.config;
+
+import com.nelumbo.parking.services.EmailOutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+@RequiredArgsConstructor
+public class EmailOutboxScheduler {
+
+    private final EmailOutboxService emailOutboxService;
+
+    @Value("${app.email.outbox.retention-days:7}")
+    private int retentionDays;
+
+    // Despachar correos pendientes de la bandeja de salida (configurable)
+    @Scheduled(fixedDelayString = "${app.scheduler.email-outbox.interval:2000}")
+    public void dispatchPendingEmails() {
+        emailOutboxService.dispatchPending();
+    }
+
+    // Depurar correos ya enviados, junto con la limpieza de tokens
+    @Scheduled(cron = "${app.scheduler.token-cleanup.cron:0 0 2 * * ?}")
+    public void purgeSentEmails() {
+        emailOutboxService.purgeSent(LocalDateTime.now().minusDays(retentionDays));
+    }
+}
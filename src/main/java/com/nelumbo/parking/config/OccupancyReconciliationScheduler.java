@@ -0,0 +1,32 @@
+package com.nelumbo.parking.config;
+
+import com.nelumbo.parking.services.OccupancyRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OccupancyReconciliationScheduler {
+
+    private final OccupancyRegistry occupancyRegistry;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedOccupancy() {
+        occupancyRegistry.seedFromDatabase();
+    }
+
+    // Reconciliar contadores de ocupación con la base de datos (configurable)
+    @Scheduled(fixedDelayString = "${app.scheduler.occupancy-reconcile.interval:60000}",
+            initialDelayString = "${app.scheduler.occupancy-reconcile.interval:60000}")
+    public void reconcileOccupancy() {
+        int corrected = occupancyRegistry.reconcile();
+        if (corrected > 0) {
+            log.info("Reconciliación de ocupación: {} parqueaderos corregidos", corrected);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.nelumbo.parking.config;
+
+import com.nelumbo.parking.services.OccupancyHistoryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class OccupancySampleScheduler {
+
+    private final OccupancyHistoryService occupancyHistoryService;
+
+    // Muestrear la ocupación de cada parqueadero al inicio de cada minuto (configurable)
+    @Scheduled(cron = "${app.scheduler.occupancy-sample.cron:0 * * * * *}")
+    public void sampleOccupancy() {
+        occupancyHistoryService.sample();
+    }
+}
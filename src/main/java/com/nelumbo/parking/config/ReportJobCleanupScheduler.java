@@ -0,0 +1,19 @@
+package com.nelumbo.parking.config;
+
+import com.nelumbo.parking.services.ReportJobService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class ReportJobCleanupScheduler {
+
+    private final ReportJobService reportJobService;
+
+    // Eliminar resultados de reportes vencidos (configurable)
+    @Scheduled(fixedDelayString = "${app.scheduler.report-jobs-cleanup.interval:60000}")
+    public void purgeExpiredReports() {
+        reportJobService.purgeExpired();
+    }
+}
@@ -0,0 +1,19 @@
+package com.nelumbo.parking.config;
+
+import com.nelumbo.parking.services.TopVehicleTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class TopVehicleSnapshotScheduler {
+
+    private final TopVehicleTracker topVehicleTracker;
+
+    // Avanzar el snapshot de top vehículos y refrescar la base en memoria (configurable)
+    @Scheduled(fixedDelayString = "${app.scheduler.top-vehicles-snapshot.interval:60000}")
+    public void snapshotTopVehicles() {
+        topVehicleTracker.snapshot();
+    }
+}
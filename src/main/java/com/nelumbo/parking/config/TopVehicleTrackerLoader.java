@@ -0,0 +1,19 @@
+package com.nelumbo.parking.config;
+
+import com.nelumbo.parking.services.TopVehicleTracker;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class TopVehicleTrackerLoader {
+
+    private final TopVehicleTracker topVehicleTracker;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadTopVehicles() {
+        topVehicleTracker.load();
+    }
+}
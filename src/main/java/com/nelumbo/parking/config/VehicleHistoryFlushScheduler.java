@@ -0,0 +1,19 @@
+package com.nelumbo.parking.config;
+
+import com.nelumbo.parking.services.VehicleHistoryAppender;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class VehicleHistoryFlushScheduler {
+
+    private final VehicleHistoryAppender vehicleHistoryAppender;
+
+    // Escribir el historial diferido pendiente (configurable)
+    @Scheduled(fixedDelayString = "${app.scheduler.history-flush.interval:1000}")
+    public void flushVehicleHistory() {
+        vehicleHistoryAppender.flush();
+    }
+}
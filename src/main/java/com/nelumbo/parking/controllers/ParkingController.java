@@ -2,7 +2,7 @@ package com.nelumbo.parking.controllers;
 
 import com.nelumbo.parking.dto.ParkingRequest;
 import com.nelumbo.parking.dto.AssociatePartnerRequest;
-import com.nelumbo.parking.entities.Parking;
+import com.nelumbo.parking.dto.ParkingResponse;
 import com.nelumbo.parking.services.ParkingService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/parkings")
@@ -22,29 +23,29 @@ public class ParkingController {
     
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Parking> createParking(@Valid @RequestBody ParkingRequest request) {
-        Parking parking = parkingService.createParking(request);
+    public ResponseEntity<ParkingResponse> createParking(@Valid @RequestBody ParkingRequest request) {
+        ParkingResponse parking = parkingService.createParking(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(parking);
     }
     
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('SOCIO')")
-    public ResponseEntity<Parking> getParkingById(@PathVariable Long id) {
-        Parking parking = parkingService.getParkingById(id);
+    public ResponseEntity<ParkingResponse> getParkingById(@PathVariable Long id) {
+        ParkingResponse parking = parkingService.getParkingById(id);
         return ResponseEntity.ok(parking);
     }
     
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Parking>> getAllParkings() {
-        List<Parking> parkings = parkingService.getAllParkings();
+    public ResponseEntity<List<ParkingResponse>> getAllParkings() {
+        List<ParkingResponse> parkings = parkingService.getAllParkings();
         return ResponseEntity.ok(parkings);
     }
     
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Parking> updateParking(@PathVariable Long id, @Valid @RequestBody ParkingRequest request) {
-        Parking parking = parkingService.updateParking(id, request);
+    public ResponseEntity<ParkingResponse> updateParking(@PathVariable Long id, @Valid @RequestBody ParkingRequest request) {
+        ParkingResponse parking = parkingService.updateParking(id, request);
         return ResponseEntity.ok(parking);
     }
     
@@ -57,31 +58,31 @@ public class ParkingController {
     
     @GetMapping("/partner/{partnerId}")
     @PreAuthorize("hasRole('ADMIN') or (hasRole('SOCIO') and #partnerId == authentication.principal.id)")
-    public ResponseEntity<List<Parking>> getParkingsByPartner(@PathVariable Long partnerId) {
-        List<Parking> parkings = parkingService.getParkingsByPartner(partnerId);
+    public ResponseEntity<List<ParkingResponse>> getParkingsByPartner(@PathVariable Long partnerId) {
+        List<ParkingResponse> parkings = parkingService.getParkingsByPartner(partnerId);
         return ResponseEntity.ok(parkings);
     }
     
     @GetMapping("/partner/email/{partnerEmail}")
     @PreAuthorize("hasRole('ADMIN') or (hasRole('SOCIO') and #partnerEmail == authentication.principal.username)")
-    public ResponseEntity<List<Parking>> getParkingsByPartnerEmail(@PathVariable String partnerEmail) {
-        List<Parking> parkings = parkingService.getParkingsByPartnerEmail(partnerEmail);
+    public ResponseEntity<List<ParkingResponse>> getParkingsByPartnerEmail(@PathVariable String partnerEmail) {
+        List<ParkingResponse> parkings = parkingService.getParkingsByPartnerEmail(partnerEmail);
         return ResponseEntity.ok(parkings);
     }
     
     @PostMapping("/{parkingId}/associate-partner")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Parking> associatePartnerToParking(
+    public ResponseEntity<ParkingResponse> associatePartnerToParking(
             @PathVariable Long parkingId,
             @Valid @RequestBody AssociatePartnerRequest request) {
-        Parking parking = parkingService.associatePartnerToParking(parkingId, request.getPartnerId());
+        ParkingResponse parking = parkingService.associatePartnerToParking(parkingId, request.getPartnerId());
         return ResponseEntity.ok(parking);
     }
     
     @DeleteMapping("/{parkingId}/partner")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Parking> removePartnerFromParking(@PathVariable Long parkingId) {
-        Parking parking = parkingService.removePartnerFromParking(parkingId);
+    public ResponseEntity<ParkingResponse> removePartnerFromParking(@PathVariable Long parkingId) {
+        ParkingResponse parking = parkingService.removePartnerFromParking(parkingId);
         return ResponseEntity.ok(parking);
     }
     
@@ -94,8 +95,15 @@ public class ParkingController {
     
     @GetMapping("/without-partner")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<List<Parking>> getParkingsWithoutPartner() {
-        List<Parking> parkings = parkingService.getParkingsWithoutPartner();
+    public ResponseEntity<List<ParkingResponse>> getParkingsWithoutPartner() {
+        List<ParkingResponse> parkings = parkingService.getParkingsWithoutPartner();
         return ResponseEntity.ok(parkings);
     }
+    
+    @GetMapping("/occupancy/drift")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getOccupancyDrift() {
+        List<Map<String, Object>> drift = parkingService.getOccupancyDrift();
+        return ResponseEntity.ok(drift);
+    }
 }
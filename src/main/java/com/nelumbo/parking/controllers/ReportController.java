@@ -1,16 +1,39 @@
 package com.nelumbo.parking.controllers;
 
+import com.nelumbo.parking.dto.ReportJobRequest;
+import com.nelumbo.parking.services.OccupancyHistoryService;
+import com.nelumbo.parking.services.ReportExportService;
+import com.nelumbo.parking.services.ReportJobService;
 import com.nelumbo.parking.services.ReportService;
+import com.nelumbo.parking.services.UniqueVehicleService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/reports")
@@ -18,37 +41,141 @@ import java.util.Map;
 @Slf4j
 public class ReportController {
 
+    private static final String FORMAT_CSV = "format=csv";
+    private static final String FORMAT_PDF = "format=pdf";
+    private static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+    private static final MediaType APPLICATION_GZIP = new MediaType("application", "gzip");
+
     private final ReportService reportService;
+    private final ReportExportService reportExportService;
+    private final ReportJobService reportJobService;
+    private final UniqueVehicleService uniqueVehicleService;
+    private final OccupancyHistoryService occupancyHistoryService;
 
     @GetMapping("/top-vehicles-all-parkings")
     @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
     public ResponseEntity<List<Map<String, Object>>> getTopVehiclesAllParkings(
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean exact) {
         
-        List<Map<String, Object>> topVehicles = reportService.getTopVehiclesAllParkings(limit);
+        List<Map<String, Object>> topVehicles = reportService.getTopVehiclesAllParkings(limit, exact);
         return ResponseEntity.ok(topVehicles);
     }
 
+    @GetMapping(value = "/top-vehicles-all-parkings", params = FORMAT_CSV)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<StreamingResponseBody> exportTopVehiclesAllParkings(
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("top-vehiculos", gzip, reportExportService.topVehiclesAllParkingsCsv(limit));
+    }
+
+    @GetMapping(value = "/top-vehicles-all-parkings", params = FORMAT_PDF)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public CompletableFuture<ResponseEntity<Resource>> exportTopVehiclesAllParkingsPdf(
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        return pdf("top-vehiculos", reportExportService.topVehiclesAllParkingsPdf(limit));
+    }
+
     @GetMapping("/parking/{parkingId}/top-vehicles")
     @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
     public ResponseEntity<List<Map<String, Object>>> getTopVehiclesByParking(
             @PathVariable Long parkingId,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean exact) {
         
-        List<Map<String, Object>> topVehicles = reportService.getTopVehiclesByParking(parkingId, limit);
+        List<Map<String, Object>> topVehicles = reportService.getTopVehiclesByParking(parkingId, limit, exact);
         return ResponseEntity.ok(topVehicles);
     }
 
+    @GetMapping(value = "/parking/{parkingId}/top-vehicles", params = FORMAT_CSV)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<StreamingResponseBody> exportTopVehiclesByParking(
+            @PathVariable Long parkingId,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("top-vehiculos-" + parkingId, gzip, reportExportService.topVehiclesByParkingCsv(parkingId, limit));
+    }
+
+    @GetMapping(value = "/parking/{parkingId}/top-vehicles", params = FORMAT_PDF)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public CompletableFuture<ResponseEntity<Resource>> exportTopVehiclesByParkingPdf(
+            @PathVariable Long parkingId,
+            @RequestParam(defaultValue = "10") int limit) {
+        
+        return pdf("top-vehiculos-" + parkingId, reportExportService.topVehiclesByParkingPdf(parkingId, limit));
+    }
+
     
     @GetMapping("/parking/{parkingId}/first-time-vehicles")
     @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
-    public ResponseEntity<List<Map<String, Object>>> getFirstTimeVehiclesByParking(
-            @PathVariable Long parkingId) {
+    public ResponseEntity<Map<String, Object>> getFirstTimeVehiclesByParking(
+            @PathVariable Long parkingId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
         
-        List<Map<String, Object>> firstTimeVehicles = reportService.getFirstTimeVehiclesByParking(parkingId);
+        Map<String, Object> firstTimeVehicles = reportService.getFirstTimeVehiclesByParking(parkingId, from, to, page, size);
         return ResponseEntity.ok(firstTimeVehicles);
     }
 
+    @GetMapping(value = "/parking/{parkingId}/first-time-vehicles", params = FORMAT_CSV)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<StreamingResponseBody> exportFirstTimeVehiclesByParking(
+            @PathVariable Long parkingId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("primera-vez-" + parkingId, gzip, reportExportService.firstTimeVehiclesCsv(parkingId, from, to));
+    }
+
+    
+    @GetMapping("/parking/{parkingId}/returning-vehicles")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<Map<String, Object>> getReturningVehiclesByParking(
+            @PathVariable Long parkingId,
+            @RequestParam(defaultValue = "2") long minVisits,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size) {
+        
+        Map<String, Object> returningVehicles = reportService.getReturningVehiclesByParking(parkingId, minVisits, page, size);
+        return ResponseEntity.ok(returningVehicles);
+    }
+
+    @GetMapping(value = "/parking/{parkingId}/returning-vehicles", params = FORMAT_CSV)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<StreamingResponseBody> exportReturningVehiclesByParking(
+            @PathVariable Long parkingId,
+            @RequestParam(defaultValue = "2") long minVisits,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("recurrentes-" + parkingId, gzip, reportExportService.returningVehiclesCsv(parkingId, minVisits));
+    }
+
+    
+    @GetMapping("/parking/{parkingId}/visit-frequency")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<Map<String, Object>> getVisitFrequencyByParking(
+            @PathVariable Long parkingId) {
+        
+        Map<String, Object> visitFrequency = reportService.getVisitFrequencyByParking(parkingId);
+        return ResponseEntity.ok(visitFrequency);
+    }
+
+    @GetMapping(value = "/parking/{parkingId}/visit-frequency", params = FORMAT_CSV)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<StreamingResponseBody> exportVisitFrequencyByParking(
+            @PathVariable Long parkingId,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("frecuencia-visitas-" + parkingId, gzip, reportExportService.visitFrequencyCsv(parkingId));
+    }
+
     
     @GetMapping("/parking/{parkingId}/earnings-period")
     @PreAuthorize("hasRole('SOCIO')")
@@ -60,27 +187,181 @@ public class ReportController {
         return ResponseEntity.ok(earnings);
     }
 
+    @GetMapping(value = "/parking/{parkingId}/earnings-period", params = FORMAT_CSV)
+    @PreAuthorize("hasRole('SOCIO')")
+    public ResponseEntity<StreamingResponseBody> exportEarningsByPeriod(
+            @PathVariable Long parkingId,
+            @RequestParam String period,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("ganancias-" + parkingId + "-" + period, gzip,
+                reportExportService.earningsByPeriodCsv(parkingId, period));
+    }
+
     
     @GetMapping("/parking/{parkingId}/earnings")
     @PreAuthorize("hasRole('ADMIN')")
-    public ResponseEntity<Map<String, Object>> getEarningsByParkingAndDate(
+    public ResponseEntity<StreamingResponseBody> getEarningsByParkingAndDate(
             @PathVariable Long parkingId,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
         
-        Map<String, Object> earnings = reportService.getEarningsByParkingAndDate(parkingId, date);
-        return ResponseEntity.ok(earnings);
+        reportService.validateParkingExists(parkingId);
+        LocalDate day = date != null ? date : LocalDate.now();
+
+        StreamingResponseBody body = out -> reportService.writeEarningsByParkingAndDate(parkingId, day, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    @GetMapping(value = "/parking/{parkingId}/earnings", params = FORMAT_CSV)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportEarningsByParkingAndDate(
+            @PathVariable Long parkingId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        LocalDate day = date != null ? date : LocalDate.now();
+        return csv("ganancias-" + parkingId + "-" + day, gzip,
+                reportExportService.earningsByParkingAndDateCsv(parkingId, day));
+    }
+
+    @GetMapping(value = "/parking/{parkingId}/earnings", params = FORMAT_PDF)
+    @PreAuthorize("hasRole('ADMIN')")
+    public CompletableFuture<ResponseEntity<Resource>> exportEarningsByParkingAndDatePdf(
+            @PathVariable Long parkingId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        
+        LocalDate day = date != null ? date : LocalDate.now();
+        return pdf("ganancias-" + parkingId + "-" + day, reportExportService.earningsByParkingAndDatePdf(parkingId, day));
     }
 
     
     @GetMapping("/all-parkings/earnings")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<Map<String, Object>>> getAllParkingsEarningsByDate(
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(defaultValue = "false") boolean detail) {
         
-        List<Map<String, Object>> allEarnings = reportService.getAllParkingsEarningsByDate(date);
+        List<Map<String, Object>> allEarnings = reportService.getAllParkingsEarningsByDate(date, detail);
         return ResponseEntity.ok(allEarnings);
     }
 
+    // En CSV se acepta además un rango from/to (hasta app.report.max-days-range días)
+    @GetMapping(value = "/all-parkings/earnings", params = FORMAT_CSV)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportAllParkingsEarnings(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean detail,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        LocalDate startDate = from != null ? from : (date != null ? date : LocalDate.now());
+        LocalDate endDate = to != null ? to : startDate;
+        return csv("ganancias-" + startDate + "-" + endDate, gzip,
+                reportExportService.allParkingsEarningsCsv(startDate, endDate, detail));
+    }
+
+    @GetMapping(value = "/all-parkings/earnings", params = FORMAT_PDF)
+    @PreAuthorize("hasRole('ADMIN')")
+    public CompletableFuture<ResponseEntity<Resource>> exportAllParkingsEarningsPdf(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean detail) {
+        
+        LocalDate startDate = from != null ? from : (date != null ? date : LocalDate.now());
+        LocalDate endDate = to != null ? to : startDate;
+        return pdf("ganancias-" + startDate + "-" + endDate,
+                reportExportService.allParkingsEarningsPdf(startDate, endDate, detail));
+    }
+
+    
+    @GetMapping("/unique-vehicles")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<Map<String, Object>> getUniqueVehicles(
+            @RequestParam(required = false) List<Long> parkingIds,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String groupBy) {
+        
+        Map<String, Object> uniqueVehicles = uniqueVehicleService.getUniqueVehicles(parkingIds, from, to, groupBy);
+        return ResponseEntity.ok(uniqueVehicles);
+    }
+
+    @GetMapping(value = "/unique-vehicles", params = FORMAT_CSV)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<StreamingResponseBody> exportUniqueVehicles(
+            @RequestParam(required = false) List<Long> parkingIds,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("vehiculos-unicos-" + from + "-" + to, gzip,
+                reportExportService.uniqueVehiclesCsv(parkingIds, from, to, groupBy));
+    }
+
+    
+    @GetMapping("/parking/{parkingId}/occupancy")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<Map<String, Object>> getOccupancy(
+            @PathVariable Long parkingId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "hour") String step) {
+        
+        Map<String, Object> occupancy = occupancyHistoryService.getOccupancy(parkingId, from, to, step);
+        return ResponseEntity.ok(occupancy);
+    }
+
+    @GetMapping(value = "/parking/{parkingId}/occupancy", params = FORMAT_CSV)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<StreamingResponseBody> exportOccupancy(
+            @PathVariable Long parkingId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "hour") String step,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("ocupacion-" + parkingId, gzip, reportExportService.occupancyCsv(parkingId, from, to, step));
+    }
+
+    
+    @GetMapping("/parking/{parkingId}/occupancy/heatmap")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<Map<String, Object>> getOccupancyHeatmap(
+            @PathVariable Long parkingId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        
+        Map<String, Object> heatmap = occupancyHistoryService.getOccupancyHeatmap(parkingId, from, to);
+        return ResponseEntity.ok(heatmap);
+    }
+
+    @GetMapping(value = "/parking/{parkingId}/occupancy/heatmap", params = FORMAT_CSV)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<StreamingResponseBody> exportOccupancyHeatmap(
+            @PathVariable Long parkingId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("ocupacion-semanal-" + parkingId, gzip, reportExportService.occupancyHeatmapCsv(parkingId, from, to));
+    }
+
+    
+    @PostMapping("/daily-rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Object>> rebuildDailyRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        
+        Map<String, Object> result = reportService.rebuildDailyRollup(from, to);
+        return ResponseEntity.ok(result);
+    }
+
     
     @GetMapping("/statistics")
     @PreAuthorize("hasRole('ADMIN')")
@@ -89,4 +370,82 @@ public class ReportController {
         Map<String, Object> statistics = reportService.getGeneralStatistics();
         return ResponseEntity.ok(statistics);
     }
+
+    @GetMapping(value = "/statistics", params = FORMAT_CSV)
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportGeneralStatistics(
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        
+        return csv("estadisticas", gzip, reportExportService.generalStatisticsCsv());
+    }
+
+    @PostMapping("/jobs")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<Map<String, Object>> submitReportJob(@Valid @RequestBody ReportJobRequest request) {
+        
+        Map<String, Object> job = reportJobService.submit(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    
+    @GetMapping("/jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<Map<String, Object>> getReportJob(@PathVariable String jobId) {
+        
+        Map<String, Object> job = reportJobService.getStatus(jobId);
+        return ResponseEntity.ok(job);
+    }
+
+    
+    @GetMapping(value = "/jobs/{jobId}", params = "download=true")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SOCIO')")
+    public ResponseEntity<Resource> downloadReportJob(@PathVariable String jobId) {
+        
+        Path result = reportJobService.getResult(jobId);
+        String fileName = result.getFileName().toString();
+        return ResponseEntity.ok()
+                .contentType(fileName.endsWith(".pdf") ? MediaType.APPLICATION_PDF : TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment("reporte-" + fileName))
+                .body(new FileSystemResource(result));
+    }
+
+    private ResponseEntity<StreamingResponseBody> csv(String fileName, boolean gzip, StreamingResponseBody body) {
+        if (!gzip) {
+            return ResponseEntity.ok()
+                    .contentType(TEXT_CSV)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, attachment(fileName + ".csv"))
+                    .body(body);
+        }
+
+        StreamingResponseBody compressed = out -> {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192);
+            body.writeTo(gzipOut);
+            gzipOut.finish();
+        };
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_GZIP)
+                .header(HttpHeaders.CONTENT_DISPOSITION, attachment(fileName + ".csv.gz"))
+                .body(compressed);
+    }
+
+    // El PDF se genera en el pool de renderizado; el archivo temporal se borra al cerrarse la descarga
+    private CompletableFuture<ResponseEntity<Resource>> pdf(String fileName, StreamingResponseBody body) {
+        return reportExportService.renderPdf(body).thenApply(file -> {
+            try {
+                long size = Files.size(file);
+                Resource resource = new InputStreamResource(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+                return ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_PDF)
+                        .contentLength(size)
+                        .header(HttpHeaders.CONTENT_DISPOSITION, attachment(fileName + ".pdf"))
+                        .body(resource);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String attachment(String fileName) {
+        return ContentDisposition.attachment().filename(fileName).build().toString();
+    }
 }
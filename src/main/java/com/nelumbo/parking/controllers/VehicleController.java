@@ -1,18 +1,22 @@
 package com.nelumbo.parking.controllers;
 
 import com.nelumbo.parking.dto.VehicleEntryRequest;
+import com.nelumbo.parking.dto.VehicleEventBatchRequest;
+import com.nelumbo.parking.dto.VehicleEventResult;
 import com.nelumbo.parking.dto.VehicleExitRequest;
-import com.nelumbo.parking.entities.ParkingRecord;
-import com.nelumbo.parking.entities.Vehicle;
+import com.nelumbo.parking.dto.VehicleResponse;
 import com.nelumbo.parking.services.VehicleService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/vehicles")
@@ -37,17 +41,38 @@ public class VehicleController {
         return ResponseEntity.ok(response);
     }
     
+    @PostMapping("/events:batch")
+    @PreAuthorize("hasRole('SOCIO')")
+    public ResponseEntity<List<VehicleEventResult>> registerVehicleEvents(@Valid @RequestBody VehicleEventBatchRequest request) {
+        List<VehicleEventResult> results = vehicleService.registerVehicleEvents(request.getEvents());
+        return ResponseEntity.ok(results);
+    }
+    
     @GetMapping("/parked/{parkingId}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('SOCIO')")
-    public ResponseEntity<List<ParkingRecord>> getParkedVehicles(@PathVariable Long parkingId) {
-        List<ParkingRecord> parkedVehicles = vehicleService.getParkedVehicles(parkingId);
+    public ResponseEntity<Map<String, Object>> getParkedVehicles(
+            @PathVariable Long parkingId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime enteredAfter,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime enteredBefore,
+            @RequestParam(required = false) String plate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        Map<String, Object> parkedVehicles = vehicleService.getParkedVehicles(parkingId, enteredAfter, enteredBefore,
+                plate, cursor, size);
         return ResponseEntity.ok(parkedVehicles);
     }
     
+    @GetMapping("/locate/{plate}")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('SOCIO')")
+    public ResponseEntity<Map<String, Object>> locateVehicle(@PathVariable String plate) {
+        Map<String, Object> location = vehicleService.locateVehicle(plate);
+        return ResponseEntity.ok(location);
+    }
+    
     @GetMapping("/search")
     @PreAuthorize("hasRole('ADMIN') or hasRole('SOCIO')")
-    public ResponseEntity<List<Vehicle>> searchVehiclesByPlate(@RequestParam String plate) {
-        List<Vehicle> vehicles = vehicleService.searchVehiclesByPlate(plate);
+    public ResponseEntity<List<VehicleResponse>> searchVehiclesByPlate(@RequestParam String plate) {
+        List<VehicleResponse> vehicles = vehicleService.searchVehiclesByPlate(plate);
         return ResponseEntity.ok(vehicles);
     }
     
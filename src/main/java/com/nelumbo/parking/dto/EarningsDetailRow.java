@@ -0,0 +1,11 @@
+package com.nelumbo.parking.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila del detalle de ganancias leída directamente de vehicle_history, sin
+ * cargar la entidad en el contexto de persistencia.
+ */
+public record EarningsDetailRow(Long parkingId, String licensePlate, LocalDateTime entryDateTime, LocalDateTime exitDateTime,
+                                Long totalCost) {
+}
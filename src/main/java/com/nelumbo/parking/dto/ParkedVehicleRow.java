@@ -0,0 +1,10 @@
+package com.nelumbo.parking.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vehículo estacionado en el listado paginado de un parqueadero, leído sin
+ * cargar el registro ni sus relaciones.
+ */
+public record ParkedVehicleRow(Long id, String licensePlate, LocalDateTime entryDateTime) {
+}
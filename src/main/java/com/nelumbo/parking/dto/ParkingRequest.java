@@ -1,5 +1,6 @@
 package com.nelumbo.parking.dto;
 
+import com.nelumbo.parking.utils.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -23,9 +24,11 @@ public class ParkingRequest {
     @Max(value = 1000, message = "La capacidad no puede exceder 1000")
     private Integer capacity;
 
+    // Se guarda en unidades mínimas: no se aceptan fracciones que se perderían al redondear
     @NotNull(message = "El costo por hora es obligatorio")
-    @DecimalMin(value = "0.01", message = "El costo por hora debe ser mayor a 0")
-    @Digits(integer = 5, fraction = 2, message = "El costo por hora debe tener máximo 5 dígitos enteros y 2 decimales")
+    @DecimalMin(value = "1", message = "El costo por hora debe ser mayor a 0")
+    @Digits(integer = 5, fraction = Money.MINOR_UNIT_SCALE,
+            message = "El costo por hora debe tener máximo 5 dígitos enteros y no puede tener fracciones de peso")
     private BigDecimal hourlyRate;
 
     
@@ -0,0 +1,31 @@
+package com.nelumbo.parking.dto;
+
+import com.nelumbo.parking.entities.Parking;
+import com.nelumbo.parking.entities.User;
+import com.nelumbo.parking.utils.Money;
+
+import java.math.BigDecimal;
+
+/**
+ * Parqueadero en las respuestas de /parkings. Del socio solo se exponen id,
+ * nombre y correo; las consultas lo arman con una proyección JPQL, sin
+ * cargar la entidad.
+ */
+public record ParkingResponse(Long id, String name, Integer capacity, BigDecimal hourlyRate, Integer occupied,
+                              Long partnerId, String partnerName, String partnerEmail) {
+
+    // Usado por la proyección JPQL: la tarifa llega en unidades mínimas
+    public ParkingResponse(Long id, String name, Integer capacity, Long hourlyRate, Integer occupied,
+                           Long partnerId, String partnerName, String partnerEmail) {
+        this(id, name, capacity, Money.toDecimal(hourlyRate), occupied, partnerId, partnerName, partnerEmail);
+    }
+
+    public static ParkingResponse from(Parking parking) {
+        User partner = parking.getPartner();
+        return new ParkingResponse(parking.getId(), parking.getName(), parking.getCapacity(),
+                parking.getHourlyRate(), parking.getOccupied(),
+                partner != null ? partner.getId() : null,
+                partner != null ? partner.getName() : null,
+                partner != null ? partner.getEmail() : null);
+    }
+}
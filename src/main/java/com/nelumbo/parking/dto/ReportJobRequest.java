@@ -0,0 +1,37 @@
+package com.nelumbo.parking.dto;
+
+import com.nelumbo.parking.enums.ReportType;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobRequest {
+
+    @NotNull(message = "El tipo de reporte es obligatorio")
+    private ReportType type;
+
+    private Long parkingId;
+
+    private String period;
+
+    private LocalDate date;
+
+    private LocalDate from;
+
+    private LocalDate to;
+
+    private Integer limit;
+
+    private Boolean detail;
+
+    // csv o pdf; por defecto app.report.default-format si el reporte lo admite
+    private String format;
+}
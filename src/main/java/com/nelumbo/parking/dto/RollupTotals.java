@@ -0,0 +1,8 @@
+package com.nelumbo.parking.dto;
+
+/**
+ * Suma de filas de parking_daily_rollup: salidas, ganancias en unidades
+ * mínimas de la moneda y minutos de permanencia.
+ */
+public record RollupTotals(Long vehicleCount, Long revenue, Long totalDwellMinutes) {
+}
@@ -0,0 +1,24 @@
+package com.nelumbo.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleEvent {
+
+    private EventType type;
+
+    private String licensePlate;
+
+    private Long parkingId;
+
+    public enum EventType {
+        ENTRY,
+        EXIT
+    }
+}
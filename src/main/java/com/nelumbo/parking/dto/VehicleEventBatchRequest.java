@@ -0,0 +1,22 @@
+package com.nelumbo.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleEventBatchRequest {
+
+    // Cada evento se valida por separado para no rechazar el lote completo
+    @NotEmpty(message = "El lote debe contener al menos un evento")
+    @Size(max = 500, message = "El lote no puede exceder 500 eventos")
+    private List<VehicleEvent> events;
+}
@@ -0,0 +1,25 @@
+package com.nelumbo.parking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VehicleEventResult {
+
+    private int indice;
+
+    private VehicleEvent.EventType tipo;
+
+    private String placa;
+
+    private boolean exitoso;
+
+    private Long registroId;
+
+    private String mensaje;
+}
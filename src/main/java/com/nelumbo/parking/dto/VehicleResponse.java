@@ -0,0 +1,7 @@
+package com.nelumbo.parking.dto;
+
+/**
+ * Vehículo en las respuestas de /vehicles, leído con una proyección JPQL.
+ */
+public record VehicleResponse(Long id, String licensePlate) {
+}
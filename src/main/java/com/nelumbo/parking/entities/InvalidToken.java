@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class InvalidToken {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invalid_tokens_seq")
+    @SequenceGenerator(name = "invalid_tokens_seq", sequenceName = "invalid_tokens_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, unique = true)
@@ -5,11 +5,10 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
-import java.math.BigDecimal;
-
 @Entity
 @Table(name = "parkings")
 @Data
@@ -19,7 +18,8 @@ import java.math.BigDecimal;
 public class Parking {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "parkings_seq")
+    @SequenceGenerator(name = "parkings_seq", sequenceName = "parkings_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -28,8 +28,15 @@ public class Parking {
     @Column(nullable = false)
     private Integer capacity;
 
-    @Column(nullable = false, precision = 10, scale = 2)
-    private BigDecimal hourlyRate;
+    // Tarifa en unidades mínimas de la moneda (ver Money)
+    @Column(nullable = false)
+    private Long hourlyRate;
+
+    // Solo se modifica con UPDATE condicionales en ParkingRepository
+    @Builder.Default
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private Integer occupied = 0;
 
     @ManyToOne
     @JoinColumn(name = "partner_id")
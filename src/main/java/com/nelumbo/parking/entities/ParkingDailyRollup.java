@@ -0,0 +1,50 @@
+package com.nelumbo.parking.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Totales diarios por parqueadero, acumulados en cada salida. Sirven los
+ * reportes por período sin recorrer vehicle_history.
+ */
+@Entity
+@Table(name = "parking_daily_rollup")
+@IdClass(ParkingDailyRollup.RollupId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParkingDailyRollup {
+
+    @Id
+    private Long parkingId;
+
+    @Id
+    private LocalDate rollupDate;
+
+    @Column(nullable = false)
+    private Long vehicleCount;
+
+    // Monto en unidades mínimas de la moneda (ver Money)
+    @Column(nullable = false)
+    private Long revenue;
+
+    @Column(nullable = false)
+    private Long totalDwellMinutes;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RollupId implements Serializable {
+
+        private Long parkingId;
+
+        private LocalDate rollupDate;
+    }
+}
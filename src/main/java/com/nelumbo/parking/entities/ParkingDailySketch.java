@@ -0,0 +1,44 @@
+package com.nelumbo.parking.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Sketch HyperLogLog de las placas que salieron de un parqueadero en un día
+ * (ver HyperLogLog). Se actualiza en cada salida y se combina con otros días
+ * y parqueaderos para estimar vehículos únicos.
+ */
+@Entity
+@Table(name = "parking_daily_sketch")
+@IdClass(ParkingDailySketch.SketchId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParkingDailySketch {
+
+    @Id
+    private Long parkingId;
+
+    @Id
+    private LocalDate sketchDate;
+
+    @Column(nullable = false)
+    private byte[] registers;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SketchId implements Serializable {
+
+        private Long parkingId;
+
+        private LocalDate sketchDate;
+    }
+}
@@ -0,0 +1,66 @@
+package com.nelumbo.parking.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Ocupación por parqueadero resumida por hora y por día a partir de las
+ * muestras por minuto que se mantienen en memoria (ver
+ * OccupancyHistoryService). Guarda suma y cantidad de muestras para que los
+ * promedios se puedan combinar entre períodos.
+ */
+@Entity
+@Table(name = "parking_occupancy_samples")
+@IdClass(ParkingOccupancySample.SampleId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParkingOccupancySample {
+
+    @Id
+    private Long parkingId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 4)
+    private Resolution resolution;
+
+    // Inicio de la hora o del día
+    @Id
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private Long occupiedSum;
+
+    @Column(nullable = false)
+    private Long samples;
+
+    @Column(nullable = false)
+    private Integer minOccupied;
+
+    @Column(nullable = false)
+    private Integer maxOccupied;
+
+    public enum Resolution {
+        HOUR, DAY
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SampleId implements Serializable {
+
+        private Long parkingId;
+
+        private Resolution resolution;
+
+        private LocalDateTime bucketStart;
+    }
+}
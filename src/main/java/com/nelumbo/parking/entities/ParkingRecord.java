@@ -6,11 +6,12 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "parking_records")
+@Table(name = "parking_records", indexes = {
+        @Index(name = "idx_parking_records_parking_status_entry", columnList = "parking_id, status, entryDateTime, id")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -18,7 +19,8 @@ import java.time.LocalDateTime;
 public class ParkingRecord {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "parking_records_seq")
+    @SequenceGenerator(name = "parking_records_seq", sequenceName = "parking_records_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -34,7 +36,8 @@ public class ParkingRecord {
 
     private LocalDateTime exitDateTime;
 
-    private BigDecimal totalCost;
+    // Monto en unidades mínimas de la moneda (ver Money)
+    private Long totalCost;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
@@ -0,0 +1,54 @@
+package com.nelumbo.parking.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Visitas de un vehículo a un parqueadero, acumuladas en cada salida. Sirven
+ * los reportes de vehículos de primera vez, recurrentes y frecuencia de
+ * visitas sin agrupar vehicle_history. El índice parcial sobre
+ * visit_count = 1 se crea en schema-postgresql.sql.
+ */
+@Entity
+@Table(name = "parking_vehicle_visits", indexes = {
+        @Index(name = "idx_parking_vehicle_visits_count", columnList = "parkingId, visitCount")
+})
+@IdClass(ParkingVehicleVisit.VisitId.class)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParkingVehicleVisit {
+
+    @Id
+    private Long parkingId;
+
+    @Id
+    private Long vehicleId;
+
+    @Column(nullable = false)
+    private Long visitCount;
+
+    // Salida de la primera y la última visita
+    @Column(nullable = false)
+    private LocalDateTime firstVisitAt;
+
+    @Column(nullable = false)
+    private LocalDateTime lastVisitAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VisitId implements Serializable {
+
+        private Long parkingId;
+
+        private Long vehicleId;
+    }
+}
@@ -0,0 +1,45 @@
+package com.nelumbo.parking.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Contador persistido del resumen de top vehículos (ver TopVehicleTracker).
+ * scopeId es el id del parqueadero, o 0 para el resumen global.
+ */
+@Entity
+@Table(name = "top_vehicle_snapshot", indexes = {
+        @Index(name = "idx_top_vehicle_snapshot_scope", columnList = "scopeId")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopVehicleSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "top_vehicle_snapshot_seq")
+    @SequenceGenerator(name = "top_vehicle_snapshot_seq", sequenceName = "top_vehicle_snapshot_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long scopeId;
+
+    @Column(nullable = false, length = 6)
+    private String licensePlate;
+
+    @Column(nullable = false)
+    private Long hits;
+
+    // Sobreestimación máxima de hits (Space-Saving)
+    @Column(nullable = false)
+    private Long maxError;
+
+    @Column(nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -6,7 +6,6 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -18,7 +17,8 @@ import java.time.LocalDateTime;
 public class VehicleHistory {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vehicle_history_seq")
+    @SequenceGenerator(name = "vehicle_history_seq", sequenceName = "vehicle_history_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 6)
@@ -33,8 +33,9 @@ public class VehicleHistory {
     @Column(nullable = false)
     private LocalDateTime exitDateTime;
 
+    // Monto en unidades mínimas de la moneda (ver Money)
     @Column(nullable = false)
-    private BigDecimal totalCost;
+    private Long totalCost;
 
     @Column(nullable = false)
     private Long parkingId;
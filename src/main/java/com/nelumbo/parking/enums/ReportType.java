@@ -0,0 +1,34 @@
+package com.nelumbo.parking.enums;
+
+import java.util.Set;
+
+/**
+ * Reportes que se pueden generar en segundo plano, con los roles que pueden
+ * pedirlos (los mismos de los endpoints síncronos de /reports) y si tienen
+ * versión en PDF.
+ */
+public enum ReportType {
+    TOP_VEHICLES_ALL_PARKINGS(true, Role.ADMIN, Role.SOCIO),
+    TOP_VEHICLES_BY_PARKING(true, Role.ADMIN, Role.SOCIO),
+    FIRST_TIME_VEHICLES(false, Role.ADMIN, Role.SOCIO),
+    EARNINGS_BY_PERIOD(false, Role.SOCIO),
+    EARNINGS_BY_DATE(true, Role.ADMIN),
+    ALL_PARKINGS_EARNINGS(true, Role.ADMIN),
+    GENERAL_STATISTICS(false, Role.ADMIN);
+
+    private final boolean pdfAvailable;
+    private final Set<Role> allowedRoles;
+
+    ReportType(boolean pdfAvailable, Role... allowedRoles) {
+        this.pdfAvailable = pdfAvailable;
+        this.allowedRoles = Set.of(allowedRoles);
+    }
+
+    public boolean isPdfAvailable() {
+        return pdfAvailable;
+    }
+
+    public boolean isAllowedFor(Role role) {
+        return allowedRoles.contains(role);
+    }
+}
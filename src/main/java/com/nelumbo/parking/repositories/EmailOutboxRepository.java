@@ -0,0 +1,30 @@
+package com.nelumbo.parking.repositories;
+
+import com.nelumbo.parking.entities.EmailOutbox;
+import com.nelumbo.parking.entities.EmailOutbox.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    /**
+     * Bloquea un lote de correos pendientes. Las filas bloqueadas por otro
+     * nodo se omiten, así cada correo lo toma un solo despachador.
+     */
+    @Query(value = "SELECT * FROM email_outbox WHERE status = 'PENDING' AND next_attempt_at <= :now " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<EmailOutbox> lockDue(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    long countByStatus(OutboxStatus status);
+
+    @Transactional
+    void deleteByStatusAndSentAtBefore(OutboxStatus status, LocalDateTime dateTime);
+}
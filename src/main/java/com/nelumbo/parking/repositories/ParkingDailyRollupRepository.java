@@ -0,0 +1,79 @@
+package com.nelumbo.parking.repositories;
+
+import com.nelumbo.parking.dto.RollupTotals;
+import com.nelumbo.parking.entities.ParkingDailyRollup;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ParkingDailyRollupRepository extends JpaRepository<ParkingDailyRollup, ParkingDailyRollup.RollupId> {
+
+    
+    @Modifying
+    @Query(value = "INSERT INTO parking_daily_rollup (parking_id, rollup_date, vehicle_count, revenue, total_dwell_minutes) " +
+            "VALUES (:parkingId, :rollupDate, 1, :revenue, :dwellMinutes) " +
+            "ON CONFLICT (parking_id, rollup_date) DO UPDATE SET " +
+            "vehicle_count = parking_daily_rollup.vehicle_count + 1, " +
+            "revenue = parking_daily_rollup.revenue + EXCLUDED.revenue, " +
+            "total_dwell_minutes = parking_daily_rollup.total_dwell_minutes + EXCLUDED.total_dwell_minutes",
+            nativeQuery = true)
+    int addExit(@Param("parkingId") Long parkingId,
+                @Param("rollupDate") LocalDate rollupDate,
+                @Param("revenue") long revenue,
+                @Param("dwellMinutes") long dwellMinutes);
+
+    
+    @Query("SELECT new com.nelumbo.parking.dto.RollupTotals(COALESCE(SUM(r.vehicleCount), 0L), COALESCE(SUM(r.revenue), 0L), COALESCE(SUM(r.totalDwellMinutes), 0L)) " +
+            "FROM ParkingDailyRollup r WHERE r.parkingId = :parkingId AND r.rollupDate BETWEEN :startDate AND :endDate")
+    RollupTotals sumByParkingIdAndRollupDateBetween(@Param("parkingId") Long parkingId,
+                                                    @Param("startDate") LocalDate startDate,
+                                                    @Param("endDate") LocalDate endDate);
+
+    
+    @Query("SELECT new com.nelumbo.parking.dto.RollupTotals(COALESCE(SUM(r.vehicleCount), 0L), COALESCE(SUM(r.revenue), 0L), COALESCE(SUM(r.totalDwellMinutes), 0L)) " +
+            "FROM ParkingDailyRollup r WHERE r.rollupDate = :rollupDate")
+    RollupTotals sumByRollupDate(@Param("rollupDate") LocalDate rollupDate);
+
+    
+    @Query("SELECT p.id, p.name, COALESCE(r.vehicleCount, 0L), COALESCE(r.revenue, 0L) FROM Parking p " +
+            "LEFT JOIN ParkingDailyRollup r ON r.parkingId = p.id AND r.rollupDate = :rollupDate ORDER BY p.id")
+    List<Object[]> findDailyTotalsForAllParkings(@Param("rollupDate") LocalDate rollupDate);
+
+    
+    List<ParkingDailyRollup> findByParkingIdAndRollupDateBetweenOrderByRollupDate(Long parkingId, LocalDate startDate, LocalDate endDate);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT r.rollupDate, p.id, p.name, r.vehicleCount, r.revenue FROM ParkingDailyRollup r " +
+            "JOIN Parking p ON p.id = r.parkingId WHERE r.rollupDate BETWEEN :startDate AND :endDate " +
+            "ORDER BY r.rollupDate, p.id")
+    Stream<Object[]> streamDailyTotalsForAllParkings(@Param("startDate") LocalDate startDate,
+                                                     @Param("endDate") LocalDate endDate);
+
+    
+    @Modifying
+    @Query("DELETE FROM ParkingDailyRollup r WHERE r.rollupDate BETWEEN :startDate AND :endDate")
+    int deleteByRollupDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    
+    @Modifying
+    @Query(value = "INSERT INTO parking_daily_rollup (parking_id, rollup_date, vehicle_count, revenue, total_dwell_minutes) " +
+            "SELECT parking_id, CAST(exit_date_time AS DATE), COUNT(*), COALESCE(SUM(total_cost), 0), " +
+            "COALESCE(SUM(FLOOR(EXTRACT(EPOCH FROM (exit_date_time - entry_date_time)) / 60)), 0) " +
+            "FROM vehicle_history WHERE exit_date_time >= :startDateTime AND exit_date_time < :endDateTime " +
+            "GROUP BY parking_id, CAST(exit_date_time AS DATE)",
+            nativeQuery = true)
+    int insertFromHistory(@Param("startDateTime") LocalDateTime startDateTime,
+                          @Param("endDateTime") LocalDateTime endDateTime);
+}
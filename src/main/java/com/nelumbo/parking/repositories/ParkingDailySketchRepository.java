@@ -0,0 +1,62 @@
+package com.nelumbo.parking.repositories;
+
+import com.nelumbo.parking.entities.ParkingDailySketch;
+import com.nelumbo.parking.utils.HyperLogLog;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+@Repository
+public interface ParkingDailySketchRepository extends JpaRepository<ParkingDailySketch, ParkingDailySketch.SketchId> {
+
+    
+    @Modifying
+    @Query(value = "INSERT INTO parking_daily_sketch (parking_id, sketch_date, registers) " +
+            "VALUES (:parkingId, :sketchDate, set_byte(decode(repeat('00', " + HyperLogLog.REGISTERS + "), 'hex'), :index, :rank)) " +
+            "ON CONFLICT (parking_id, sketch_date) DO UPDATE SET " +
+            "registers = set_byte(parking_daily_sketch.registers, :index, :rank) " +
+            "WHERE get_byte(parking_daily_sketch.registers, :index) < :rank",
+            nativeQuery = true)
+    int updateRegister(@Param("parkingId") Long parkingId,
+                       @Param("sketchDate") LocalDate sketchDate,
+                       @Param("index") int index,
+                       @Param("rank") int rank);
+
+    
+    @Modifying
+    @Query(value = "INSERT INTO parking_daily_sketch (parking_id, sketch_date, registers) " +
+            "VALUES (:parkingId, :sketchDate, :registers)",
+            nativeQuery = true)
+    int insertSketch(@Param("parkingId") Long parkingId,
+                     @Param("sketchDate") LocalDate sketchDate,
+                     @Param("registers") byte[] registers);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("SELECT s.sketchDate, s.registers FROM ParkingDailySketch s " +
+            "WHERE s.sketchDate BETWEEN :startDate AND :endDate ORDER BY s.sketchDate")
+    Stream<Object[]> streamBySketchDateBetween(@Param("startDate") LocalDate startDate,
+                                              @Param("endDate") LocalDate endDate);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "100"))
+    @Query("SELECT s.sketchDate, s.registers FROM ParkingDailySketch s " +
+            "WHERE s.parkingId IN :parkingIds AND s.sketchDate BETWEEN :startDate AND :endDate ORDER BY s.sketchDate")
+    Stream<Object[]> streamByParkingIdInAndSketchDateBetween(@Param("parkingIds") Collection<Long> parkingIds,
+                                                             @Param("startDate") LocalDate startDate,
+                                                             @Param("endDate") LocalDate endDate);
+
+    
+    @Modifying
+    @Query("DELETE FROM ParkingDailySketch s WHERE s.sketchDate BETWEEN :startDate AND :endDate")
+    int deleteBySketchDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+}
@@ -0,0 +1,82 @@
+package com.nelumbo.parking.repositories;
+
+import com.nelumbo.parking.entities.ParkingOccupancySample;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ParkingOccupancySampleRepository extends JpaRepository<ParkingOccupancySample, ParkingOccupancySample.SampleId> {
+
+    
+    @Modifying
+    @Query(value = "INSERT INTO parking_occupancy_samples (parking_id, resolution, bucket_start, occupied_sum, samples, min_occupied, max_occupied) " +
+            "VALUES (:parkingId, 'HOUR', :hourStart, :occupiedSum, :samples, :minOccupied, :maxOccupied) " +
+            "ON CONFLICT (parking_id, resolution, bucket_start) DO UPDATE SET " +
+            "occupied_sum = EXCLUDED.occupied_sum, samples = EXCLUDED.samples, " +
+            "min_occupied = EXCLUDED.min_occupied, max_occupied = EXCLUDED.max_occupied " +
+            "WHERE EXCLUDED.samples > parking_occupancy_samples.samples",
+            nativeQuery = true)
+    int upsertHour(@Param("parkingId") Long parkingId,
+                   @Param("hourStart") LocalDateTime hourStart,
+                   @Param("occupiedSum") long occupiedSum,
+                   @Param("samples") long samples,
+                   @Param("minOccupied") int minOccupied,
+                   @Param("maxOccupied") int maxOccupied);
+
+    
+    @Modifying
+    @Query(value = "INSERT INTO parking_occupancy_samples (parking_id, resolution, bucket_start, occupied_sum, samples, min_occupied, max_occupied) " +
+            "SELECT parking_id, 'DAY', :dayStart, SUM(occupied_sum), SUM(samples), MIN(min_occupied), MAX(max_occupied) " +
+            "FROM parking_occupancy_samples WHERE resolution = 'HOUR' AND bucket_start >= :dayStart AND bucket_start < :dayEnd " +
+            "GROUP BY parking_id " +
+            "ON CONFLICT (parking_id, resolution, bucket_start) DO UPDATE SET " +
+            "occupied_sum = EXCLUDED.occupied_sum, samples = EXCLUDED.samples, " +
+            "min_occupied = EXCLUDED.min_occupied, max_occupied = EXCLUDED.max_occupied",
+            nativeQuery = true)
+    int rollUpDay(@Param("dayStart") LocalDateTime dayStart,
+                  @Param("dayEnd") LocalDateTime dayEnd);
+
+    
+    @Modifying
+    @Query(value = "INSERT INTO parking_occupancy_samples (parking_id, resolution, bucket_start, occupied_sum, samples, min_occupied, max_occupied) " +
+            "SELECT h.parking_id, 'DAY', date_trunc('day', h.bucket_start), SUM(h.occupied_sum), SUM(h.samples), " +
+            "MIN(h.min_occupied), MAX(h.max_occupied) " +
+            "FROM parking_occupancy_samples h WHERE h.resolution = 'HOUR' AND h.bucket_start < :before " +
+            "AND NOT EXISTS (SELECT 1 FROM parking_occupancy_samples d WHERE d.parking_id = h.parking_id " +
+            "AND d.resolution = 'DAY' AND d.bucket_start = date_trunc('day', h.bucket_start)) " +
+            "GROUP BY h.parking_id, date_trunc('day', h.bucket_start) " +
+            "ON CONFLICT (parking_id, resolution, bucket_start) DO NOTHING",
+            nativeQuery = true)
+    int rollUpPendingDays(@Param("before") LocalDateTime before);
+
+    
+    @Query("SELECT s FROM ParkingOccupancySample s WHERE s.parkingId = :parkingId AND s.resolution = :resolution " +
+            "AND s.bucketStart >= :startDateTime AND s.bucketStart < :endDateTime ORDER BY s.bucketStart")
+    List<ParkingOccupancySample> findBuckets(@Param("parkingId") Long parkingId,
+                                             @Param("resolution") ParkingOccupancySample.Resolution resolution,
+                                             @Param("startDateTime") LocalDateTime startDateTime,
+                                             @Param("endDateTime") LocalDateTime endDateTime);
+
+    
+    @Query(value = "SELECT CAST(EXTRACT(ISODOW FROM bucket_start) AS integer), CAST(EXTRACT(HOUR FROM bucket_start) AS integer), " +
+            "SUM(occupied_sum), SUM(samples), MIN(min_occupied), MAX(max_occupied) " +
+            "FROM parking_occupancy_samples WHERE parking_id = :parkingId AND resolution = 'HOUR' " +
+            "AND bucket_start >= :startDateTime AND bucket_start < :endDateTime " +
+            "GROUP BY 1, 2",
+            nativeQuery = true)
+    List<Object[]> sumByHourOfWeek(@Param("parkingId") Long parkingId,
+                                   @Param("startDateTime") LocalDateTime startDateTime,
+                                   @Param("endDateTime") LocalDateTime endDateTime);
+
+    
+    @Modifying
+    @Query("DELETE FROM ParkingOccupancySample s WHERE s.resolution = :resolution AND s.bucketStart < :before")
+    int deleteByResolutionAndBucketStartBefore(@Param("resolution") ParkingOccupancySample.Resolution resolution,
+                                               @Param("before") LocalDateTime before);
+}
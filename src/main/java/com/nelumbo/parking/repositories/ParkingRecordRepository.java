@@ -1,6 +1,9 @@
 package com.nelumbo.parking.repositories;
 
+import com.nelumbo.parking.dto.ParkedVehicleRow;
 import com.nelumbo.parking.entities.ParkingRecord;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -16,15 +19,54 @@ public interface ParkingRecordRepository extends JpaRepository<ParkingRecord, Lo
     @Query("SELECT pr FROM ParkingRecord pr WHERE pr.vehicle.licensePlate = :licensePlate AND pr.status = 'PARKED'")
     Optional<ParkingRecord> findActiveByLicensePlate(@Param("licensePlate") String licensePlate);
     
-    @Query("SELECT pr FROM ParkingRecord pr WHERE pr.parking.id = :parkingId AND pr.status = 'PARKED'")
-    List<ParkingRecord> findActiveByParkingId(@Param("parkingId") Long parkingId);
+    /**
+     * Bloquea el registro activo hasta el fin de la transacción: una salida
+     * simultánea en otra instancia espera y después ya no lo encuentra activo.
+     */
+    @Query(value = "SELECT * FROM parking_records WHERE id = :id AND status = 'PARKED' FOR UPDATE", nativeQuery = true)
+    Optional<ParkingRecord> lockActiveById(@Param("id") Long id);
+    
+    // Como lockActiveById, para placas que ingresaron por otra instancia
+    @Query(value = "SELECT pr.* FROM parking_records pr JOIN vehicles v ON v.id = pr.vehicle_id " +
+            "WHERE v.license_plate = :licensePlate AND pr.parking_id = :parkingId AND pr.status = 'PARKED' " +
+            "FOR UPDATE OF pr", nativeQuery = true)
+    Optional<ParkingRecord> lockActiveByLicensePlateAndParking(@Param("licensePlate") String licensePlate,
+                                                               @Param("parkingId") Long parkingId);
+    
+    @Query("SELECT pr.vehicle.licensePlate, pr.id, pr.parking.id, pr.entryDateTime FROM ParkingRecord pr WHERE pr.status = 'PARKED'")
+    List<Object[]> findAllActiveSummaries();
+    
+    // Página por keyset en el orden del índice (parking_id, status, entry_date_time, id):
+    // los registros posteriores a (cursorEntry, cursorId) dentro de [enteredAfter, enteredBefore)
+    @Query("SELECT new com.nelumbo.parking.dto.ParkedVehicleRow(pr.id, v.licensePlate, pr.entryDateTime) " +
+            "FROM ParkingRecord pr JOIN pr.vehicle v WHERE pr.parking.id = :parkingId AND pr.status = 'PARKED' " +
+            "AND pr.entryDateTime >= :enteredAfter AND pr.entryDateTime < :enteredBefore " +
+            "AND (pr.entryDateTime > :cursorEntry OR (pr.entryDateTime = :cursorEntry AND pr.id > :cursorId)) " +
+            "AND v.licensePlate LIKE :platePattern ORDER BY pr.entryDateTime, pr.id")
+    Slice<ParkedVehicleRow> findParkedPage(@Param("parkingId") Long parkingId,
+                                           @Param("enteredAfter") LocalDateTime enteredAfter,
+                                           @Param("enteredBefore") LocalDateTime enteredBefore,
+                                           @Param("cursorEntry") LocalDateTime cursorEntry,
+                                           @Param("cursorId") Long cursorId,
+                                           @Param("platePattern") String platePattern,
+                                           Pageable pageable);
     
     @Query("SELECT COUNT(pr) FROM ParkingRecord pr WHERE pr.parking.id = :parkingId AND pr.status = 'PARKED'")
     Long countActiveByParkingId(@Param("parkingId") Long parkingId);
     
+    @Query("SELECT pr.parking.id, COUNT(pr) FROM ParkingRecord pr WHERE pr.status = 'PARKED' GROUP BY pr.parking.id")
+    List<Object[]> countActiveGroupedByParking();
+    
     @Query("SELECT pr FROM ParkingRecord pr WHERE pr.vehicle.licensePlate = :licensePlate AND pr.parking.id = :parkingId AND pr.status = 'PARKED'")
     Optional<ParkingRecord> findActiveByLicensePlateAndParking(@Param("licensePlate") String licensePlate, @Param("parkingId") Long parkingId);
     
+    @Query("SELECT COUNT(pr) > 0 FROM ParkingRecord pr WHERE pr.vehicle.id = :vehicleId AND pr.parking.id = :parkingId " +
+            "AND pr.status = 'EXITED' AND pr.exitDateTime BETWEEN :exitFrom AND :exitTo")
+    boolean existsExited(@Param("vehicleId") Long vehicleId,
+                         @Param("parkingId") Long parkingId,
+                         @Param("exitFrom") LocalDateTime exitFrom,
+                         @Param("exitTo") LocalDateTime exitTo);
+    
     @Query("SELECT pr FROM ParkingRecord pr WHERE pr.parking.id = :parkingId AND pr.status = 'EXITED' AND pr.exitDateTime BETWEEN :startDate AND :endDate")
     List<ParkingRecord> findExitedByParkingAndDateRange(@Param("parkingId") Long parkingId, @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
     
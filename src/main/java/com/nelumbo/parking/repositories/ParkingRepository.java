@@ -1,7 +1,11 @@
 package com.nelumbo.parking.repositories;
 
+import com.nelumbo.parking.config.CacheConfig;
+import com.nelumbo.parking.dto.ParkingResponse;
 import com.nelumbo.parking.entities.Parking;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,14 +15,60 @@ import java.util.Optional;
 
 @Repository
 public interface ParkingRepository extends JpaRepository<Parking, Long> {
+
+    // Proyección de ParkingResponse; las consultas que la usan unen el socio como "u"
+    String RESPONSE = "new com.nelumbo.parking.dto.ParkingResponse(p.id, p.name, p.capacity, p.hourlyRate, " +
+            "p.occupied, u.id, u.name, u.email)";
     
     Optional<Parking> findByName(String name);
     
+    /**
+     * Búsqueda por id para ingresos, salidas y reportes. El resultado queda en
+     * caché hasta que ParkingService modifica o elimina el parqueadero; la
+     * columna occupied de la instancia cacheada no se debe usar.
+     */
+    @Cacheable(cacheNames = CacheConfig.PARKING_CACHE, unless = "#result == null")
+    @Query("SELECT p FROM Parking p WHERE p.id = :id")
+    Optional<Parking> findCachedById(@Param("id") Long id);
+    
     boolean existsByName(String name);
     
-    @Query("SELECT p FROM Parking p WHERE p.partner.id = :partnerId")
-    List<Parking> findByPartnerId(@Param("partnerId") Long partnerId);
+    @Query("SELECT " + RESPONSE + " FROM Parking p LEFT JOIN p.partner u WHERE p.id = :id")
+    Optional<ParkingResponse> findResponseById(@Param("id") Long id);
+    
+    @Query("SELECT " + RESPONSE + " FROM Parking p LEFT JOIN p.partner u ORDER BY p.id")
+    List<ParkingResponse> findAllResponses();
+    
+    @Query("SELECT " + RESPONSE + " FROM Parking p JOIN p.partner u WHERE u.id = :partnerId ORDER BY p.id")
+    List<ParkingResponse> findResponsesByPartnerId(@Param("partnerId") Long partnerId);
+    
+    @Query("SELECT " + RESPONSE + " FROM Parking p JOIN p.partner u WHERE u.email = :partnerEmail ORDER BY p.id")
+    List<ParkingResponse> findResponsesByPartnerEmail(@Param("partnerEmail") String partnerEmail);
+    
+    @Query("SELECT " + RESPONSE + " FROM Parking p LEFT JOIN p.partner u WHERE u.id IS NULL ORDER BY p.id")
+    List<ParkingResponse> findResponsesWithoutPartner();
+    
+    @Modifying
+    @Query("UPDATE Parking p SET p.occupied = p.occupied + 1 WHERE p.id = :parkingId AND p.occupied < p.capacity")
+    int tryReserveSpot(@Param("parkingId") Long parkingId);
+    
+    @Modifying
+    @Query("UPDATE Parking p SET p.occupied = p.occupied - 1 WHERE p.id = :parkingId AND p.occupied > 0")
+    int releaseSpot(@Param("parkingId") Long parkingId);
+    
+    /**
+     * Bloquea la fila del parqueadero hasta el fin de la transacción. Espera
+     * a que terminen los ingresos y salidas que ya reservaron o liberaron un
+     * cupo, así un conteo posterior incluye sus registros.
+     */
+    @Query(value = "SELECT occupied FROM parkings WHERE id = :parkingId FOR UPDATE", nativeQuery = true)
+    Integer lockOccupied(@Param("parkingId") Long parkingId);
+    
+    // Usar solo con la fila bloqueada por lockOccupied
+    @Modifying
+    @Query("UPDATE Parking p SET p.occupied = :occupied WHERE p.id = :parkingId")
+    int setOccupied(@Param("parkingId") Long parkingId, @Param("occupied") int occupied);
     
-    @Query("SELECT p FROM Parking p WHERE p.partner.email = :partnerEmail")
-    List<Parking> findByPartnerEmail(@Param("partnerEmail") String partnerEmail);
+    @Query("SELECT p.id, p.occupied FROM Parking p")
+    List<Object[]> findAllOccupied();
 }
@@ -0,0 +1,85 @@
+package com.nelumbo.parking.repositories;
+
+import com.nelumbo.parking.entities.ParkingVehicleVisit;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface ParkingVehicleVisitRepository extends JpaRepository<ParkingVehicleVisit, ParkingVehicleVisit.VisitId> {
+
+    
+    @Modifying
+    @Query(value = "INSERT INTO parking_vehicle_visits (parking_id, vehicle_id, visit_count, first_visit_at, last_visit_at) " +
+            "VALUES (:parkingId, :vehicleId, 1, :visitAt, :visitAt) " +
+            "ON CONFLICT (parking_id, vehicle_id) DO UPDATE SET " +
+            "visit_count = parking_vehicle_visits.visit_count + 1, " +
+            "first_visit_at = LEAST(parking_vehicle_visits.first_visit_at, EXCLUDED.first_visit_at), " +
+            "last_visit_at = GREATEST(parking_vehicle_visits.last_visit_at, EXCLUDED.last_visit_at)",
+            nativeQuery = true)
+    int recordVisit(@Param("parkingId") Long parkingId,
+                    @Param("vehicleId") Long vehicleId,
+                    @Param("visitAt") LocalDateTime visitAt);
+
+    
+    @Query("SELECT v.licensePlate, c.lastVisitAt FROM ParkingVehicleVisit c JOIN Vehicle v ON v.id = c.vehicleId " +
+            "WHERE c.parkingId = :parkingId AND c.visitCount = 1 ORDER BY c.lastVisitAt DESC, c.vehicleId")
+    Slice<Object[]> findFirstTimeByParkingId(@Param("parkingId") Long parkingId, Pageable pageable);
+
+    
+    @Query("SELECT v.licensePlate, c.lastVisitAt FROM ParkingVehicleVisit c JOIN Vehicle v ON v.id = c.vehicleId " +
+            "WHERE c.parkingId = :parkingId AND c.visitCount = 1 " +
+            "AND c.lastVisitAt >= :startDateTime AND c.lastVisitAt < :endDateTime " +
+            "ORDER BY c.lastVisitAt DESC, c.vehicleId")
+    Slice<Object[]> findFirstTimeByParkingIdAndVisitBetween(@Param("parkingId") Long parkingId,
+                                                            @Param("startDateTime") LocalDateTime startDateTime,
+                                                            @Param("endDateTime") LocalDateTime endDateTime,
+                                                            Pageable pageable);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT v.licensePlate FROM ParkingVehicleVisit c JOIN Vehicle v ON v.id = c.vehicleId " +
+            "WHERE c.parkingId = :parkingId AND c.visitCount = 1 ORDER BY v.licensePlate")
+    Stream<String> streamFirstTimePlatesByParkingId(@Param("parkingId") Long parkingId);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT v.licensePlate FROM ParkingVehicleVisit c JOIN Vehicle v ON v.id = c.vehicleId " +
+            "WHERE c.parkingId = :parkingId AND c.visitCount = 1 " +
+            "AND c.lastVisitAt >= :startDateTime AND c.lastVisitAt < :endDateTime ORDER BY v.licensePlate")
+    Stream<String> streamFirstTimePlatesByParkingIdAndVisitBetween(@Param("parkingId") Long parkingId,
+                                                                   @Param("startDateTime") LocalDateTime startDateTime,
+                                                                   @Param("endDateTime") LocalDateTime endDateTime);
+
+    
+    @Query("SELECT v.licensePlate, c.visitCount, c.firstVisitAt, c.lastVisitAt FROM ParkingVehicleVisit c " +
+            "JOIN Vehicle v ON v.id = c.vehicleId WHERE c.parkingId = :parkingId AND c.visitCount >= :minVisits " +
+            "ORDER BY c.visitCount DESC, c.vehicleId")
+    Slice<Object[]> findReturningByParkingId(@Param("parkingId") Long parkingId,
+                                             @Param("minVisits") long minVisits,
+                                             Pageable pageable);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT v.licensePlate, c.visitCount, c.firstVisitAt, c.lastVisitAt FROM ParkingVehicleVisit c " +
+            "JOIN Vehicle v ON v.id = c.vehicleId WHERE c.parkingId = :parkingId AND c.visitCount >= :minVisits " +
+            "ORDER BY c.visitCount DESC, c.vehicleId")
+    Stream<Object[]> streamReturningByParkingId(@Param("parkingId") Long parkingId,
+                                                @Param("minVisits") long minVisits);
+
+    
+    @Query("SELECT c.visitCount, COUNT(c.vehicleId) FROM ParkingVehicleVisit c WHERE c.parkingId = :parkingId " +
+            "GROUP BY c.visitCount ORDER BY c.visitCount")
+    List<Object[]> countVehiclesByVisitCount(@Param("parkingId") Long parkingId);
+}
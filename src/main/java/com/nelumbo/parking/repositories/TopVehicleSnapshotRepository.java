@@ -0,0 +1,33 @@
+package com.nelumbo.parking.repositories;
+
+import com.nelumbo.parking.entities.TopVehicleSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface TopVehicleSnapshotRepository extends JpaRepository<TopVehicleSnapshot, Long> {
+
+    
+    @Modifying
+    @Query("DELETE FROM TopVehicleSnapshot s WHERE s.scopeId = :scopeId")
+    int deleteByScopeId(@Param("scopeId") Long scopeId);
+
+    
+    @Query("SELECT MAX(s.takenAt) FROM TopVehicleSnapshot s")
+    Optional<LocalDateTime> findLatestTakenAt();
+
+    
+    // Advisory locks de transacción: se liberan solos al confirmar o revertir
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryLock(@Param("key") long key);
+
+    
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(:key)", nativeQuery = true)
+    Integer lock(@Param("key") long key);
+}
@@ -1,6 +1,8 @@
 package com.nelumbo.parking.repositories;
 
+import com.nelumbo.parking.config.CacheConfig;
 import com.nelumbo.parking.entities.User;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -8,5 +10,6 @@ import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    @Cacheable(cacheNames = CacheConfig.USERS_CACHE, unless = "#result == null")
     Optional<User> findByEmail(String email);
 }
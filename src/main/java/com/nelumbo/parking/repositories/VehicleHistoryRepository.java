@@ -1,11 +1,19 @@
 package com.nelumbo.parking.repositories;
 
+import com.nelumbo.parking.dto.EarningsDetailRow;
 import com.nelumbo.parking.entities.VehicleHistory;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface VehicleHistoryRepository extends JpaRepository<VehicleHistory, Long> {
@@ -21,4 +29,51 @@ public interface VehicleHistoryRepository extends JpaRepository<VehicleHistory,
 
     
     List<VehicleHistory> findByExitDateTimeBetween(LocalDateTime startDateTime, LocalDateTime endDateTime);
+
+    
+    boolean existsByLicensePlateAndEntryDateTime(String licensePlate, LocalDateTime entryDateTime);
+
+    
+    @Query("SELECT h.licensePlate, COUNT(h) FROM VehicleHistory h WHERE h.parkingId = :parkingId GROUP BY h.licensePlate ORDER BY COUNT(h) DESC, h.licensePlate")
+    List<Object[]> findTopPlatesByParkingId(@Param("parkingId") Long parkingId, Pageable pageable);
+
+    
+    @Query("SELECT h.licensePlate, COUNT(h) FROM VehicleHistory h GROUP BY h.licensePlate ORDER BY COUNT(h) DESC, h.licensePlate")
+    List<Object[]> findTopPlates(Pageable pageable);
+
+    // Cursor del lado del servidor: requiere una transacción abierta mientras se consume
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.nelumbo.parking.dto.EarningsDetailRow(h.parkingId, h.licensePlate, h.entryDateTime, h.exitDateTime, h.totalCost) " +
+            "FROM VehicleHistory h WHERE h.parkingId = :parkingId AND h.exitDateTime BETWEEN :startDateTime AND :endDateTime " +
+            "ORDER BY h.exitDateTime")
+    Stream<EarningsDetailRow> streamDetailByParkingIdAndExitDateTimeBetween(@Param("parkingId") Long parkingId,
+                                                                            @Param("startDateTime") LocalDateTime startDateTime,
+                                                                            @Param("endDateTime") LocalDateTime endDateTime);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.nelumbo.parking.dto.EarningsDetailRow(h.parkingId, h.licensePlate, h.entryDateTime, h.exitDateTime, h.totalCost) " +
+            "FROM VehicleHistory h WHERE h.exitDateTime BETWEEN :startDateTime AND :endDateTime " +
+            "ORDER BY h.parkingId, h.exitDateTime")
+    Stream<EarningsDetailRow> streamDetailByExitDateTimeBetween(@Param("startDateTime") LocalDateTime startDateTime,
+                                                                @Param("endDateTime") LocalDateTime endDateTime);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT h.licensePlate, COUNT(h) FROM VehicleHistory h WHERE h.exitDateTime < :before " +
+            "GROUP BY h.licensePlate ORDER BY COUNT(h) DESC, h.licensePlate")
+    Stream<Object[]> streamTopPlates(@Param("before") LocalDateTime before);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT h.parkingId, h.exitDateTime, h.licensePlate FROM VehicleHistory h " +
+            "WHERE h.exitDateTime >= :startDateTime AND h.exitDateTime < :endDateTime ORDER BY h.parkingId, h.exitDateTime")
+    Stream<Object[]> streamPlatesByExitDateTimeBetween(@Param("startDateTime") LocalDateTime startDateTime,
+                                                       @Param("endDateTime") LocalDateTime endDateTime);
+
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT h.parkingId, h.licensePlate, COUNT(h) FROM VehicleHistory h WHERE h.exitDateTime < :before " +
+            "GROUP BY h.parkingId, h.licensePlate ORDER BY h.parkingId, COUNT(h) DESC, h.licensePlate")
+    Stream<Object[]> streamPlateCountsByParking(@Param("before") LocalDateTime before);
 }
@@ -1,5 +1,6 @@
 package com.nelumbo.parking.repositories;
 
+import com.nelumbo.parking.dto.VehicleResponse;
 import com.nelumbo.parking.entities.Vehicle;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -14,8 +15,20 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long> {
     
     Optional<Vehicle> findByLicensePlate(String licensePlate);
     
+    /**
+     * Crea el vehículo si la placa no existe y devuelve su id en una sola
+     * sentencia, sin fallar cuando dos porterías registran la misma placa.
+     * El id se toma completo de vehicles_seq, por lo que nunca choca con los
+     * bloques que Hibernate reserva de la misma secuencia.
+     */
+    @Query(value = "INSERT INTO vehicles (id, license_plate) VALUES (nextval('vehicles_seq'), :licensePlate) " +
+            "ON CONFLICT (license_plate) DO UPDATE SET license_plate = EXCLUDED.license_plate " +
+            "RETURNING id", nativeQuery = true)
+    Long upsertIdByLicensePlate(@Param("licensePlate") String licensePlate);
+    
     boolean existsByLicensePlate(String licensePlate);
     
-    @Query("SELECT v FROM Vehicle v WHERE v.licensePlate LIKE %:partialPlate%")
-    List<Vehicle> findByLicensePlateContaining(@Param("partialPlate") String partialPlate);
+    @Query("SELECT new com.nelumbo.parking.dto.VehicleResponse(v.id, v.licensePlate) FROM Vehicle v " +
+            "WHERE v.licensePlate LIKE %:partialPlate% ORDER BY v.licensePlate")
+    List<VehicleResponse> findByLicensePlateContaining(@Param("partialPlate") String partialPlate);
 }
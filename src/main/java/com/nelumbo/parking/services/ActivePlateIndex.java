@@ -0,0 +1,165 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.entities.ParkingRecord;
+import com.nelumbo.parking.repositories.ParkingRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice en memoria de placas actualmente estacionadas.
+ * Se reconstruye al iniciar la aplicación y se mantiene sincronizado con los
+ * ingresos y salidas; mientras no se haya cargado, consulta la base de datos.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ActivePlateIndex {
+
+    private final ParkingRecordRepository parkingRecordRepository;
+
+    private final Map<String, ActiveVehicle> index = new ConcurrentHashMap<>();
+    // Placas que salieron mientras se cargaba el índice; se guarda con el lock de la instancia
+    private final Set<String> claimedWhileLoading = new HashSet<>();
+    private volatile boolean loaded = false;
+
+    public record ActiveVehicle(Long recordId, Long parkingId, LocalDateTime entryDateTime) {
+    }
+
+    /**
+     * Carga las placas activas al iniciar la aplicación. Como ya se pueden
+     * estar atendiendo ingresos y salidas, los registros leídos se agregan
+     * sin reemplazar las reservas existentes ni devolver placas que salieron
+     * durante la carga.
+     */
+    public void rebuild() {
+        List<Object[]> rows = parkingRecordRepository.findAllActiveSummaries();
+        synchronized (this) {
+            for (Object[] row : rows) {
+                String licensePlate = (String) row[0];
+                if (!claimedWhileLoading.contains(licensePlate)) {
+                    index.putIfAbsent(licensePlate,
+                            new ActiveVehicle((Long) row[1], (Long) row[2], (LocalDateTime) row[3]));
+                }
+            }
+            claimedWhileLoading.clear();
+            loaded = true;
+        }
+        log.info("Índice de placas activas reconstruido con {} vehículos", index.size());
+    }
+
+    /**
+     * Reserva la placa para un ingreso. La reserva se descarta si la
+     * transacción actual termina en rollback. El índice es de esta instancia:
+     * si no tiene la placa se consulta la base de datos (pudo ingresar por
+     * otra instancia) y si la tiene pero ya no está activa en la base de
+     * datos (salió por otra instancia) se reemplaza. El índice único de
+     * registros activos impide el ingreso simultáneo en dos instancias.
+     * @return false si la placa ya está en este u otro parqueadero
+     */
+    public boolean reserve(String licensePlate, Long parkingId) {
+        ActiveVehicle pending = new ActiveVehicle(null, parkingId, null);
+        ActiveVehicle existing = index.putIfAbsent(licensePlate, pending);
+        if (existing != null) {
+            if (existing.recordId() == null || isActiveInDatabase(licensePlate)
+                    || !index.replace(licensePlate, existing, pending)) {
+                return false;
+            }
+        } else if (isActiveInDatabase(licensePlate)) {
+            index.remove(licensePlate, pending);
+            return false;
+        }
+        runOnRollback(() -> index.remove(licensePlate, pending));
+        return true;
+    }
+
+    /**
+     * Descarta una reserva pendiente cuyo ingreso fue rechazado.
+     */
+    public void cancel(String licensePlate, Long parkingId) {
+        index.remove(licensePlate, new ActiveVehicle(null, parkingId, null));
+    }
+
+    /**
+     * Completa la reserva con el registro creado.
+     */
+    public void confirm(String licensePlate, ParkingRecord parkingRecord) {
+        ActiveVehicle confirmed = new ActiveVehicle(
+                parkingRecord.getId(), parkingRecord.getParking().getId(), parkingRecord.getEntryDateTime());
+        index.put(licensePlate, confirmed);
+        runOnRollback(() -> index.remove(licensePlate, confirmed));
+    }
+
+    /**
+     * Retira la placa del índice para registrar su salida del parqueadero
+     * indicado. Si la transacción actual termina en rollback, la placa se
+     * restaura.
+     */
+    public Optional<ActiveVehicle> claim(String licensePlate, Long parkingId) {
+        Optional<ActiveVehicle> active = find(licensePlate)
+                .filter(vehicle -> vehicle.parkingId().equals(parkingId));
+        if (active.isEmpty() || !remove(licensePlate, active.get())) {
+            return Optional.empty();
+        }
+        ActiveVehicle claimed = active.get();
+        runOnRollback(() -> index.putIfAbsent(licensePlate, claimed));
+        return active;
+    }
+
+    public Optional<ActiveVehicle> find(String licensePlate) {
+        if (!loaded) {
+            return parkingRecordRepository.findActiveByLicensePlate(licensePlate)
+                    .map(parkingRecord -> new ActiveVehicle(parkingRecord.getId(),
+                            parkingRecord.getParking().getId(), parkingRecord.getEntryDateTime()));
+        }
+        return Optional.ofNullable(index.get(licensePlate))
+                .filter(vehicle -> vehicle.recordId() != null);
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    private boolean isActiveInDatabase(String licensePlate) {
+        return parkingRecordRepository.findActiveByLicensePlate(licensePlate).isPresent();
+    }
+
+    private boolean remove(String licensePlate, ActiveVehicle vehicle) {
+        if (loaded) {
+            return index.remove(licensePlate, vehicle);
+        }
+        synchronized (this) {
+            if (loaded) {
+                return index.remove(licensePlate, vehicle);
+            }
+            // Aún cargando: la salida se validó contra la base de datos
+            claimedWhileLoading.add(licensePlate);
+            index.remove(licensePlate);
+            return true;
+        }
+    }
+
+    private void runOnRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+}
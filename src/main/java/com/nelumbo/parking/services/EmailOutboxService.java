@@ -0,0 +1,133 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.entities.EmailOutbox;
+import com.nelumbo.parking.entities.EmailOutbox.OutboxStatus;
+import com.nelumbo.parking.repositories.EmailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Bandeja de salida de notificaciones. Los correos se registran en la misma
+ * transacción del ingreso/salida y se envían después en lotes, con reintentos
+ * y espera exponencial entre intentos. Cada lote se reclama antes de enviarlo
+ * para que varios nodos no envíen el mismo correo.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxService {
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailService emailService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.email.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.backoff:5000}")
+    private long backoffMs;
+
+    @Value("${app.email.outbox.claim-timeout:60000}")
+    private long claimTimeoutMs;
+
+    public void enqueue(String email, String placa, String mensaje, String parqueaderoNombre) {
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutbox outbox = EmailOutbox.builder()
+                .email(email)
+                .licensePlate(placa)
+                .message(mensaje)
+                .parkingName(parqueaderoNombre)
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+        emailOutboxRepository.save(outbox);
+    }
+
+    /**
+     * Envía un lote de correos pendientes.
+     * @return cantidad de correos procesados en el lote
+     */
+    public int dispatchPending() {
+        List<EmailOutbox> batch = claimDue();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        for (EmailOutbox outbox : batch) {
+            boolean sent;
+            try {
+                sent = emailService.sendEmail(outbox.getEmail(), outbox.getLicensePlate(),
+                        outbox.getMessage(), outbox.getParkingName());
+            } catch (RuntimeException e) {
+                outbox.setLastError(truncate(e.getMessage()));
+                sent = false;
+            }
+            markAttempt(outbox, sent);
+        }
+
+        emailOutboxRepository.saveAll(batch);
+        return batch.size();
+    }
+
+    public void purgeSent(LocalDateTime before) {
+        emailOutboxRepository.deleteByStatusAndSentAtBefore(OutboxStatus.SENT, before);
+    }
+
+    /**
+     * Bloquea un lote vencido y adelanta su próximo intento durante el envío.
+     * Si el nodo se detiene antes de guardar el resultado, el lote vuelve a
+     * quedar disponible al vencer ese plazo.
+     */
+    private List<EmailOutbox> claimDue() {
+        List<EmailOutbox> batch = new TransactionTemplate(transactionManager).execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutbox> due = emailOutboxRepository.lockDue(now, batchSize);
+            LocalDateTime claimedUntil = now.plusNanos(claimTimeoutMs * 1_000_000);
+            if (!due.isEmpty()) {
+                due.forEach(outbox -> outbox.setNextAttemptAt(claimedUntil));
+                emailOutboxRepository.saveAll(due);
+            }
+            return due;
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= EmailOutbox.LAST_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, EmailOutbox.LAST_ERROR_LENGTH);
+    }
+
+    private void markAttempt(EmailOutbox outbox, boolean sent) {
+        LocalDateTime now = LocalDateTime.now();
+        int attempts = outbox.getAttempts() + 1;
+        outbox.setAttempts(attempts);
+
+        if (sent) {
+            outbox.setStatus(OutboxStatus.SENT);
+            outbox.setSentAt(now);
+        } else if (attempts >= maxAttempts) {
+            outbox.setStatus(OutboxStatus.FAILED);
+            log.error("Correo {} descartado tras {} intentos para la placa {}",
+                    outbox.getId(), attempts, outbox.getLicensePlate());
+        } else {
+            long delay = backoffMs * (1L << Math.min(attempts - 1, 16));
+            outbox.setNextAttemptAt(now.plusNanos(delay * 1_000_000));
+            log.warn("Envío de correo {} fallido (intento {}), se reintentará en {} ms",
+                    outbox.getId(), attempts, delay);
+        }
+    }
+}
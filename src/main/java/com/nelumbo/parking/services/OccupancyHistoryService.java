@@ -0,0 +1,338 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.entities.Parking;
+import com.nelumbo.parking.entities.ParkingOccupancySample;
+import com.nelumbo.parking.entities.ParkingOccupancySample.Resolution;
+import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingOccupancySampleRepository;
+import com.nelumbo.parking.repositories.ParkingRepository;
+import com.nelumbo.parking.utils.MinuteRingBuffer;
+import com.nelumbo.parking.utils.MinuteRingBuffer.Summary;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serie de ocupación por parqueadero. Cada minuto se toma la columna
+ * parkings.occupied en un buffer circular en memoria por parqueadero
+ * (app.occupancy.minute-retention minutos); al cerrar cada hora se guarda
+ * su resumen en parking_occupancy_samples y al cerrar cada día se resume el
+ * día desde sus horas, junto con los días anteriores que hayan quedado sin
+ * resumir (también en la primera muestra tras iniciar). Todos los nodos
+ * muestrean la misma columna: de cada hora se conserva el resumen con más
+ * muestras, sin sumar los de distintos nodos.
+ * Las consultas leen esos resúmenes y el buffer, nunca parking_records.
+ */
+@Service
+@Slf4j
+public class OccupancyHistoryService {
+
+    private static final int MAX_HOURLY_DAYS = 31;
+    private static final int MAX_DAILY_DAYS = 366;
+
+    private final ParkingRepository parkingRepository;
+    private final ParkingOccupancySampleRepository parkingOccupancySampleRepository;
+    private final int minuteRetention;
+    private final int hourlyRetentionDays;
+
+    private final Map<Long, MinuteRingBuffer> rings = new ConcurrentHashMap<>();
+    private LocalDateTime lastSample;
+
+    public OccupancyHistoryService(
+            ParkingRepository parkingRepository,
+            ParkingOccupancySampleRepository parkingOccupancySampleRepository,
+            @Value("${app.occupancy.minute-retention:1440}") int minuteRetention,
+            @Value("${app.occupancy.hourly-retention-days:180}") int hourlyRetentionDays
+    ) {
+        if (minuteRetention < 60) {
+            throw new IllegalArgumentException("app.occupancy.minute-retention debe ser de al menos 60 minutos");
+        }
+        this.parkingRepository = parkingRepository;
+        this.parkingOccupancySampleRepository = parkingOccupancySampleRepository;
+        this.minuteRetention = minuteRetention;
+        this.hourlyRetentionDays = hourlyRetentionDays;
+    }
+
+    /**
+     * Toma la muestra del minuto actual y guarda la hora (y el día) que se
+     * acaban de cerrar.
+     */
+    @Transactional
+    public void sample() {
+        sample(LocalDateTime.now());
+    }
+
+    synchronized void sample(LocalDateTime now) {
+        LocalDateTime minute = now.truncatedTo(ChronoUnit.MINUTES);
+        long epochMinute = epochMinute(minute);
+        Set<Long> parkingIds = new HashSet<>();
+        for (Object[] row : parkingRepository.findAllOccupied()) {
+            Long parkingId = (Long) row[0];
+            parkingIds.add(parkingId);
+            MinuteRingBuffer ring = rings.computeIfAbsent(parkingId, id -> new MinuteRingBuffer(minuteRetention));
+            synchronized (ring) {
+                ring.record(epochMinute, Math.max(0, ((Number) row[1]).intValue()));
+            }
+        }
+        // Parqueaderos eliminados
+        rings.keySet().retainAll(parkingIds);
+
+        LocalDateTime previous = lastSample;
+        lastSample = minute;
+        if (previous == null) {
+            // Tras un reinicio no se sabe qué días quedaron sin resumir
+            rollUpPendingDays(minute.toLocalDate());
+            return;
+        }
+        if (!previous.truncatedTo(ChronoUnit.HOURS).isBefore(minute.truncatedTo(ChronoUnit.HOURS))) {
+            return;
+        }
+        closeHour(previous.truncatedTo(ChronoUnit.HOURS));
+        if (previous.toLocalDate().isBefore(minute.toLocalDate())) {
+            closeDay(previous.toLocalDate(), minute.toLocalDate());
+        }
+    }
+
+    /**
+     * Ocupación del parqueadero en [from, to) por minuto, hora o día. El
+     * período en curso se completa con las muestras en memoria.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getOccupancy(Long parkingId, LocalDateTime from, LocalDateTime to, String step) {
+        Parking parking = findParking(parkingId);
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new ValidationException("Rango de fechas no válido");
+        }
+        String resolution = step != null ? step.toLowerCase() : "hour";
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Map<String, Object>> points = switch (resolution) {
+            case "minute" -> {
+                if (from.isBefore(now.minusMinutes(minuteRetention))) {
+                    throw new ValidationException("Las muestras por minuto solo cubren los últimos "
+                            + minuteRetention + " minutos");
+                }
+                yield minutePoints(parking, from, to);
+            }
+            case "hour" -> {
+                if (Duration.between(from, to).toDays() > MAX_HOURLY_DAYS) {
+                    throw new ValidationException("El rango por hora no puede superar " + MAX_HOURLY_DAYS + " días");
+                }
+                yield hourPoints(parking, from, to, now);
+            }
+            case "day" -> {
+                if (Duration.between(from, to).toDays() > MAX_DAILY_DAYS) {
+                    throw new ValidationException("El rango por día no puede superar " + MAX_DAILY_DAYS + " días");
+                }
+                yield dayPoints(parking, from, to, now);
+            }
+            default -> throw new ValidationException("Paso no válido. Use: minute, hour, day");
+        };
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("parkingId", parkingId);
+        result.put("capacidad", parking.getCapacity());
+        result.put("desde", from);
+        result.put("hasta", to);
+        result.put("paso", resolution);
+        result.put("puntos", points);
+        return result;
+    }
+
+    /**
+     * Ocupación promedio por día de la semana (1 = lunes) y hora del día,
+     * calculada desde los resúmenes por hora del rango.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getOccupancyHeatmap(Long parkingId, LocalDate startDate, LocalDate endDate) {
+        Parking parking = findParking(parkingId);
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new ValidationException("Rango de fechas no válido");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) >= MAX_DAILY_DAYS) {
+            throw new ValidationException("El rango no puede superar " + MAX_DAILY_DAYS + " días");
+        }
+
+        Summary[][] cells = new Summary[7][24];
+        for (Object[] row : parkingOccupancySampleRepository.sumByHourOfWeek(parkingId,
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+            cells[((Number) row[0]).intValue() - 1][((Number) row[1]).intValue()] = new Summary(
+                    ((Number) row[2]).longValue(), ((Number) row[3]).longValue(),
+                    ((Number) row[4]).intValue(), ((Number) row[5]).intValue());
+        }
+
+        List<Map<String, Object>> heatmap = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            for (int hour = 0; hour < 24; hour++) {
+                Map<String, Object> cell = new HashMap<>();
+                cell.put("diaSemana", day + 1);
+                cell.put("hora", hour);
+                heatmap.add(toPoint(cell, cells[day][hour] != null ? cells[day][hour] : Summary.EMPTY, parking));
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("parkingId", parkingId);
+        result.put("capacidad", parking.getCapacity());
+        result.put("fechaInicio", startDate);
+        result.put("fechaFin", endDate);
+        result.put("celdas", heatmap);
+        return result;
+    }
+
+    private List<Map<String, Object>> minutePoints(Parking parking, LocalDateTime from, LocalDateTime to) {
+        List<Map<String, Object>> points = new ArrayList<>();
+        MinuteRingBuffer ring = rings.get(parking.getId());
+        if (ring == null) {
+            return points;
+        }
+        LocalDateTime start = from.truncatedTo(ChronoUnit.MINUTES);
+        if (start.isBefore(from)) {
+            start = start.plusMinutes(1);
+        }
+        synchronized (ring) {
+            for (LocalDateTime minute = start; minute.isBefore(to); minute = minute.plusMinutes(1)) {
+                int occupied = ring.get(epochMinute(minute));
+                if (occupied != MinuteRingBuffer.MISSING) {
+                    points.add(toPoint(Map.of("periodo", minute), Summary.EMPTY.add(occupied), parking));
+                }
+            }
+        }
+        return points;
+    }
+
+    private List<Map<String, Object>> hourPoints(Parking parking, LocalDateTime from, LocalDateTime to,
+                                                 LocalDateTime now) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.HOURS);
+        List<Map<String, Object>> points = new ArrayList<>();
+        List<ParkingOccupancySample> hours = parkingOccupancySampleRepository.findBuckets(
+                parking.getId(), Resolution.HOUR, start, to);
+        for (ParkingOccupancySample hour : hours) {
+            points.add(toPoint(Map.of("periodo", hour.getBucketStart()), toSummary(hour), parking));
+        }
+
+        LocalDateTime currentHour = now.truncatedTo(ChronoUnit.HOURS);
+        boolean stored = !hours.isEmpty() && hours.getLast().getBucketStart().equals(currentHour);
+        if (!stored && !currentHour.isBefore(start) && currentHour.isBefore(to)) {
+            Summary summary = openHour(parking.getId(), currentHour, now);
+            if (!summary.isEmpty()) {
+                points.add(toPoint(Map.of("periodo", currentHour), summary, parking));
+            }
+        }
+        return points;
+    }
+
+    private List<Map<String, Object>> dayPoints(Parking parking, LocalDateTime from, LocalDateTime to,
+                                                LocalDateTime now) {
+        LocalDateTime start = from.truncatedTo(ChronoUnit.DAYS);
+        List<Map<String, Object>> points = new ArrayList<>();
+        List<ParkingOccupancySample> days = parkingOccupancySampleRepository.findBuckets(
+                parking.getId(), Resolution.DAY, start, to);
+        for (ParkingOccupancySample day : days) {
+            points.add(toPoint(Map.of("periodo", day.getBucketStart()), toSummary(day), parking));
+        }
+
+        // El día en curso se arma con sus horas cerradas y la hora abierta
+        LocalDateTime today = now.truncatedTo(ChronoUnit.DAYS);
+        boolean stored = !days.isEmpty() && days.getLast().getBucketStart().equals(today);
+        if (!stored && !today.isBefore(start) && today.isBefore(to)) {
+            LocalDateTime currentHour = now.truncatedTo(ChronoUnit.HOURS);
+            Summary summary = openHour(parking.getId(), currentHour, now);
+            for (ParkingOccupancySample hour : parkingOccupancySampleRepository.findBuckets(
+                    parking.getId(), Resolution.HOUR, today, currentHour)) {
+                summary = summary.merge(toSummary(hour));
+            }
+            if (!summary.isEmpty()) {
+                points.add(toPoint(Map.of("periodo", today), summary, parking));
+            }
+        }
+        return points;
+    }
+
+    private void closeHour(LocalDateTime hourStart) {
+        long fromMinute = epochMinute(hourStart);
+        int stored = 0;
+        for (Map.Entry<Long, MinuteRingBuffer> entry : rings.entrySet()) {
+            Summary summary;
+            synchronized (entry.getValue()) {
+                summary = entry.getValue().summarize(fromMinute, fromMinute + 60);
+            }
+            if (!summary.isEmpty()) {
+                parkingOccupancySampleRepository.upsertHour(entry.getKey(), hourStart,
+                        summary.sum(), summary.samples(), summary.min(), summary.max());
+                stored++;
+            }
+        }
+        log.debug("Ocupación de la hora {} guardada para {} parqueaderos", hourStart, stored);
+    }
+
+    private void closeDay(LocalDate day, LocalDate today) {
+        int stored = parkingOccupancySampleRepository.rollUpDay(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        rollUpPendingDays(today);
+        int purged = parkingOccupancySampleRepository.deleteByResolutionAndBucketStartBefore(
+                Resolution.HOUR, day.minusDays(hourlyRetentionDays).atStartOfDay());
+        log.info("Ocupación del día {} resumida para {} parqueaderos; {} resúmenes por hora depurados",
+                day, stored, purged);
+    }
+
+    // Días cerrados con horas guardadas y sin resumen diario (reinicios, ticks perdidos)
+    private void rollUpPendingDays(LocalDate today) {
+        int stored = parkingOccupancySampleRepository.rollUpPendingDays(today.atStartOfDay());
+        if (stored > 0) {
+            log.info("Ocupación de días anteriores resumida: {} resúmenes diarios pendientes", stored);
+        }
+    }
+
+    private Summary openHour(Long parkingId, LocalDateTime currentHour, LocalDateTime now) {
+        MinuteRingBuffer ring = rings.get(parkingId);
+        if (ring == null) {
+            return Summary.EMPTY;
+        }
+        synchronized (ring) {
+            return ring.summarize(epochMinute(currentHour), epochMinute(now.truncatedTo(ChronoUnit.MINUTES)) + 1);
+        }
+    }
+
+    private Parking findParking(Long parkingId) {
+        return parkingRepository.findCachedById(parkingId)
+                .orElseThrow(() -> new ValidationException("Parqueadero no encontrado"));
+    }
+
+    private static Summary toSummary(ParkingOccupancySample sample) {
+        return new Summary(sample.getOccupiedSum(), sample.getSamples(),
+                sample.getMinOccupied(), sample.getMaxOccupied());
+    }
+
+    private static Map<String, Object> toPoint(Map<String, Object> fields, Summary summary, Parking parking) {
+        Map<String, Object> point = new HashMap<>(fields);
+        point.put("muestras", summary.samples());
+        if (summary.isEmpty()) {
+            return point;
+        }
+        point.put("promedio", Math.round(summary.average() * 100) / 100.0);
+        point.put("minimo", summary.min());
+        point.put("maximo", summary.max());
+        if (parking.getCapacity() != null && parking.getCapacity() > 0) {
+            point.put("porcentajePromedio", Math.round(summary.average() * 10000 / parking.getCapacity()) / 100.0);
+        }
+        return point;
+    }
+
+    private static long epochMinute(LocalDateTime minute) {
+        return minute.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+}
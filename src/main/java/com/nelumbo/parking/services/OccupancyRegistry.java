@@ -0,0 +1,274 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.repositories.ParkingRecordRepository;
+import com.nelumbo.parking.repositories.ParkingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Contadores de ocupación en memoria por parqueadero.
+ * La admisión la decide la columna parkings.occupied con un UPDATE
+ * condicional; estos contadores la reflejan para consultas sin ir a la base
+ * de datos y se reconcilian periódicamente con ella. La columna solo se
+ * corrige con la fila del parqueadero bloqueada, para no borrar reservas de
+ * ingresos que aún no confirman en este u otro nodo.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OccupancyRegistry {
+
+    private final ParkingRecordRepository parkingRecordRepository;
+    private final ParkingRepository parkingRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Registra un cupo ocupado. Si la transacción actual termina en rollback,
+     * el cupo se libera automáticamente.
+     */
+    public void occupy(Long parkingId) {
+        Counter counter = counterFor(parkingId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.add(1);
+            return;
+        }
+        counter.begin(1);
+        runAfterCompletion(committed -> counter.complete(committed ? 0 : -1));
+    }
+
+    /**
+     * Libera un cupo cuando la transacción actual confirma la salida.
+     */
+    public void release(Long parkingId) {
+        Counter counter = counterFor(parkingId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            counter.add(-1);
+            return;
+        }
+        counter.begin(0);
+        runAfterCompletion(committed -> counter.complete(committed ? -1 : 0));
+    }
+
+    public int getOccupancy(Long parkingId) {
+        return counterFor(parkingId).get();
+    }
+
+    public void remove(Long parkingId) {
+        counters.remove(parkingId);
+    }
+
+    /**
+     * Carga desde la base de datos los contadores que aún no existen. Los
+     * contadores creados por ingresos o salidas atendidos antes de la carga
+     * se conservan. La columna de ocupación no se modifica aquí.
+     */
+    public void seedFromDatabase() {
+        Map<Long, Long> dbCounts = loadRecordCounts();
+        dbCounts.forEach((parkingId, count) -> counters.computeIfAbsent(parkingId, id -> new Counter(count.intValue())));
+        log.info("Contadores de ocupación inicializados para {} parqueaderos", dbCounts.size());
+    }
+
+    /**
+     * Ajusta los contadores y la columna de ocupación al conteo real de
+     * registros activos. Un contador solo se corrige si no tiene
+     * transacciones en curso y no cambió mientras se contaba en la base de
+     * datos; si no, se revisa en la siguiente pasada. La columna se vuelve a
+     * contar con la fila bloqueada antes de corregirla (ver repairColumn).
+     * @return cantidad de parqueaderos que estaban desfasados
+     */
+    public int reconcile() {
+        // Las versiones se toman antes del conteo para detectar cambios durante la consulta
+        Map<Long, Long> versions = new HashMap<>();
+        counters.forEach((parkingId, counter) -> {
+            long version = counter.stableVersion();
+            if (version >= 0) {
+                versions.put(parkingId, version);
+            }
+        });
+        Map<Long, Long> dbCounts = loadRecordCounts();
+        Map<Long, Long> columns = loadColumns();
+
+        TreeSet<Long> parkingIds = new TreeSet<>(versions.keySet());
+        parkingIds.addAll(columns.keySet());
+
+        int corrected = 0;
+        for (Long parkingId : parkingIds) {
+            long dbCount = dbCounts.getOrDefault(parkingId, 0L);
+            long column = columns.getOrDefault(parkingId, 0L);
+            Counter counter = counters.get(parkingId);
+            Long version = versions.get(parkingId);
+            int previous = counter != null && version != null
+                    ? counter.resetIfUnchanged(version, (int) dbCount)
+                    : (int) dbCount;
+            boolean counterDrift = previous >= 0 && previous != dbCount;
+            boolean columnDrift = column != dbCount && repairColumn(parkingId);
+
+            if (counterDrift || columnDrift) {
+                log.warn("Ocupación desfasada en parqueadero {}: contador={}, columna={}, base de datos={}",
+                        parkingId, previous, column, dbCount);
+                corrected++;
+            }
+        }
+        return corrected;
+    }
+
+    /**
+     * Compara cada contador en memoria y la columna de ocupación con el conteo
+     * de registros activos en la base de datos.
+     */
+    public List<Map<String, Object>> getDrift() {
+        Map<Long, Long> dbCounts = loadRecordCounts();
+        Map<Long, Long> columns = loadColumns();
+        Map<Long, Long> memoryCounts = new HashMap<>();
+        counters.forEach((parkingId, counter) -> memoryCounts.put(parkingId, (long) counter.get()));
+
+        TreeSet<Long> parkingIds = new TreeSet<>(columns.keySet());
+        parkingIds.addAll(memoryCounts.keySet());
+        parkingIds.addAll(dbCounts.keySet());
+
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Long parkingId : parkingIds) {
+            long memory = memoryCounts.getOrDefault(parkingId, 0L);
+            long db = dbCounts.getOrDefault(parkingId, 0L);
+            Map<String, Object> drift = new HashMap<>();
+            drift.put("parkingId", parkingId);
+            drift.put("contador", memory);
+            drift.put("columna", columns.getOrDefault(parkingId, 0L));
+            drift.put("baseDatos", db);
+            drift.put("diferencia", memory - db);
+            result.add(drift);
+        }
+        return result;
+    }
+
+    private Counter counterFor(Long parkingId) {
+        return counters.computeIfAbsent(parkingId, id -> {
+            Long count = parkingRecordRepository.countActiveByParkingId(id);
+            return new Counter(count != null ? count.intValue() : 0);
+        });
+    }
+
+    private Map<Long, Long> loadRecordCounts() {
+        Map<Long, Long> dbCounts = new HashMap<>();
+        for (Object[] row : parkingRecordRepository.countActiveGroupedByParking()) {
+            dbCounts.put((Long) row[0], (Long) row[1]);
+        }
+        return dbCounts;
+    }
+
+    /**
+     * Corrige la columna de ocupación de un parqueadero en su propia
+     * transacción. Con la fila bloqueada, los ingresos y salidas que ya
+     * tocaron la columna terminaron y los nuevos esperan, así el conteo de
+     * registros activos coincide con lo que la columna debería tener.
+     * @return true si la columna estaba desfasada y se corrigió
+     */
+    private boolean repairColumn(Long parkingId) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Boolean repaired = transaction.execute(status -> {
+            Integer column = parkingRepository.lockOccupied(parkingId);
+            if (column == null) {
+                return false;
+            }
+            Long count = parkingRecordRepository.countActiveByParkingId(parkingId);
+            int active = count != null ? count.intValue() : 0;
+            if (column == active) {
+                return false;
+            }
+            parkingRepository.setOccupied(parkingId, active);
+            return true;
+        });
+        return Boolean.TRUE.equals(repaired);
+    }
+
+    private Map<Long, Long> loadColumns() {
+        Map<Long, Long> columns = new HashMap<>();
+        for (Object[] row : parkingRepository.findAllOccupied()) {
+            columns.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return columns;
+    }
+
+    private void runAfterCompletion(Consumer<Boolean> action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                action.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * Ocupación de un parqueadero con la cantidad de transacciones que aún
+     * pueden modificarla. La versión cambia con cada operación para que la
+     * reconciliación no pise cambios hechos mientras consultaba la base de
+     * datos.
+     */
+    private static final class Counter {
+
+        private int value;
+        private int inFlight;
+        private long version;
+
+        Counter(int value) {
+            this.value = value;
+        }
+
+        synchronized int get() {
+            return value;
+        }
+
+        synchronized void add(int delta) {
+            value = Math.max(0, value + delta);
+            version++;
+        }
+
+        synchronized void begin(int delta) {
+            value = Math.max(0, value + delta);
+            inFlight++;
+            version++;
+        }
+
+        synchronized void complete(int delta) {
+            value = Math.max(0, value + delta);
+            inFlight--;
+            version++;
+        }
+
+        /**
+         * @return la versión actual, o -1 si hay transacciones en curso
+         */
+        synchronized long stableVersion() {
+            return inFlight == 0 ? version : -1;
+        }
+
+        /**
+         * Reemplaza el valor si la versión no cambió desde stableVersion().
+         * @return el valor anterior, o -1 si no se reemplazó
+         */
+        synchronized int resetIfUnchanged(long expectedVersion, int newValue) {
+            if (inFlight != 0 || version != expectedVersion) {
+                return -1;
+            }
+            int previous = value;
+            value = newValue;
+            version++;
+            return previous;
+        }
+    }
+}
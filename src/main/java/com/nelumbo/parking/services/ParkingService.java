@@ -1,16 +1,21 @@
 package com.nelumbo.parking.services;
 
+import com.nelumbo.parking.config.CacheConfig;
 import com.nelumbo.parking.dto.ParkingRequest;
+import com.nelumbo.parking.dto.ParkingResponse;
 import com.nelumbo.parking.entities.Parking;
 import com.nelumbo.parking.entities.User;
 import com.nelumbo.parking.enums.Role;
 import com.nelumbo.parking.exceptions.ValidationException;
 import com.nelumbo.parking.repositories.ParkingRepository;
 import com.nelumbo.parking.repositories.UserRepository;
+import com.nelumbo.parking.utils.Money;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -18,8 +23,11 @@ public class ParkingService {
     
     private final ParkingRepository parkingRepository;
     private final UserRepository userRepository;
+    private final OccupancyRegistry occupancyRegistry;
+    private final ReportResultCache reportResultCache;
+    private final TopVehicleTracker topVehicleTracker;
     
-    public Parking createParking(ParkingRequest request) {
+    public ParkingResponse createParking(ParkingRequest request) {
         
         if (parkingRepository.existsByName(request.getName())) {
             throw new ValidationException("Ya existe un parqueadero con ese nombre");
@@ -39,24 +47,27 @@ public class ParkingService {
         Parking parking = Parking.builder()
                 .name(request.getName())
                 .capacity(request.getCapacity())
-                .hourlyRate(request.getHourlyRate())
+                .hourlyRate(Money.toMinor(request.getHourlyRate()))
                 .partner(partner)  
                 .build();
         
-        return parkingRepository.save(parking);
+        Parking saved = parkingRepository.save(parking);
+        reportResultCache.invalidateParkingDefinitions(List.of(saved.getId()));
+        return ParkingResponse.from(saved);
     }
     
-    public Parking getParkingById(Long id) {
-        return parkingRepository.findById(id)
+    public ParkingResponse getParkingById(Long id) {
+        return parkingRepository.findResponseById(id)
                 .orElseThrow(() -> new ValidationException("Parqueadero no encontrado"));
     }
     
-    public List<Parking> getAllParkings() {
-        return parkingRepository.findAll();
+    public List<ParkingResponse> getAllParkings() {
+        return parkingRepository.findAllResponses();
     }
     
-    public Parking updateParking(Long id, ParkingRequest request) {
-        Parking existingParking = getParkingById(id);
+    @CacheEvict(cacheNames = CacheConfig.PARKING_CACHE, key = "#id")
+    public ParkingResponse updateParking(Long id, ParkingRequest request) {
+        Parking existingParking = findParking(id);
         
         
         if (!existingParking.getName().equals(request.getName()) && 
@@ -74,29 +85,36 @@ public class ParkingService {
         
         existingParking.setName(request.getName());
         existingParking.setCapacity(request.getCapacity());
-        existingParking.setHourlyRate(request.getHourlyRate());
+        existingParking.setHourlyRate(Money.toMinor(request.getHourlyRate()));
         existingParking.setPartner(partner);
         
-        return parkingRepository.save(existingParking);
+        Parking saved = parkingRepository.save(existingParking);
+        reportResultCache.invalidateParkingDefinitions(List.of(id));
+        return ParkingResponse.from(saved);
     }
     
+    @CacheEvict(cacheNames = CacheConfig.PARKING_CACHE, key = "#id")
     public void deleteParking(Long id) {
-        Parking parking = getParkingById(id);
+        Parking parking = findParking(id);
         parkingRepository.delete(parking);
+        occupancyRegistry.remove(id);
+        topVehicleTracker.removeParking(id);
+        reportResultCache.invalidateParkingDefinitions(List.of(id));
     }
     
-    public List<Parking> getParkingsByPartner(Long partnerId) {
-        return parkingRepository.findByPartnerId(partnerId);
+    public List<ParkingResponse> getParkingsByPartner(Long partnerId) {
+        return parkingRepository.findResponsesByPartnerId(partnerId);
     }
     
-    public List<Parking> getParkingsByPartnerEmail(String partnerEmail) {
-        return parkingRepository.findByPartnerEmail(partnerEmail);
+    public List<ParkingResponse> getParkingsByPartnerEmail(String partnerEmail) {
+        return parkingRepository.findResponsesByPartnerEmail(partnerEmail);
     }
     
 
-    public Parking associatePartnerToParking(Long parkingId, Long partnerId) {
+    @CacheEvict(cacheNames = CacheConfig.PARKING_CACHE, key = "#parkingId")
+    public ParkingResponse associatePartnerToParking(Long parkingId, Long partnerId) {
        
-        Parking parking = getParkingById(parkingId);
+        Parking parking = findParking(parkingId);
         
         
         User partner = userRepository.findById(partnerId)
@@ -109,29 +127,37 @@ public class ParkingService {
         
         parking.setPartner(partner);
         
-        return parkingRepository.save(parking);
+        return ParkingResponse.from(parkingRepository.save(parking));
     }
     
     
-    public Parking removePartnerFromParking(Long parkingId) {
-        Parking parking = getParkingById(parkingId);
+    @CacheEvict(cacheNames = CacheConfig.PARKING_CACHE, key = "#parkingId")
+    public ParkingResponse removePartnerFromParking(Long parkingId) {
+        Parking parking = findParking(parkingId);
         
         // Desasociar el socio del parqueadero
         parking.setPartner(null);
         
-        return parkingRepository.save(parking);
+        return ParkingResponse.from(parkingRepository.save(parking));
     }
     
     
     public boolean hasPartner(Long parkingId) {
-        Parking parking = getParkingById(parkingId);
-        return parking.getPartner() != null;
+        return getParkingById(parkingId).partnerId() != null;
+    }
+    
+    
+    public List<ParkingResponse> getParkingsWithoutPartner() {
+        return parkingRepository.findResponsesWithoutPartner();
     }
     
     
-    public List<Parking> getParkingsWithoutPartner() {
-        return parkingRepository.findAll().stream()
-                .filter(parking -> parking.getPartner() == null)
-                .toList();
+    public List<Map<String, Object>> getOccupancyDrift() {
+        return occupancyRegistry.getDrift();
+    }
+    
+    private Parking findParking(Long id) {
+        return parkingRepository.findById(id)
+                .orElseThrow(() -> new ValidationException("Parqueadero no encontrado"));
     }
 }
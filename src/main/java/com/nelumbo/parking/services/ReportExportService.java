@@ -0,0 +1,502 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.dto.EarningsDetailRow;
+import com.nelumbo.parking.entities.ParkingDailyRollup;
+import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingDailyRollupRepository;
+import com.nelumbo.parking.repositories.ParkingVehicleVisitRepository;
+import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import com.nelumbo.parking.utils.CsvWriter;
+import com.nelumbo.parking.utils.Money;
+import com.nelumbo.parking.utils.PdfTableWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Exportación de reportes en CSV y PDF. Cada método valida los parámetros
+ * antes de devolver el cuerpo de la respuesta, y el cuerpo se escribe fila
+ * por fila desde un cursor de base de datos dentro de una transacción de solo
+ * lectura, sin armar el reporte completo en memoria.
+ * Los PDF se generan en un pool acotado propio (app.report.pdf.*) hacia un
+ * archivo temporal, para no ocupar los hilos de Tomcat mientras se renderizan.
+ */
+@Service
+@Slf4j
+public class ReportExportService {
+
+    private static final String[] DETAIL_HEADER = {"parkingId", "placa", "entrada", "salida", "costo"};
+    private static final String[] PDF_DETAIL_HEADER = {"Parqueadero", "Placa", "Entrada", "Salida", "Costo"};
+    private static final String[] PDF_TOP_HEADER = {"Placa", "Registros"};
+
+    private final VehicleHistoryRepository vehicleHistoryRepository;
+    private final ParkingDailyRollupRepository parkingDailyRollupRepository;
+    private final ParkingVehicleVisitRepository parkingVehicleVisitRepository;
+    private final ReportService reportService;
+    private final UniqueVehicleService uniqueVehicleService;
+    private final OccupancyHistoryService occupancyHistoryService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final boolean exportEnabled;
+    private final int maxDaysRange;
+    private final ThreadPoolExecutor renderExecutor;
+
+    @FunctionalInterface
+    interface ReportContent<W> {
+        void write(W writer) throws IOException;
+    }
+
+    public ReportExportService(
+            VehicleHistoryRepository vehicleHistoryRepository,
+            ParkingDailyRollupRepository parkingDailyRollupRepository,
+            ParkingVehicleVisitRepository parkingVehicleVisitRepository,
+            ReportService reportService,
+            UniqueVehicleService uniqueVehicleService,
+            OccupancyHistoryService occupancyHistoryService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.report.enable-export:true}") boolean exportEnabled,
+            @Value("${app.report.max-days-range:366}") int maxDaysRange,
+            @Value("${app.report.pdf.workers:2}") int pdfWorkers,
+            @Value("${app.report.pdf.queue-capacity:10}") int pdfQueueCapacity
+    ) {
+        this.vehicleHistoryRepository = vehicleHistoryRepository;
+        this.parkingDailyRollupRepository = parkingDailyRollupRepository;
+        this.parkingVehicleVisitRepository = parkingVehicleVisitRepository;
+        this.reportService = reportService;
+        this.uniqueVehicleService = uniqueVehicleService;
+        this.occupancyHistoryService = occupancyHistoryService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.exportEnabled = exportEnabled;
+        this.maxDaysRange = maxDaysRange;
+        this.renderExecutor = new ThreadPoolExecutor(pdfWorkers, pdfWorkers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(pdfQueueCapacity),
+                Thread.ofPlatform().name("report-pdf-", 0).daemon().factory());
+    }
+
+    public StreamingResponseBody topVehiclesAllParkingsCsv(int limit) {
+        validateExport();
+        validateLimit(limit);
+
+        return csv(csv -> {
+            csv.writeRow("placa", "totalRegistros");
+            writeTopRows(csv, vehicleHistoryRepository.findTopPlates(PageRequest.of(0, limit)).stream());
+        });
+    }
+
+    public StreamingResponseBody topVehiclesByParkingCsv(Long parkingId, int limit) {
+        validateExport();
+        validateLimit(limit);
+        reportService.validateParkingExists(parkingId);
+
+        return csv(csv -> {
+            csv.writeRow("placa", "totalRegistros");
+            writeTopRows(csv, vehicleHistoryRepository.findTopPlatesByParkingId(parkingId, PageRequest.of(0, limit)).stream());
+        });
+    }
+
+    /**
+     * Vehículos con una sola visita; con from/to solo los que visitaron en ese rango.
+     */
+    public StreamingResponseBody firstTimeVehiclesCsv(Long parkingId, LocalDate from, LocalDate to) {
+        validateExport();
+        reportService.validateParkingExists(parkingId);
+        ReportService.validateVisitRange(from, to);
+
+        return csv(csv -> {
+            csv.writeRow("placa", "totalVisitas");
+            try (Stream<String> plates = from == null
+                    ? parkingVehicleVisitRepository.streamFirstTimePlatesByParkingId(parkingId)
+                    : parkingVehicleVisitRepository.streamFirstTimePlatesByParkingIdAndVisitBetween(
+                            parkingId, from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+                Iterator<String> iterator = plates.iterator();
+                while (iterator.hasNext()) {
+                    csv.writeRow(iterator.next(), 1L);
+                }
+            }
+        });
+    }
+
+    public StreamingResponseBody returningVehiclesCsv(Long parkingId, long minVisits) {
+        validateExport();
+        reportService.validateParkingExists(parkingId);
+        ReportService.validateMinVisits(minVisits);
+
+        return csv(csv -> {
+            csv.writeRow("placa", "totalVisitas", "primeraVisita", "ultimaVisita");
+            try (Stream<Object[]> rows = parkingVehicleVisitRepository.streamReturningByParkingId(parkingId, minVisits)) {
+                Iterator<Object[]> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    csv.writeRow(row[0], row[1], row[2], row[3]);
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    public StreamingResponseBody visitFrequencyCsv(Long parkingId) {
+        validateExport();
+        Map<String, Object> frequency = reportService.getVisitFrequencyByParking(parkingId);
+
+        return mapRowsCsv(new String[]{"visitas", "vehiculos"},
+                (List<Map<String, Object>>) frequency.get("histograma"));
+    }
+
+    /**
+     * Una fila con la estimación del rango o, si se agrupa, una por período.
+     */
+    @SuppressWarnings("unchecked")
+    public StreamingResponseBody uniqueVehiclesCsv(List<Long> parkingIds, LocalDate startDate, LocalDate endDate,
+                                                   String groupBy) {
+        validateExport();
+        Map<String, Object> estimate = uniqueVehicleService.getUniqueVehicles(parkingIds, startDate, endDate, groupBy);
+
+        if (estimate.containsKey("detalle")) {
+            return mapRowsCsv(new String[]{"periodo", "vehiculosUnicos", "margenError95", "minimo", "maximo"},
+                    (List<Map<String, Object>>) estimate.get("detalle"));
+        }
+        return mapRowsCsv(new String[]{"fechaInicio", "fechaFin", "vehiculosUnicos", "margenError95", "minimo", "maximo"},
+                List.of(estimate));
+    }
+
+    @SuppressWarnings("unchecked")
+    public StreamingResponseBody occupancyCsv(Long parkingId, LocalDateTime from, LocalDateTime to, String step) {
+        validateExport();
+        Map<String, Object> occupancy = occupancyHistoryService.getOccupancy(parkingId, from, to, step);
+
+        return mapRowsCsv(new String[]{"periodo", "muestras", "promedio", "minimo", "maximo", "porcentajePromedio"},
+                (List<Map<String, Object>>) occupancy.get("puntos"));
+    }
+
+    @SuppressWarnings("unchecked")
+    public StreamingResponseBody occupancyHeatmapCsv(Long parkingId, LocalDate startDate, LocalDate endDate) {
+        validateExport();
+        Map<String, Object> heatmap = occupancyHistoryService.getOccupancyHeatmap(parkingId, startDate, endDate);
+
+        return mapRowsCsv(new String[]{"diaSemana", "hora", "muestras", "promedio", "minimo", "maximo", "porcentajePromedio"},
+                (List<Map<String, Object>>) heatmap.get("celdas"));
+    }
+
+    /**
+     * Totales por día del período, leídos de parking_daily_rollup.
+     */
+    public StreamingResponseBody earningsByPeriodCsv(Long parkingId, String period) {
+        validateExport();
+        reportService.validateParkingExists(parkingId);
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = ReportService.periodStartDate(period, endDate);
+
+        return csv(csv -> {
+            csv.writeRow("parkingId", "fecha", "totalVehiculos", "gananciasTotales", "permanenciaPromedioMinutos");
+            for (ParkingDailyRollup day : parkingDailyRollupRepository
+                    .findByParkingIdAndRollupDateBetweenOrderByRollupDate(parkingId, startDate, endDate)) {
+                long vehicles = day.getVehicleCount();
+                csv.writeRow(parkingId, day.getRollupDate(), vehicles, Money.toDecimal(day.getRevenue()),
+                        vehicles > 0 ? day.getTotalDwellMinutes() / vehicles : 0L);
+            }
+        });
+    }
+
+    public StreamingResponseBody earningsByParkingAndDateCsv(Long parkingId, LocalDate date) {
+        validateExport();
+        reportService.validateParkingExists(parkingId);
+
+        return csv(csv -> {
+            csv.writeRow((Object[]) DETAIL_HEADER);
+            try (Stream<EarningsDetailRow> rows = vehicleHistoryRepository.streamDetailByParkingIdAndExitDateTimeBetween(
+                    parkingId, date.atStartOfDay(), date.atTime(23, 59, 59))) {
+                writeDetailRows(csv, rows);
+            }
+        });
+    }
+
+    /**
+     * Ganancias de todos los parqueaderos entre dos fechas (ambas inclusive):
+     * totales por parqueadero y día, o una fila por salida si se pide el detalle.
+     */
+    public StreamingResponseBody allParkingsEarningsCsv(LocalDate startDate, LocalDate endDate, boolean includeDetail) {
+        validateExport();
+        validateRange(startDate, endDate);
+
+        if (includeDetail) {
+            return csv(csv -> {
+                csv.writeRow((Object[]) DETAIL_HEADER);
+                try (Stream<EarningsDetailRow> rows = vehicleHistoryRepository.streamDetailByExitDateTimeBetween(
+                        startDate.atStartOfDay(), endDate.atTime(23, 59, 59))) {
+                    writeDetailRows(csv, rows);
+                }
+            });
+        }
+        return csv(csv -> {
+            csv.writeRow("fecha", "parkingId", "nombre", "totalVehiculos", "gananciasTotales");
+            try (Stream<Object[]> rows = parkingDailyRollupRepository.streamDailyTotalsForAllParkings(startDate, endDate)) {
+                Iterator<Object[]> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    csv.writeRow(row[0], row[1], row[2], row[3], Money.toDecimal((Long) row[4]));
+                }
+            }
+        });
+    }
+
+    public StreamingResponseBody generalStatisticsCsv() {
+        validateExport();
+        Map<String, Object> stats = reportService.getGeneralStatistics();
+
+        String[] columns = {"fecha", "totalParqueaderos", "vehiculosRegistradosHoy", "gananciasHoy", "vehiculosEstacionados"};
+        return out -> {
+            CsvWriter csv = new CsvWriter(out);
+            csv.writeRow((Object[]) columns);
+            Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = stats.get(columns[i]);
+            }
+            csv.writeRow(values);
+            csv.flush();
+        };
+    }
+
+    public StreamingResponseBody topVehiclesAllParkingsPdf(int limit) {
+        validateExport();
+        validateLimit(limit);
+
+        return pdf("Vehículos más frecuentes", "Todos los parqueaderos", PDF_TOP_HEADER, pdf -> {
+            writeTopRows(pdf, vehicleHistoryRepository.findTopPlates(PageRequest.of(0, limit)).stream());
+        });
+    }
+
+    public StreamingResponseBody topVehiclesByParkingPdf(Long parkingId, int limit) {
+        validateExport();
+        validateLimit(limit);
+        reportService.validateParkingExists(parkingId);
+
+        return pdf("Vehículos más frecuentes", "Parqueadero " + parkingId, PDF_TOP_HEADER, pdf -> {
+            writeTopRows(pdf, vehicleHistoryRepository.findTopPlatesByParkingId(parkingId, PageRequest.of(0, limit)).stream());
+        });
+    }
+
+    public StreamingResponseBody earningsByParkingAndDatePdf(Long parkingId, LocalDate date) {
+        validateExport();
+        reportService.validateParkingExists(parkingId);
+
+        return pdf("Ganancias del parqueadero " + parkingId, "Fecha: " + date, PDF_DETAIL_HEADER, pdf -> {
+            try (Stream<EarningsDetailRow> rows = vehicleHistoryRepository.streamDetailByParkingIdAndExitDateTimeBetween(
+                    parkingId, date.atStartOfDay(), date.atTime(23, 59, 59))) {
+                writeDetailRows(pdf, rows);
+            }
+        });
+    }
+
+    /**
+     * PDF de ganancias de todos los parqueaderos entre dos fechas: totales por
+     * parqueadero y día, o una fila por salida si se pide el detalle.
+     */
+    public StreamingResponseBody allParkingsEarningsPdf(LocalDate startDate, LocalDate endDate, boolean includeDetail) {
+        validateExport();
+        validateRange(startDate, endDate);
+        String subtitle = "Del " + startDate + " al " + endDate;
+
+        if (includeDetail) {
+            return pdf("Ganancias de todos los parqueaderos", subtitle, PDF_DETAIL_HEADER, pdf -> {
+                try (Stream<EarningsDetailRow> rows = vehicleHistoryRepository.streamDetailByExitDateTimeBetween(
+                        startDate.atStartOfDay(), endDate.atTime(23, 59, 59))) {
+                    writeDetailRows(pdf, rows);
+                }
+            });
+        }
+        String[] header = {"Fecha", "Parqueadero", "Nombre", "Vehículos", "Ganancias"};
+        return pdf("Ganancias de todos los parqueaderos", subtitle, header, pdf -> {
+            long totalVehicles = 0;
+            long totalEarnings = 0;
+            try (Stream<Object[]> rows = parkingDailyRollupRepository.streamDailyTotalsForAllParkings(startDate, endDate)) {
+                Iterator<Object[]> iterator = rows.iterator();
+                while (iterator.hasNext()) {
+                    Object[] row = iterator.next();
+                    pdf.writeRow(row[0], row[1], row[2], row[3], Money.toDecimal((Long) row[4]));
+                    totalVehicles += (Long) row[3];
+                    totalEarnings += (Long) row[4];
+                }
+            }
+            pdf.writeSummary("Total vehículos: " + totalVehicles,
+                    "Ganancias totales: " + Money.toDecimal(totalEarnings).toPlainString());
+        });
+    }
+
+    /**
+     * Genera un PDF en el pool de renderizado hacia un archivo temporal.
+     * Quien lo consume debe borrar el archivo.
+     */
+    public CompletableFuture<Path> renderPdf(StreamingResponseBody body) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                Path file = null;
+                try {
+                    file = Files.createTempFile("reporte-", ".pdf");
+                    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+                        body.writeTo(out);
+                    }
+                    return file;
+                } catch (IOException e) {
+                    deleteQuietly(file);
+                    throw new UncheckedIOException(e);
+                } catch (RuntimeException e) {
+                    deleteQuietly(file);
+                    throw e;
+                }
+            }, renderExecutor);
+        } catch (RejectedExecutionException e) {
+            throw new ValidationException("Hay demasiados reportes PDF en proceso, intente más tarde");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+    }
+
+    // Filas ya calculadas por el reporte JSON: una por mapa, con las columnas en el orden indicado
+    private static StreamingResponseBody mapRowsCsv(String[] columns, List<Map<String, Object>> rows) {
+        return out -> {
+            CsvWriter csv = new CsvWriter(out);
+            csv.writeRow((Object[]) columns);
+            for (Map<String, Object> row : rows) {
+                Object[] values = new Object[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    values[i] = row.get(columns[i]);
+                }
+                csv.writeRow(values);
+            }
+            csv.flush();
+        };
+    }
+
+    private StreamingResponseBody csv(ReportContent<CsvWriter> content) {
+        return inReadOnlyTransaction(out -> {
+            CsvWriter csv = new CsvWriter(out);
+            content.write(csv);
+            csv.flush();
+        });
+    }
+
+    private StreamingResponseBody pdf(String title, String subtitle, String[] header,
+                                      ReportContent<PdfTableWriter> content) {
+        return inReadOnlyTransaction(out -> {
+            try (PdfTableWriter pdf = new PdfTableWriter(out, title, subtitle, header)) {
+                content.write(pdf);
+            }
+        });
+    }
+
+    private StreamingResponseBody inReadOnlyTransaction(ReportContent<OutputStream> content) {
+        return out -> {
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> {
+                    try {
+                        content.write(out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                log.warn("Exportación de reporte interrumpida: {}", e.getMessage());
+                throw e.getCause();
+            }
+        };
+    }
+
+    private void writeTopRows(CsvWriter csv, Stream<Object[]> rows) throws IOException {
+        Iterator<Object[]> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            Object[] row = iterator.next();
+            csv.writeRow(row[0], row[1]);
+        }
+    }
+
+    private void writeDetailRows(CsvWriter csv, Stream<EarningsDetailRow> rows) throws IOException {
+        Iterator<EarningsDetailRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            EarningsDetailRow row = iterator.next();
+            csv.writeRow(row.parkingId(), row.licensePlate(), row.entryDateTime(), row.exitDateTime(),
+                    Money.toDecimal(row.totalCost()));
+        }
+    }
+
+    private void writeTopRows(PdfTableWriter pdf, Stream<Object[]> rows) throws IOException {
+        Iterator<Object[]> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            Object[] row = iterator.next();
+            pdf.writeRow(row[0], row[1]);
+        }
+    }
+
+    private void writeDetailRows(PdfTableWriter pdf, Stream<EarningsDetailRow> rows) throws IOException {
+        long totalVehicles = 0;
+        long totalEarnings = 0;
+        Iterator<EarningsDetailRow> iterator = rows.iterator();
+        while (iterator.hasNext()) {
+            EarningsDetailRow row = iterator.next();
+            pdf.writeRow(row.parkingId(), row.licensePlate(), row.entryDateTime(), row.exitDateTime(),
+                    Money.toDecimal(row.totalCost()));
+            totalVehicles++;
+            totalEarnings += row.totalCost() != null ? row.totalCost() : 0;
+        }
+        pdf.writeSummary("Total vehículos: " + totalVehicles,
+                "Ganancias totales: " + Money.toDecimal(totalEarnings).toPlainString());
+    }
+
+    private void validateExport() {
+        if (!exportEnabled) {
+            throw new ValidationException("La exportación de reportes está deshabilitada");
+        }
+    }
+
+    private void validateRange(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new ValidationException("Rango de fechas no válido");
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) + 1 > maxDaysRange) {
+            throw new ValidationException("El rango de fechas no puede superar " + maxDaysRange + " días");
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("No se pudo eliminar el archivo temporal {}: {}", file, e.getMessage());
+        }
+    }
+
+    private void validateLimit(int limit) {
+        if (limit < 1) {
+            throw new ValidationException("El límite debe ser mayor a cero");
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.dto.ReportJobRequest;
+import com.nelumbo.parking.enums.ReportType;
+import com.nelumbo.parking.enums.Role;
+import com.nelumbo.parking.exceptions.AuthenticationException;
+import com.nelumbo.parking.exceptions.AuthorizationException;
+import com.nelumbo.parking.exceptions.ValidationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generación de reportes en segundo plano. Los trabajos se ejecutan en un
+ * pool acotado y el resultado (CSV o PDF) se escribe en un archivo local que
+ * se conserva durante result-ttl segundos. Si llega un trabajo idéntico a uno pendiente o
+ * en proceso, se devuelve el existente en lugar de encolar otro.
+ * El estado de los trabajos vive en memoria: al reiniciar se descartan los
+ * resultados anteriores.
+ */
+@Service
+@Slf4j
+public class ReportJobService {
+
+    private static final String FORMAT_CSV = "csv";
+    private static final String FORMAT_PDF = "pdf";
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    static final class ReportJob {
+        private final String id;
+        private final ReportType type;
+        private final String fingerprint;
+        private final String format;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile Status status = Status.PENDING;
+        private volatile LocalDateTime completedAt;
+        private volatile LocalDateTime expiresAt;
+        private volatile String error;
+
+        ReportJob(String id, ReportType type, String fingerprint, String format) {
+            this.id = id;
+            this.type = type;
+            this.fingerprint = fingerprint;
+            this.format = format;
+        }
+    }
+
+    private final ReportExportService reportExportService;
+    private final Path resultDir;
+    private final long resultTtlSeconds;
+    private final String defaultFormat;
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ReportJob> inFlight = new ConcurrentHashMap<>();
+
+    public ReportJobService(
+            ReportExportService reportExportService,
+            @Value("${app.report.jobs.workers:2}") int workers,
+            @Value("${app.report.jobs.queue-capacity:20}") int queueCapacity,
+            @Value("${app.report.jobs.result-dir:./data/report-jobs}") String resultDir,
+            @Value("${app.report.jobs.result-ttl:3600}") long resultTtlSeconds,
+            @Value("${app.report.default-format:PDF}") String defaultFormat
+    ) {
+        this.reportExportService = reportExportService;
+        this.resultDir = Path.of(resultDir);
+        this.resultTtlSeconds = resultTtlSeconds;
+        this.defaultFormat = defaultFormat.toLowerCase();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("report-job-", 0).daemon().factory());
+    }
+
+    /**
+     * Encola un reporte. Los parámetros se validan antes de encolarlo.
+     * @return estado del trabajo nuevo, o del trabajo idéntico que ya estaba en curso
+     */
+    public Map<String, Object> submit(ReportJobRequest request) {
+        authorize(request.getType());
+        ReportJobRequest normalized = normalize(request);
+        String fingerprint = normalized.toString();
+
+        ReportJob running = inFlight.get(fingerprint);
+        if (running != null) {
+            return toStatus(running);
+        }
+
+        StreamingResponseBody body = render(normalized);
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), normalized.getType(), fingerprint,
+                normalized.getFormat());
+        ReportJob existing = inFlight.putIfAbsent(fingerprint, job);
+        if (existing != null) {
+            return toStatus(existing);
+        }
+
+        jobs.put(job.id, job);
+        try {
+            executor.execute(() -> run(job, body));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            inFlight.remove(fingerprint, job);
+            throw new ValidationException("Hay demasiados reportes en cola, intente más tarde");
+        }
+        log.info("Reporte {} encolado: {}", job.id, fingerprint);
+        return toStatus(job);
+    }
+
+    public Map<String, Object> getStatus(String jobId) {
+        return toStatus(findJob(jobId));
+    }
+
+    /**
+     * Archivo con el resultado de un trabajo terminado.
+     */
+    public Path getResult(String jobId) {
+        ReportJob job = findJob(jobId);
+        if (job.status != Status.COMPLETED) {
+            throw new ValidationException("El reporte aún no está disponible");
+        }
+        return resultFile(job);
+    }
+
+    /**
+     * Elimina los trabajos vencidos y sus archivos de resultado.
+     * @return cantidad de trabajos eliminados
+     */
+    public int purgeExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int purged = 0;
+        Iterator<ReportJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ReportJob job = iterator.next();
+            if (job.expiresAt != null && job.expiresAt.isBefore(now)) {
+                iterator.remove();
+                deleteQuietly(resultFile(job));
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    // Los resultados de una ejecución anterior no tienen trabajo asociado
+    @PostConstruct
+    void purgeOrphanedResults() {
+        if (!Files.isDirectory(resultDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(resultDir)) {
+            files.forEach(this::deleteQuietly);
+        } catch (IOException e) {
+            log.error("No se pudo limpiar el directorio de reportes {}: {}", resultDir, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(ReportJob job, StreamingResponseBody body) {
+        job.status = Status.RUNNING;
+        Path partial = resultDir.resolve(job.id + PARTIAL_SUFFIX);
+        try {
+            Files.createDirectories(resultDir);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial))) {
+                body.writeTo(out);
+            }
+            Files.move(partial, resultFile(job), StandardCopyOption.REPLACE_EXISTING);
+            job.status = Status.COMPLETED;
+        } catch (Exception e) {
+            log.error("Error generando el reporte {}: {}", job.id, e.getMessage());
+            deleteQuietly(partial);
+            job.error = e.getMessage();
+            job.status = Status.FAILED;
+        } finally {
+            job.completedAt = LocalDateTime.now();
+            job.expiresAt = job.completedAt.plusSeconds(resultTtlSeconds);
+            inFlight.remove(job.fingerprint, job);
+        }
+    }
+
+    // Solo se conservan los parámetros que usa cada tipo, con sus valores por defecto
+    private ReportJobRequest normalize(ReportJobRequest request) {
+        ReportJobRequest.ReportJobRequestBuilder normalized = ReportJobRequest.builder()
+                .type(request.getType())
+                .format(resolveFormat(request.getType(), request.getFormat()));
+        int limit = request.getLimit() != null ? request.getLimit() : 10;
+        LocalDate today = LocalDate.now();
+
+        switch (request.getType()) {
+            case TOP_VEHICLES_ALL_PARKINGS -> normalized.limit(limit);
+            case TOP_VEHICLES_BY_PARKING -> normalized.parkingId(requireParkingId(request)).limit(limit);
+            case FIRST_TIME_VEHICLES -> normalized.parkingId(requireParkingId(request))
+                    .from(request.getFrom()).to(request.getTo());
+            case EARNINGS_BY_PERIOD -> {
+                if (request.getPeriod() == null) {
+                    throw new ValidationException("El período es obligatorio");
+                }
+                normalized.parkingId(requireParkingId(request)).period(request.getPeriod().toLowerCase());
+            }
+            case EARNINGS_BY_DATE -> normalized.parkingId(requireParkingId(request))
+                    .date(request.getDate() != null ? request.getDate() : today);
+            case ALL_PARKINGS_EARNINGS -> {
+                LocalDate from = request.getFrom() != null ? request.getFrom()
+                        : (request.getDate() != null ? request.getDate() : today);
+                normalized.from(from)
+                        .to(request.getTo() != null ? request.getTo() : from)
+                        .detail(Boolean.TRUE.equals(request.getDetail()));
+            }
+            case GENERAL_STATISTICS -> { }
+        }
+        return normalized.build();
+    }
+
+    private String resolveFormat(ReportType type, String requested) {
+        if (requested == null) {
+            return FORMAT_PDF.equals(defaultFormat) && type.isPdfAvailable() ? FORMAT_PDF : FORMAT_CSV;
+        }
+        String format = requested.toLowerCase();
+        if (FORMAT_PDF.equals(format) && !type.isPdfAvailable()) {
+            throw new ValidationException("Este reporte no está disponible en PDF");
+        }
+        if (!FORMAT_PDF.equals(format) && !FORMAT_CSV.equals(format)) {
+            throw new ValidationException("Formato no válido. Use: csv, pdf");
+        }
+        return format;
+    }
+
+    // Los PDF de los trabajos se generan en el propio pool de trabajos
+    private StreamingResponseBody render(ReportJobRequest request) {
+        if (FORMAT_PDF.equals(request.getFormat())) {
+            return renderPdf(request);
+        }
+        return switch (request.getType()) {
+            case TOP_VEHICLES_ALL_PARKINGS -> reportExportService.topVehiclesAllParkingsCsv(request.getLimit());
+            case TOP_VEHICLES_BY_PARKING ->
+                    reportExportService.topVehiclesByParkingCsv(request.getParkingId(), request.getLimit());
+            case FIRST_TIME_VEHICLES ->
+                    reportExportService.firstTimeVehiclesCsv(request.getParkingId(), request.getFrom(), request.getTo());
+            case EARNINGS_BY_PERIOD ->
+                    reportExportService.earningsByPeriodCsv(request.getParkingId(), request.getPeriod());
+            case EARNINGS_BY_DATE ->
+                    reportExportService.earningsByParkingAndDateCsv(request.getParkingId(), request.getDate());
+            case ALL_PARKINGS_EARNINGS ->
+                    reportExportService.allParkingsEarningsCsv(request.getFrom(), request.getTo(), request.getDetail());
+            case GENERAL_STATISTICS -> reportExportService.generalStatisticsCsv();
+        };
+    }
+
+    private StreamingResponseBody renderPdf(ReportJobRequest request) {
+        return switch (request.getType()) {
+            case TOP_VEHICLES_ALL_PARKINGS -> reportExportService.topVehiclesAllParkingsPdf(request.getLimit());
+            case TOP_VEHICLES_BY_PARKING ->
+                    reportExportService.topVehiclesByParkingPdf(request.getParkingId(), request.getLimit());
+            case EARNINGS_BY_DATE ->
+                    reportExportService.earningsByParkingAndDatePdf(request.getParkingId(), request.getDate());
+            case ALL_PARKINGS_EARNINGS ->
+                    reportExportService.allParkingsEarningsPdf(request.getFrom(), request.getTo(), request.getDetail());
+            default -> throw new ValidationException("Este reporte no está disponible en PDF");
+        };
+    }
+
+    private Long requireParkingId(ReportJobRequest request) {
+        if (request.getParkingId() == null) {
+            throw new ValidationException("El parqueadero es obligatorio para este reporte");
+        }
+        return request.getParkingId();
+    }
+
+    private void authorize(ReportType type) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new AuthenticationException("Authentication required");
+        }
+        boolean allowed = authentication.getAuthorities().stream()
+                .map(authority -> authority.getAuthority().replaceFirst("^ROLE_", ""))
+                .anyMatch(role -> isRole(role) && type.isAllowedFor(Role.valueOf(role)));
+        if (!allowed) {
+            throw new AuthorizationException("No tiene permisos para este reporte");
+        }
+    }
+
+    private static boolean isRole(String name) {
+        for (Role role : Role.values()) {
+            if (role.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ReportJob findJob(String jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null || (job.expiresAt != null && job.expiresAt.isBefore(LocalDateTime.now()))) {
+            throw new ValidationException("Reporte no encontrado o expirado");
+        }
+        authorize(job.type);
+        return job;
+    }
+
+    private Path resultFile(ReportJob job) {
+        return resultDir.resolve(job.id + "." + job.format);
+    }
+
+    private Map<String, Object> toStatus(ReportJob job) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("id", job.id);
+        status.put("tipo", job.type);
+        status.put("estado", job.status);
+        status.put("formato", job.format);
+        status.put("creado", job.createdAt);
+        status.put("finalizado", job.completedAt);
+        status.put("expira", job.expiresAt);
+        if (job.error != null) {
+            status.put("error", job.error);
+        }
+        if (job.status == Status.COMPLETED) {
+            status.put("descarga", "/reports/jobs/" + job.id + "?download=true");
+        }
+        return status;
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("No se pudo eliminar el resultado {}: {}", file, e.getMessage());
+        }
+    }
+}
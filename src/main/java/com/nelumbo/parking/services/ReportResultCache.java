@@ -0,0 +1,289 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.config.CacheConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caché de resultados de reportes, por reporte y parámetros.
+ * Cada entrada pertenece a un parqueadero, o a ninguno si el reporte abarca
+ * todos. Al confirmarse una salida se invalidan las entradas de ese
+ * parqueadero y las globales. Un resultado calculado mientras se invalidaba
+ * su parqueadero no se guarda, para no dejar en caché datos anteriores a la salida.
+ * Los reportes de días cerrados van a una caché aparte que no se invalida con
+ * las salidas.
+ */
+@Component
+public class ReportResultCache {
+
+    /**
+     * Margen después de medianoche para considerar cerrado un día: cubre las
+     * salidas de ese día que aún estén en la escritura diferida del historial.
+     */
+    static final Duration CLOSED_DAY_GRACE = Duration.ofMinutes(5);
+
+    public record Key(Long parkingId, String report, List<Object> params) {
+
+        public static Key of(Long parkingId, String report, Object... params) {
+            return new Key(parkingId, report, Arrays.asList(params));
+        }
+    }
+
+    @FunctionalInterface
+    public interface BodyWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    // Escribe en el destino y guarda una copia mientras no supere maxBytes
+    private static final class CappedCopyOutputStream extends FilterOutputStream {
+
+        private final int maxBytes;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private CappedCopyOutputStream(OutputStream out, int maxBytes) {
+            super(out);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (fits(1)) {
+                copy.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (fits(len)) {
+                copy.write(b, off, len);
+            }
+        }
+
+        private boolean fits(int len) {
+            if (copy != null && copy.size() + len > maxBytes) {
+                copy = null;
+            }
+            return copy != null;
+        }
+
+        private byte[] toByteArray() {
+            return copy != null ? copy.toByteArray() : null;
+        }
+    }
+
+    private final Cache reports;
+    private final Cache immutableReports;
+    private final Map<Long, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final AtomicLong globalGeneration = new AtomicLong();
+    private final AtomicLong epoch = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter immutableHits;
+    private final Counter immutableMisses;
+
+    public ReportResultCache(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        this.reports = requireCache(cacheManager, CacheConfig.REPORTS_CACHE);
+        this.immutableReports = requireCache(cacheManager, CacheConfig.IMMUTABLE_REPORTS_CACHE);
+        this.hits = counter(meterRegistry, CacheConfig.REPORTS_CACHE, "hit");
+        this.misses = counter(meterRegistry, CacheConfig.REPORTS_CACHE, "miss");
+        this.immutableHits = counter(meterRegistry, CacheConfig.IMMUTABLE_REPORTS_CACHE, "hit");
+        this.immutableMisses = counter(meterRegistry, CacheConfig.IMMUTABLE_REPORTS_CACHE, "miss");
+        hitRatioGauge(meterRegistry, CacheConfig.REPORTS_CACHE, hits, misses);
+        hitRatioGauge(meterRegistry, CacheConfig.IMMUTABLE_REPORTS_CACHE, immutableHits, immutableMisses);
+    }
+
+    /**
+     * Devuelve el resultado en caché o lo calcula y lo guarda.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> loader) {
+        Cache.ValueWrapper cached = reports.get(key);
+        if (cached != null) {
+            hits.increment();
+            return (T) cached.get();
+        }
+        misses.increment();
+
+        long generation = generation(key.parkingId());
+        long currentEpoch = epoch.get();
+        T value = loader.get();
+        if (generation == generation(key.parkingId()) && currentEpoch == epoch.get()) {
+            reports.put(key, value);
+            // Una invalidación entre la comprobación y el put no debe dejar el valor guardado
+            if (generation != generation(key.parkingId()) || currentEpoch != epoch.get()) {
+                reports.evict(key);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Igual que get, para reportes de días cerrados: no se invalidan con las salidas.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getImmutable(Key key, Supplier<T> loader) {
+        Cache.ValueWrapper cached = immutableReports.get(key);
+        if (cached != null) {
+            immutableHits.increment();
+            return (T) cached.get();
+        }
+        immutableMisses.increment();
+
+        long currentEpoch = epoch.get();
+        T value = loader.get();
+        if (currentEpoch == epoch.get()) {
+            immutableReports.put(key, value);
+            if (currentEpoch != epoch.get()) {
+                immutableReports.evict(key);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Igual que getImmutable, para respuestas que se escriben por streaming: la
+     * respuesta se envía a medida que se genera y a la vez se copia; la copia
+     * se guarda solo si no supera maxBytes, para no retener reportes grandes.
+     */
+    public void writeImmutable(Key key, int maxBytes, OutputStream out, BodyWriter writer) throws IOException {
+        Cache.ValueWrapper cached = immutableReports.get(key);
+        if (cached != null) {
+            immutableHits.increment();
+            out.write((byte[]) cached.get());
+            return;
+        }
+        immutableMisses.increment();
+
+        long currentEpoch = epoch.get();
+        CappedCopyOutputStream copy = new CappedCopyOutputStream(out, maxBytes);
+        writer.write(copy);
+        byte[] body = copy.toByteArray();
+        if (body != null && currentEpoch == epoch.get()) {
+            immutableReports.put(key, body);
+            if (currentEpoch != epoch.get()) {
+                immutableReports.evict(key);
+            }
+        }
+    }
+
+    /**
+     * Indica si los datos de la fecha ya no pueden cambiar con nuevas salidas.
+     */
+    public boolean isClosedDay(LocalDate date) {
+        return LocalDateTime.now().isAfter(date.plusDays(1).atStartOfDay().plus(CLOSED_DAY_GRACE));
+    }
+
+    /**
+     * Invalida los reportes del parqueadero cuando la transacción actual confirma.
+     */
+    public void invalidateParkingOnCommit(Long parkingId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateParkings(List.of(parkingId));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateParkings(List.of(parkingId));
+            }
+        });
+    }
+
+    /**
+     * Invalida los reportes de los parqueaderos indicados y los globales.
+     */
+    public void invalidateParkings(Collection<Long> parkingIds) {
+        for (Long parkingId : parkingIds) {
+            generations.computeIfAbsent(parkingId, id -> new AtomicLong()).incrementAndGet();
+        }
+        globalGeneration.incrementAndGet();
+        asMap(reports).keySet().removeIf(key -> key instanceof Key reportKey
+                && (reportKey.parkingId() == null || parkingIds.contains(reportKey.parkingId())));
+    }
+
+    /**
+     * Como invalidateParkings, y además descarta los reportes de días cerrados
+     * de esos parqueaderos y los globales, que guardan el nombre y el id de
+     * cada parqueadero (al crear, renombrar o eliminar un parqueadero).
+     */
+    public void invalidateParkingDefinitions(Collection<Long> parkingIds) {
+        invalidateParkings(parkingIds);
+        epoch.incrementAndGet();
+        asMap(immutableReports).keySet().removeIf(key -> key instanceof Key reportKey
+                && (reportKey.parkingId() == null || parkingIds.contains(reportKey.parkingId())));
+    }
+
+    /**
+     * Invalida todos los reportes, incluidos los de días cerrados (por ejemplo
+     * al recalcular los totales diarios).
+     */
+    public void invalidateAll() {
+        epoch.incrementAndGet();
+        reports.clear();
+        immutableReports.clear();
+    }
+
+    // Las entradas globales cambian con cualquier parqueadero
+    private long generation(Long parkingId) {
+        if (parkingId == null) {
+            return globalGeneration.get();
+        }
+        AtomicLong generation = generations.get(parkingId);
+        return generation != null ? generation.get() : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> asMap(Cache cache) {
+        Object nativeCache = cache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            return (Map<Object, Object>) caffeine.asMap();
+        }
+        return (Map<Object, Object>) nativeCache;
+    }
+
+    private static Cache requireCache(CacheManager cacheManager, String name) {
+        return Objects.requireNonNull(cacheManager.getCache(name), "No existe la caché " + name);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String cache, String result) {
+        return Counter.builder("parking.report.cache.requests")
+                .description("Consultas a la caché de reportes")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static void hitRatioGauge(MeterRegistry meterRegistry, String cache, Counter hits, Counter misses) {
+        Gauge.builder("parking.report.cache.hit.ratio", () -> {
+                    double total = hits.count() + misses.count();
+                    return total == 0 ? 0 : hits.count() / total;
+                })
+                .description("Proporción de consultas a la caché de reportes resueltas sin recalcular")
+                .tag("cache", cache)
+                .register(meterRegistry);
+    }
+}
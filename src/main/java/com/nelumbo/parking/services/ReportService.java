@@ -1,19 +1,32 @@
 package com.nelumbo.parking.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nelumbo.parking.dto.EarningsDetailRow;
+import com.nelumbo.parking.dto.RollupTotals;
 import com.nelumbo.parking.entities.VehicleHistory;
 import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingDailyRollupRepository;
 import com.nelumbo.parking.repositories.VehicleHistoryRepository;
 import com.nelumbo.parking.repositories.ParkingRecordRepository;
 import com.nelumbo.parking.repositories.ParkingRepository;
+import com.nelumbo.parking.repositories.ParkingVehicleVisitRepository;
+import com.nelumbo.parking.utils.Money;
+import com.nelumbo.parking.utils.SpaceSaving;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -21,196 +34,421 @@ import java.util.stream.Collectors;
 public class ReportService {
 
     private static final String KEY_PLACA = "placa"; 
+    private static final int MAX_PAGE_SIZE = 500;
+
+    // Límite inferior de cada rango del histograma de visitas
+    private static final long[] VISIT_BUCKETS = {1, 2, 3, 6, 11, 21};
 
     private final VehicleHistoryRepository vehicleHistoryRepository;
     private final ParkingRecordRepository parkingRecordRepository;
     private final ParkingRepository parkingRepository;
-
-    public List<Map<String, Object>> getTopVehiclesByParking(Long parkingId, int limit) {
-        if (!parkingRepository.existsById(parkingId)) {
-            throw new ValidationException("Parqueadero no encontrado");
+    private final ParkingDailyRollupRepository parkingDailyRollupRepository;
+    private final ParkingVehicleVisitRepository parkingVehicleVisitRepository;
+    private final ObjectMapper objectMapper;
+    private final ReportResultCache reportResultCache;
+    private final UniqueVehicleService uniqueVehicleService;
+    private final TopVehicleTracker topVehicleTracker;
+
+    @Value("${app.cache.reports.immutable-max-entry-bytes:262144}")
+    private int immutableMaxEntryBytes;
+
+    /**
+     * Top del parqueadero desde el resumen en memoria (conteos aproximados,
+     * con su sobreestimación máxima); con exact=true, o si el resumen no
+     * puede responder, se calcula sobre vehicle_history.
+     */
+    public List<Map<String, Object>> getTopVehiclesByParking(Long parkingId, int limit, boolean exact) {
+        if (exact) {
+            return getTopVehiclesByParking(parkingId, limit);
         }
+        validateParkingExists(parkingId);
+        topPage(limit);
 
-        List<VehicleHistory> history = vehicleHistoryRepository.findByParkingId(parkingId);
-
-        Map<String, Long> vehicleCounts = history.stream()
-                .collect(Collectors.groupingBy(
-                        VehicleHistory::getLicensePlate,
-                        Collectors.counting()
-                ));
-
-        return vehicleCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> {
-                    Map<String, Object> result = new HashMap<>();
-                    result.put(KEY_PLACA, entry.getKey()); 
-                    result.put("totalRegistros", entry.getValue());
-                    return result;
-                })
-                .toList(); 
+        return topVehicleTracker.top(parkingId, limit)
+                .map(entries -> entries.stream().map(this::toTrackedTopVehicle).toList())
+                .orElseGet(() -> getTopVehiclesByParking(parkingId, limit));
     }
 
-    public List<Map<String, Object>> getFirstTimeVehiclesByParking(Long parkingId) {
-        if (!parkingRepository.existsById(parkingId)) {
-            throw new ValidationException("Parqueadero no encontrado");
-        }
+    public List<Map<String, Object>> getTopVehiclesByParking(Long parkingId, int limit) {
+        validateParkingExists(parkingId);
+        PageRequest page = topPage(limit);
 
-        List<VehicleHistory> history = vehicleHistoryRepository.findByParkingId(parkingId);
+        return reportResultCache.get(ReportResultCache.Key.of(parkingId, "top-vehicles", limit), () ->
+                vehicleHistoryRepository.findTopPlatesByParkingId(parkingId, page).stream()
+                        .map(this::toTopVehicle)
+                        .toList());
+    }
 
-        Map<String, Long> vehicleCounts = history.stream()
-                .collect(Collectors.groupingBy(
-                        VehicleHistory::getLicensePlate,
-                        Collectors.counting()
-                ));
+    /**
+     * Vehículos con una sola visita al parqueadero, de la más reciente a la
+     * más antigua, paginados. Con from/to solo los que visitaron en ese rango.
+     * Se leen de parking_vehicle_visits por el índice parcial visit_count = 1.
+     */
+    public Map<String, Object> getFirstTimeVehiclesByParking(Long parkingId, LocalDate from, LocalDate to,
+                                                             int page, int size) {
+        validateParkingExists(parkingId);
+        PageRequest pageRequest = visitsPage(page, size);
+        validateVisitRange(from, to);
+
+        return reportResultCache.get(ReportResultCache.Key.of(parkingId, "first-time-vehicles", from, to, page, size), () -> {
+            Slice<Object[]> slice = from == null
+                    ? parkingVehicleVisitRepository.findFirstTimeByParkingId(parkingId, pageRequest)
+                    : parkingVehicleVisitRepository.findFirstTimeByParkingIdAndVisitBetween(
+                            parkingId, from.atStartOfDay(), to.plusDays(1).atStartOfDay(), pageRequest);
+            return toPage(slice, row -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put(KEY_PLACA, row[0]);
+                result.put("totalVisitas", 1L);
+                result.put("visita", row[1]);
+                return result;
+            });
+        });
+    }
 
-        return vehicleCounts.entrySet().stream()
-                .filter(entry -> entry.getValue() == 1)
-                .map(entry -> {
+    /**
+     * Vehículos que volvieron al parqueadero (al menos minVisits visitas),
+     * de mayor a menor cantidad de visitas, paginados.
+     */
+    public Map<String, Object> getReturningVehiclesByParking(Long parkingId, long minVisits, int page, int size) {
+        validateParkingExists(parkingId);
+        PageRequest pageRequest = visitsPage(page, size);
+        validateMinVisits(minVisits);
+
+        return reportResultCache.get(ReportResultCache.Key.of(parkingId, "returning-vehicles", minVisits, page, size), () ->
+                toPage(parkingVehicleVisitRepository.findReturningByParkingId(parkingId, minVisits, pageRequest), row -> {
                     Map<String, Object> result = new HashMap<>();
-                    result.put(KEY_PLACA, entry.getKey()); 
-                    result.put("totalVisitas", entry.getValue());
+                    result.put(KEY_PLACA, row[0]);
+                    result.put("totalVisitas", row[1]);
+                    result.put("primeraVisita", row[2]);
+                    result.put("ultimaVisita", row[3]);
                     return result;
-                })
-                .toList(); 
+                }));
     }
 
-    public Map<String, Object> getEarningsByParkingAndDate(Long parkingId, LocalDate date) {
-        if (!parkingRepository.existsById(parkingId)) {
-            throw new ValidationException("Parqueadero no encontrado");
-        }
+    /**
+     * Cantidad de vehículos del parqueadero por rango de visitas.
+     */
+    public Map<String, Object> getVisitFrequencyByParking(Long parkingId) {
+        validateParkingExists(parkingId);
+
+        return reportResultCache.get(ReportResultCache.Key.of(parkingId, "visit-frequency"), () -> {
+            long[] vehicles = new long[VISIT_BUCKETS.length];
+            long totalVehicles = 0;
+            for (Object[] row : parkingVehicleVisitRepository.countVehiclesByVisitCount(parkingId)) {
+                long visits = (Long) row[0];
+                long count = (Long) row[1];
+                int bucket = VISIT_BUCKETS.length - 1;
+                while (visits < VISIT_BUCKETS[bucket]) {
+                    bucket--;
+                }
+                vehicles[bucket] += count;
+                totalVehicles += count;
+            }
+
+            List<Map<String, Object>> histogram = new ArrayList<>();
+            for (int i = 0; i < VISIT_BUCKETS.length; i++) {
+                Map<String, Object> bucket = new HashMap<>();
+                bucket.put("visitas", i + 1 < VISIT_BUCKETS.length
+                        ? (VISIT_BUCKETS[i] == VISIT_BUCKETS[i + 1] - 1
+                                ? String.valueOf(VISIT_BUCKETS[i])
+                                : VISIT_BUCKETS[i] + "-" + (VISIT_BUCKETS[i + 1] - 1))
+                        : VISIT_BUCKETS[i] + "+");
+                bucket.put("vehiculos", vehicles[i]);
+                histogram.add(bucket);
+            }
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("parkingId", parkingId);
+            result.put("totalVehiculos", totalVehicles);
+            result.put("vehiculosPrimeraVez", vehicles[0]);
+            result.put("vehiculosRecurrentes", totalVehicles - vehicles[0]);
+            result.put("histograma", histogram);
+            return result;
+        });
+    }
 
-        if (date == null) {
-            date = LocalDate.now();
+    /**
+     * Escribe el reporte de ganancias del día como JSON mientras recorre un
+     * cursor sobre vehicle_history, sin acumular el detalle en memoria. Los
+     * totales se calculan durante el recorrido y van al final del documento.
+     * El reporte de un día cerrado no cambia: mientras se envía se guarda una
+     * copia serializada, solo si no supera app.cache.reports.immutable-max-entry-bytes.
+     */
+    @Transactional(readOnly = true)
+    public void writeEarningsByParkingAndDate(Long parkingId, LocalDate date, OutputStream out) throws IOException {
+        if (!reportResultCache.isClosedDay(date)) {
+            writeEarningsJson(parkingId, date, out);
+            return;
         }
 
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(23, 59, 59);
-
-        List<VehicleHistory> history = vehicleHistoryRepository.findByParkingIdAndExitDateTimeBetween(
-                parkingId, startOfDay, endOfDay);
-
-        BigDecimal totalEarnings = history.stream()
-                .map(VehicleHistory::getTotalCost)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        int totalVehicles = history.size();
-
-        Map<String, Object> result = new HashMap<>();
-        result.put("parkingId", parkingId);
-        result.put("fecha", date);
-        result.put("totalVehiculos", totalVehicles);
-        result.put("gananciasTotales", totalEarnings);
-        result.put("detalle", history.stream()
-                .map(h -> {
-                    Map<String, Object> detail = new HashMap<>();
-                    detail.put(KEY_PLACA, h.getLicensePlate()); 
-                    detail.put("entrada", h.getEntryDateTime());
-                    detail.put("salida", h.getExitDateTime());
-                    detail.put("costo", h.getTotalCost());
-                    return detail;
-                })
-                .toList()); 
+        reportResultCache.writeImmutable(ReportResultCache.Key.of(parkingId, "earnings", date),
+                immutableMaxEntryBytes, out, body -> writeEarningsJson(parkingId, date, body));
+    }
 
-        return result;
+    private void writeEarningsJson(Long parkingId, LocalDate date, OutputStream out) throws IOException {
+        long totalVehicles = 0;
+        long totalEarnings = 0;
+
+        try (JsonGenerator json = objectMapper.createGenerator(out);
+             Stream<EarningsDetailRow> rows = vehicleHistoryRepository.streamDetailByParkingIdAndExitDateTimeBetween(
+                     parkingId, date.atStartOfDay(), date.atTime(23, 59, 59))) {
+            json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            json.writeStartObject();
+            json.writeNumberField("parkingId", parkingId);
+            json.writeObjectField("fecha", date);
+            json.writeArrayFieldStart("detalle");
+
+            Iterator<EarningsDetailRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                EarningsDetailRow row = iterator.next();
+                json.writeStartObject();
+                json.writeStringField(KEY_PLACA, row.licensePlate());
+                json.writeObjectField("entrada", row.entryDateTime());
+                json.writeObjectField("salida", row.exitDateTime());
+                json.writeObjectField("costo", Money.toDecimal(row.totalCost()));
+                json.writeEndObject();
+
+                totalVehicles++;
+                totalEarnings += row.totalCost() != null ? row.totalCost() : 0;
+            }
+
+            json.writeEndArray();
+            json.writeNumberField("totalVehiculos", totalVehicles);
+            json.writeObjectField("gananciasTotales", Money.toDecimal(totalEarnings));
+            json.writeEndObject();
+        }
     }
 
-    public List<Map<String, Object>> getAllParkingsEarningsByDate(LocalDate date) {
+    /**
+     * Totales del día de todos los parqueaderos en una sola consulta sobre
+     * parking_daily_rollup. El detalle por vehículo se agrega solo si se pide,
+     * con una consulta adicional para todos los parqueaderos.
+     */
+    public List<Map<String, Object>> getAllParkingsEarningsByDate(LocalDate date, boolean includeDetail) {
         final LocalDate finalDate = (date != null) ? date : LocalDate.now();
+        ReportResultCache.Key key = ReportResultCache.Key.of(null, "all-parkings-earnings", finalDate, includeDetail);
 
-        List<com.nelumbo.parking.entities.Parking> parkings = parkingRepository.findAll();
-
-        return parkings.stream()
-                .map(parking -> getEarningsByParkingAndDate(parking.getId(), finalDate))
-                .toList(); 
+        if (reportResultCache.isClosedDay(finalDate)) {
+            // El detalle de un día cerrado incluye todas sus salidas: solo se guardan los totales
+            return includeDetail
+                    ? loadAllParkingsEarnings(finalDate, true)
+                    : reportResultCache.getImmutable(key, () -> loadAllParkingsEarnings(finalDate, false));
+        }
+        return reportResultCache.get(key, () -> loadAllParkingsEarnings(finalDate, includeDetail));
     }
 
-    public List<Map<String, Object>> getTopVehiclesAllParkings(int limit) {
-        List<VehicleHistory> allHistory = vehicleHistoryRepository.findAll();
-
-        Map<String, Long> vehicleCounts = allHistory.stream()
-                .collect(Collectors.groupingBy(
-                        VehicleHistory::getLicensePlate,
-                        Collectors.counting()
-                ));
-
-        return vehicleCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> {
+    private List<Map<String, Object>> loadAllParkingsEarnings(LocalDate finalDate, boolean includeDetail) {
+
+        Map<Long, List<Map<String, Object>>> details = new HashMap<>();
+        if (includeDetail) {
+            for (VehicleHistory h : vehicleHistoryRepository.findByExitDateTimeBetween(
+                    finalDate.atStartOfDay(), finalDate.atTime(23, 59, 59))) {
+                details.computeIfAbsent(h.getParkingId(), id -> new ArrayList<>()).add(toEarningsDetail(h));
+            }
+        }
+
+        return parkingDailyRollupRepository.findDailyTotalsForAllParkings(finalDate).stream()
+                .map(row -> {
+                    Long parkingId = (Long) row[0];
                     Map<String, Object> result = new HashMap<>();
-                    result.put(KEY_PLACA, entry.getKey()); 
-                    result.put("totalRegistros", entry.getValue());
+                    result.put("parkingId", parkingId);
+                    result.put("nombre", row[1]);
+                    result.put("fecha", finalDate);
+                    result.put("totalVehiculos", row[2]);
+                    result.put("gananciasTotales", Money.toDecimal((Long) row[3]));
+                    if (includeDetail) {
+                        result.put("detalle", details.getOrDefault(parkingId, List.of()));
+                    }
                     return result;
                 })
-                .toList(); 
+                .toList();
     }
 
-    public Map<String, Object> getEarningsByPeriod(Long parkingId, String period) {
-        if (!parkingRepository.existsById(parkingId)) {
-            throw new ValidationException("Parqueadero no encontrado");
+    /**
+     * Igual que getTopVehiclesByParking(parkingId, limit, exact), con el resumen global.
+     */
+    public List<Map<String, Object>> getTopVehiclesAllParkings(int limit, boolean exact) {
+        if (exact) {
+            return getTopVehiclesAllParkings(limit);
         }
+        topPage(limit);
 
-        LocalDate startDate;
-        LocalDate endDate = LocalDate.now();
+        return topVehicleTracker.top(null, limit)
+                .map(entries -> entries.stream().map(this::toTrackedTopVehicle).toList())
+                .orElseGet(() -> getTopVehiclesAllParkings(limit));
+    }
 
-        switch (period.toLowerCase()) {
-            case "today" -> startDate = LocalDate.now();
-            case "week"  -> startDate = LocalDate.now().minusWeeks(1);
-            case "month" -> startDate = LocalDate.now().minusMonths(1);
-            case "year"  -> startDate = LocalDate.now().minusYears(1);
-            default -> throw new ValidationException("Período no válido. Use: today, week, month, year");
-        }
+    public List<Map<String, Object>> getTopVehiclesAllParkings(int limit) {
+        PageRequest page = topPage(limit);
 
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.atTime(23, 59, 59);
+        return reportResultCache.get(ReportResultCache.Key.of(null, "top-vehicles", limit), () ->
+                vehicleHistoryRepository.findTopPlates(page).stream()
+                        .map(this::toTopVehicle)
+                        .toList());
+    }
 
-        List<VehicleHistory> history = vehicleHistoryRepository.findByParkingIdAndExitDateTimeBetween(
-                parkingId, startDateTime, endDateTime);
+    public Map<String, Object> getEarningsByPeriod(Long parkingId, String period) {
+        validateParkingExists(parkingId);
 
-        BigDecimal totalEarnings = history.stream()
-                .map(VehicleHistory::getTotalCost)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = periodStartDate(period, endDate);
 
-        int totalVehicles = history.size();
+        RollupTotals totals = reportResultCache.get(
+                ReportResultCache.Key.of(parkingId, "earnings-period", startDate, endDate),
+                () -> parkingDailyRollupRepository.sumByParkingIdAndRollupDateBetween(parkingId, startDate, endDate));
 
         Map<String, Object> result = new HashMap<>();
         result.put("parkingId", parkingId);
         result.put("periodo", period);
         result.put("fechaInicio", startDate);
         result.put("fechaFin", endDate);
-        result.put("totalVehiculos", totalVehicles);
-        result.put("gananciasTotales", totalEarnings);
+        result.put("totalVehiculos", totals.vehicleCount());
+        result.put("gananciasTotales", Money.toDecimal(totals.revenue()));
+        result.put("permanenciaPromedioMinutos",
+                totals.vehicleCount() > 0 ? totals.totalDwellMinutes() / totals.vehicleCount() : 0L);
 
         return result;
     }
 
+    /**
+     * Los totales del día se sirven desde la caché de reportes; los vehículos
+     * estacionados cambian con cada entrada y se consultan siempre.
+     */
     public Map<String, Object> getGeneralStatistics() {
-        long totalParkings = parkingRepository.count();
-
         LocalDate today = LocalDate.now();
-        LocalDateTime startOfDay = today.atStartOfDay();
-        LocalDateTime endOfDay = today.atTime(23, 59, 59);
 
-        long totalVehiclesToday = vehicleHistoryRepository.countByExitDateTimeBetween(startOfDay, endOfDay);
+        Map<String, Object> cached = reportResultCache.get(ReportResultCache.Key.of(null, "statistics", today), () -> {
+            long totalParkings = parkingRepository.count();
+            RollupTotals totalsToday = parkingDailyRollupRepository.sumByRollupDate(today);
 
-        BigDecimal totalEarningsToday = vehicleHistoryRepository.findByExitDateTimeBetween(startOfDay, endOfDay)
-                .stream()
-                .map(VehicleHistory::getTotalCost)
-                .filter(Objects::nonNull)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+            Map<String, Object> totals = new HashMap<>();
+            totals.put("fecha", today);
+            totals.put("totalParqueaderos", totalParkings);
+            totals.put("vehiculosRegistradosHoy", totalsToday.vehicleCount());
+            totals.put("gananciasHoy", Money.toDecimal(totalsToday.revenue()));
+            return totals;
+        });
 
         long currentlyParked = parkingRecordRepository.countActiveByParkingId(null);
 
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("fecha", today);
-        stats.put("totalParqueaderos", totalParkings);
-        stats.put("vehiculosRegistradosHoy", totalVehiclesToday);
-        stats.put("gananciasHoy", totalEarningsToday);
+        Map<String, Object> stats = new HashMap<>(cached);
         stats.put("vehiculosEstacionados", currentlyParked);
 
         return stats;
     }
-}
\ No newline at end of file
+
+    /**
+     * Recalcula parking_daily_rollup desde vehicle_history para el rango de
+     * fechas indicado (ambas inclusive), por ejemplo para cargar datos previos
+     * a la tabla de totales diarios. Solo acepta días cerrados: el borrado y
+     * la carga no se coordinan con las salidas (addExit) de un día abierto.
+     */
+    @Transactional
+    public Map<String, Object> rebuildDailyRollup(LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new ValidationException("Rango de fechas no válido");
+        }
+        if (!reportResultCache.isClosedDay(endDate)) {
+            throw new ValidationException("Solo se pueden recalcular días cerrados");
+        }
+
+        int deleted = parkingDailyRollupRepository.deleteByRollupDateBetween(startDate, endDate);
+        int inserted = parkingDailyRollupRepository.insertFromHistory(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay());
+        log.info("Totales diarios recalculados entre {} y {}: {} filas eliminadas, {} filas generadas",
+                startDate, endDate, deleted, inserted);
+        int sketches = uniqueVehicleService.rebuild(startDate, endDate);
+        reportResultCache.invalidateAll();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("fechaInicio", startDate);
+        result.put("fechaFin", endDate);
+        result.put("filasGeneradas", inserted);
+        result.put("sketchesGenerados", sketches);
+        return result;
+    }
+
+    public void validateParkingExists(Long parkingId) {
+        if (parkingRepository.findCachedById(parkingId).isEmpty()) {
+            throw new ValidationException("Parqueadero no encontrado");
+        }
+    }
+
+    /**
+     * Fecha inicial de un período (today, week, month, year) que termina en endDate.
+     */
+    static LocalDate periodStartDate(String period, LocalDate endDate) {
+        return switch (period.toLowerCase()) {
+            case "today" -> endDate;
+            case "week"  -> endDate.minusWeeks(1);
+            case "month" -> endDate.minusMonths(1);
+            case "year"  -> endDate.minusYears(1);
+            default -> throw new ValidationException("Período no válido. Use: today, week, month, year");
+        };
+    }
+
+    /**
+     * Rango opcional de los vehículos de primera vez: ambas fechas o ninguna.
+     */
+    static void validateVisitRange(LocalDate from, LocalDate to) {
+        if ((from == null) != (to == null) || (from != null && from.isAfter(to))) {
+            throw new ValidationException("Rango de fechas no válido");
+        }
+    }
+
+    static void validateMinVisits(long minVisits) {
+        if (minVisits < 2) {
+            throw new ValidationException("La cantidad mínima de visitas debe ser mayor a uno");
+        }
+    }
+
+    private Map<String, Object> toEarningsDetail(VehicleHistory h) {
+        Map<String, Object> detail = new HashMap<>();
+        detail.put(KEY_PLACA, h.getLicensePlate());
+        detail.put("entrada", h.getEntryDateTime());
+        detail.put("salida", h.getExitDateTime());
+        detail.put("costo", Money.toDecimal(h.getTotalCost()));
+        return detail;
+    }
+
+    private PageRequest topPage(int limit) {
+        if (limit < 1) {
+            throw new ValidationException("El límite debe ser mayor a cero");
+        }
+        return PageRequest.of(0, limit);
+    }
+
+    private PageRequest visitsPage(int page, int size) {
+        if (page < 0) {
+            throw new ValidationException("La página no puede ser negativa");
+        }
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ValidationException("El tamaño de página debe estar entre 1 y " + MAX_PAGE_SIZE);
+        }
+        return PageRequest.of(page, size);
+    }
+
+    private static Map<String, Object> toPage(Slice<Object[]> slice, Function<Object[], Map<String, Object>> mapper) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("pagina", slice.getNumber());
+        result.put("tamano", slice.getSize());
+        result.put("hayMas", slice.hasNext());
+        result.put("vehiculos", slice.getContent().stream().map(mapper).toList());
+        return result;
+    }
+
+    private Map<String, Object> toTopVehicle(Object[] row) {
+        Map<String, Object> result = new HashMap<>();
+        result.put(KEY_PLACA, row[0]);
+        result.put("totalRegistros", row[1]);
+        return result;
+    }
+
+    private Map<String, Object> toTrackedTopVehicle(SpaceSaving.Entry entry) {
+        Map<String, Object> result = new HashMap<>();
+        result.put(KEY_PLACA, entry.item());
+        result.put("totalRegistros", entry.count());
+        result.put("errorMaximo", entry.error());
+        return result;
+    }
+}
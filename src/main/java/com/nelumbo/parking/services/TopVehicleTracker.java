@@ -0,0 +1,264 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.entities.TopVehicleSnapshot;
+import com.nelumbo.parking.repositories.TopVehicleSnapshotRepository;
+import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import com.nelumbo.parking.utils.SpaceSaving;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Top de vehículos en memoria: un resumen Space-Saving por parqueadero y uno
+ * global. La base de los resúmenes sale siempre de la base de datos: el último
+ * snapshot de top_vehicle_snapshot más las salidas del historial hasta un corte
+ * (si no hay snapshot, los conteos exactos del historial hasta el corte). Sobre
+ * esa base se aplican las salidas confirmadas en este nodo a partir del corte.
+ * Cada refresco periódico recalcula la base, así cada nodo ve también las
+ * salidas registradas por los demás.
+ * El snapshot lo escribe un solo nodo a la vez (advisory lock de Postgres) y
+ * desde la base de datos, nunca desde la memoria de un nodo, para que los
+ * nodos no se pisen entre sí.
+ * Mientras no se haya cargado, o si se piden más posiciones que contadores,
+ * las consultas deben resolverse con el reporte exacto.
+ */
+@Component
+@Slf4j
+public class TopVehicleTracker {
+
+    static final long GLOBAL_SCOPE = 0L;
+
+    // Clave del advisory lock que serializa la escritura del snapshot entre nodos
+    static final long SNAPSHOT_LOCK_KEY = 0x746f705f76656869L;
+
+    /**
+     * El corte queda atrás del reloj lo mismo que el margen de días cerrados:
+     * las salidas anteriores ya están en el historial aunque este se escriba
+     * en diferido, y las posteriores se cuentan desde la memoria del nodo.
+     */
+    static final Duration HISTORY_LAG = ReportResultCache.CLOSED_DAY_GRACE;
+
+    private final TopVehicleSnapshotRepository topVehicleSnapshotRepository;
+    private final VehicleHistoryRepository vehicleHistoryRepository;
+    private final int capacity;
+
+    // Protegidos por this
+    private final Map<Long, SpaceSaving> scopes = new HashMap<>();
+    private final List<RecentExit> recentExits = new ArrayList<>();
+    private LocalDateTime baseUntil;
+
+    private record RecentExit(Long parkingId, String licensePlate, LocalDateTime exitDateTime) {
+    }
+
+    private record Base(Map<Long, SpaceSaving> summaries, Set<Long> changed, LocalDateTime until, int replayed) {
+    }
+
+    public TopVehicleTracker(
+            TopVehicleSnapshotRepository topVehicleSnapshotRepository,
+            VehicleHistoryRepository vehicleHistoryRepository,
+            @Value("${app.report.top-vehicles.capacity:1000}") int capacity
+    ) {
+        this.topVehicleSnapshotRepository = topVehicleSnapshotRepository;
+        this.vehicleHistoryRepository = vehicleHistoryRepository;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Cuenta la salida cuando la transacción actual confirma.
+     */
+    public void recordExitOnCommit(Long parkingId, String licensePlate, LocalDateTime exitDateTime) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            recordExit(parkingId, licensePlate, exitDateTime);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordExit(parkingId, licensePlate, exitDateTime);
+            }
+        });
+    }
+
+    /**
+     * Las salidas anteriores al corte de la base ya están contadas por el
+     * historial; las demás se guardan para volver a aplicarlas sobre la
+     * siguiente base, incluso si se confirman mientras esta se calcula.
+     */
+    synchronized void recordExit(Long parkingId, String licensePlate, LocalDateTime exitDateTime) {
+        if (baseUntil != null && exitDateTime.isBefore(baseUntil)) {
+            return;
+        }
+        recentExits.add(new RecentExit(parkingId, licensePlate, exitDateTime));
+        if (baseUntil != null) {
+            offer(scopes, parkingId, licensePlate);
+        }
+    }
+
+    /**
+     * Top del parqueadero, o global si parkingId es null.
+     * @return vacío si el resumen no puede responder y se debe usar el reporte exacto
+     */
+    public synchronized Optional<List<SpaceSaving.Entry>> top(Long parkingId, int limit) {
+        if (baseUntil == null || limit > capacity) {
+            return Optional.empty();
+        }
+        SpaceSaving summary = scopes.get(parkingId != null ? parkingId : GLOBAL_SCOPE);
+        return Optional.of(summary != null ? summary.top(limit) : List.of());
+    }
+
+    @Transactional(readOnly = true)
+    public void load() {
+        Base base = computeBase(cutoff());
+        install(base);
+        log.info("Top de vehículos cargado: {} resúmenes, {} salidas reaplicadas",
+                base.summaries().size(), base.replayed());
+    }
+
+    /**
+     * Avanza el snapshot hasta el corte actual, si este nodo obtiene el lock
+     * de escritura, y refresca la base en memoria.
+     * @return cantidad de resúmenes guardados
+     */
+    @Transactional
+    public int snapshot() {
+        boolean writer = topVehicleSnapshotRepository.tryLock(SNAPSHOT_LOCK_KEY);
+        Base base = computeBase(cutoff());
+        int saved = writer ? save(base) : 0;
+        install(base);
+        return saved;
+    }
+
+    /**
+     * Descarta el resumen de un parqueadero eliminado.
+     */
+    @Transactional
+    public void removeParking(Long parkingId) {
+        topVehicleSnapshotRepository.lock(SNAPSHOT_LOCK_KEY);
+        topVehicleSnapshotRepository.deleteByScopeId(parkingId);
+        synchronized (this) {
+            scopes.remove(parkingId);
+        }
+    }
+
+    private static LocalDateTime cutoff() {
+        return LocalDateTime.now().minus(HISTORY_LAG).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    private Base computeBase(LocalDateTime until) {
+        Map<Long, SpaceSaving> summaries = new HashMap<>();
+        Set<Long> changed = new HashSet<>();
+        Optional<LocalDateTime> latestSnapshot = topVehicleSnapshotRepository.findLatestTakenAt();
+        if (latestSnapshot.isEmpty()) {
+            seedFromHistory(summaries, until);
+            changed.addAll(summaries.keySet());
+            return new Base(summaries, changed, until, 0);
+        }
+
+        Map<Long, List<SpaceSaving.Entry>> entries = new HashMap<>();
+        for (TopVehicleSnapshot row : topVehicleSnapshotRepository.findAll()) {
+            entries.computeIfAbsent(row.getScopeId(), id -> new ArrayList<>())
+                    .add(new SpaceSaving.Entry(row.getLicensePlate(), row.getHits(), row.getMaxError()));
+        }
+        entries.forEach((scopeId, scopeEntries) -> summaries.put(scopeId, SpaceSaving.restore(capacity, scopeEntries)));
+
+        // Otro nodo pudo guardar con un corte posterior al nuestro
+        LocalDateTime since = latestSnapshot.get();
+        if (!since.isBefore(until)) {
+            return new Base(summaries, changed, since, 0);
+        }
+        int replayed = replay(summaries, changed, since, until);
+        return new Base(summaries, changed, until, replayed);
+    }
+
+    // Reescribe solo los resúmenes que cambiaron; los demás siguen valiendo hasta el nuevo corte
+    private int save(Base base) {
+        for (Long scopeId : base.changed()) {
+            topVehicleSnapshotRepository.deleteByScopeId(scopeId);
+            topVehicleSnapshotRepository.saveAll(base.summaries().get(scopeId).entries().stream()
+                    .map(counter -> TopVehicleSnapshot.builder()
+                            .scopeId(scopeId)
+                            .licensePlate(counter.item())
+                            .hits(counter.count())
+                            .maxError(counter.error())
+                            .takenAt(base.until())
+                            .build())
+                    .toList());
+        }
+        return base.changed().size();
+    }
+
+    private synchronized void install(Base base) {
+        recentExits.removeIf(exit -> exit.exitDateTime().isBefore(base.until()));
+        for (RecentExit exit : recentExits) {
+            offer(base.summaries(), exit.parkingId(), exit.licensePlate());
+        }
+        scopes.clear();
+        scopes.putAll(base.summaries());
+        baseUntil = base.until();
+    }
+
+    private void offer(Map<Long, SpaceSaving> summaries, Long parkingId, String licensePlate) {
+        for (Long scopeId : List.of(parkingId, GLOBAL_SCOPE)) {
+            summaries.computeIfAbsent(scopeId, id -> new SpaceSaving(capacity)).offer(licensePlate);
+        }
+    }
+
+    private int replay(Map<Long, SpaceSaving> summaries, Set<Long> changed, LocalDateTime since, LocalDateTime until) {
+        int replayed = 0;
+        try (Stream<Object[]> rows = vehicleHistoryRepository.streamPlatesByExitDateTimeBetween(since, until)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                Long parkingId = (Long) row[0];
+                offer(summaries, parkingId, (String) row[2]);
+                changed.add(parkingId);
+                changed.add(GLOBAL_SCOPE);
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+
+    // Conteos exactos del historial: se conservan los `capacity` mayores de cada parqueadero
+    private void seedFromHistory(Map<Long, SpaceSaving> summaries, LocalDateTime until) {
+        Map<Long, List<SpaceSaving.Entry>> entries = new HashMap<>();
+        try (Stream<Object[]> rows = vehicleHistoryRepository.streamPlateCountsByParking(until)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                List<SpaceSaving.Entry> scopeEntries = entries.computeIfAbsent((Long) row[0], id -> new ArrayList<>());
+                if (scopeEntries.size() < capacity) {
+                    scopeEntries.add(new SpaceSaving.Entry((String) row[1], (Long) row[2], 0));
+                }
+            }
+        }
+        try (Stream<Object[]> rows = vehicleHistoryRepository.streamTopPlates(until)) {
+            List<SpaceSaving.Entry> global = new ArrayList<>();
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext() && global.size() < capacity) {
+                Object[] row = iterator.next();
+                global.add(new SpaceSaving.Entry((String) row[0], (Long) row[1], 0));
+            }
+            if (!global.isEmpty()) {
+                entries.put(GLOBAL_SCOPE, global);
+            }
+        }
+        entries.forEach((scopeId, scopeEntries) -> summaries.put(scopeId, SpaceSaving.restore(capacity, scopeEntries)));
+    }
+}
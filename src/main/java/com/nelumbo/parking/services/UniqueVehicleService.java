@@ -0,0 +1,189 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingDailySketchRepository;
+import com.nelumbo.parking.repositories.ParkingRepository;
+import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import com.nelumbo.parking.utils.HyperLogLog;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Vehículos únicos por parqueadero y rango de fechas, estimados con sketches
+ * HyperLogLog diarios (parking_daily_sketch) en lugar de COUNT(DISTINCT)
+ * sobre vehicle_history. Una placa que pasa por varios días o parqueaderos
+ * del rango se cuenta una sola vez.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UniqueVehicleService {
+
+    // Cuantil normal para un intervalo de confianza del 95%
+    private static final double Z_95 = 1.96;
+
+    private final ParkingDailySketchRepository parkingDailySketchRepository;
+    private final VehicleHistoryRepository vehicleHistoryRepository;
+    private final ParkingRepository parkingRepository;
+    private final ReportResultCache reportResultCache;
+
+    /**
+     * Agrega la placa al sketch del parqueadero y día. Solo escribe si el
+     * registro correspondiente aumenta; se llama en la transacción de la salida.
+     */
+    public void recordExit(Long parkingId, LocalDate exitDate, String licensePlate) {
+        long hash = HyperLogLog.hash(licensePlate);
+        parkingDailySketchRepository.updateRegister(parkingId, exitDate,
+                HyperLogLog.registerIndex(hash), HyperLogLog.rank(hash));
+    }
+
+    /**
+     * Estima los vehículos únicos del rango para los parqueaderos indicados
+     * (todos si la lista está vacía), opcionalmente agrupados por día, semana
+     * o mes.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getUniqueVehicles(List<Long> parkingIds, LocalDate startDate, LocalDate endDate,
+                                                 String groupBy) {
+        if (startDate == null || endDate == null || startDate.isAfter(endDate)) {
+            throw new ValidationException("Rango de fechas no válido");
+        }
+        List<Long> parkings = parkingIds != null ? parkingIds.stream().distinct().sorted().toList() : List.of();
+        for (Long parkingId : parkings) {
+            if (parkingRepository.findCachedById(parkingId).isEmpty()) {
+                throw new ValidationException("Parqueadero no encontrado");
+            }
+        }
+        String grouping = groupBy != null ? groupBy.toLowerCase() : null;
+        if (grouping != null && !List.of("day", "week", "month").contains(grouping)) {
+            throw new ValidationException("Agrupación no válida. Use: day, week, month");
+        }
+
+        ReportResultCache.Key key = ReportResultCache.Key.of(parkings.size() == 1 ? parkings.getFirst() : null,
+                "unique-vehicles", parkings, startDate, endDate, grouping);
+        if (reportResultCache.isClosedDay(endDate)) {
+            return reportResultCache.getImmutable(key, () -> estimate(parkings, startDate, endDate, grouping));
+        }
+        return reportResultCache.get(key, () -> estimate(parkings, startDate, endDate, grouping));
+    }
+
+    /**
+     * Regenera los sketches del rango desde vehicle_history.
+     * @return cantidad de sketches generados
+     */
+    @Transactional
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        parkingDailySketchRepository.deleteBySketchDateBetween(startDate, endDate);
+
+        int generated = 0;
+        Long currentParking = null;
+        LocalDate currentDate = null;
+        HyperLogLog sketch = null;
+        try (Stream<Object[]> rows = vehicleHistoryRepository.streamPlatesByExitDateTimeBetween(
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay())) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                Long parkingId = (Long) row[0];
+                LocalDate date = ((LocalDateTime) row[1]).toLocalDate();
+                if (!parkingId.equals(currentParking) || !date.equals(currentDate)) {
+                    if (sketch != null) {
+                        parkingDailySketchRepository.insertSketch(currentParking, currentDate, sketch.toBytes());
+                        generated++;
+                    }
+                    currentParking = parkingId;
+                    currentDate = date;
+                    sketch = new HyperLogLog();
+                }
+                sketch.add((String) row[2]);
+            }
+        }
+        if (sketch != null) {
+            parkingDailySketchRepository.insertSketch(currentParking, currentDate, sketch.toBytes());
+            generated++;
+        }
+
+        log.info("Sketches de vehículos únicos recalculados entre {} y {}: {} generados", startDate, endDate, generated);
+        return generated;
+    }
+
+    private Map<String, Object> estimate(List<Long> parkingIds, LocalDate startDate, LocalDate endDate,
+                                         String grouping) {
+        HyperLogLog total = new HyperLogLog();
+        List<Map<String, Object>> detail = new ArrayList<>();
+        LocalDate currentBucket = null;
+        HyperLogLog bucket = null;
+
+        try (Stream<Object[]> rows = parkingIds.isEmpty()
+                ? parkingDailySketchRepository.streamBySketchDateBetween(startDate, endDate)
+                : parkingDailySketchRepository.streamByParkingIdInAndSketchDateBetween(parkingIds, startDate, endDate)) {
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                byte[] registers = (byte[]) row[1];
+                total.merge(registers);
+                if (grouping == null) {
+                    continue;
+                }
+                LocalDate rowBucket = bucketStart((LocalDate) row[0], grouping);
+                if (!rowBucket.equals(currentBucket)) {
+                    if (bucket != null) {
+                        detail.add(toEstimate(Map.of("periodo", currentBucket), bucket.estimate()));
+                    }
+                    currentBucket = rowBucket;
+                    bucket = new HyperLogLog();
+                }
+                bucket.merge(registers);
+            }
+        }
+        if (bucket != null) {
+            detail.add(toEstimate(Map.of("periodo", currentBucket), bucket.estimate()));
+        }
+
+        Map<String, Object> base = new HashMap<>();
+        base.put("parqueaderos", parkingIds.isEmpty() ? "todos" : parkingIds);
+        base.put("fechaInicio", startDate);
+        base.put("fechaFin", endDate);
+        base.put("aproximado", true);
+        base.put("errorEstandar", Math.round(HyperLogLog.STANDARD_ERROR * 10000) / 10000.0);
+        Map<String, Object> result = toEstimate(base, total.estimate());
+        if (grouping != null) {
+            result.put("agrupacion", grouping);
+            result.put("detalle", detail);
+        }
+        return result;
+    }
+
+    // Estimación con su margen de error al 95%
+    private static Map<String, Object> toEstimate(Map<String, Object> fields, long estimate) {
+        long margin = Math.round(Z_95 * HyperLogLog.STANDARD_ERROR * estimate);
+        Map<String, Object> result = new HashMap<>(fields);
+        result.put("vehiculosUnicos", estimate);
+        result.put("margenError95", margin);
+        result.put("minimo", Math.max(0, estimate - margin));
+        result.put("maximo", estimate + margin);
+        return result;
+    }
+
+    static LocalDate bucketStart(LocalDate date, String grouping) {
+        return switch (Objects.requireNonNull(grouping)) {
+            case "week" -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case "month" -> date.withDayOfMonth(1);
+            default -> date;
+        };
+    }
+}
@@ -0,0 +1,430 @@
+package com.nelumbo.parking.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nelumbo.parking.entities.VehicleHistory;
+import com.nelumbo.parking.repositories.ParkingRecordRepository;
+import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Escritura diferida del historial de vehículos (opcional, ver
+ * app.history.write-behind.*). El historial de cada salida se anota en un
+ * journal en disco antes de confirmar la transacción, entra a una cola
+ * acotada cuando confirma y se inserta en vehicle_history por lotes cada
+ * N ms o al acumular M filas. Al arrancar se reinsertan las filas del journal
+ * cuya salida quedó confirmada en parking_records. Los reportes pueden ver el
+ * historial con el retraso de un lote; por eso cada lote escrito vuelve a
+ * invalidar la caché de reportes de sus parqueaderos.
+ * Con el modo desactivado o la cola llena, el historial se guarda en la misma
+ * transacción de la salida.
+ */
+@Component
+@Slf4j
+public class VehicleHistoryAppender {
+
+    private static final String JOURNAL_FILE = "history.journal";
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".segment";
+
+    private final VehicleHistoryRepository vehicleHistoryRepository;
+    private final ParkingRecordRepository parkingRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final ReportResultCache reportResultCache;
+    private final boolean enabled;
+    private final int capacity;
+    private final int batchSize;
+    private final Path journalDir;
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    // Filas anotadas en el journal cuya transacción aún no termina; se guarda con journalLock
+    private final Set<VehicleHistory> uncommitted = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final Object journalLock = new Object();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ExecutorService flusher;
+    private final Timer flushTimer;
+
+    private FileChannel journal;
+    private long segmentSequence;
+    private volatile long inFlightSince;
+
+    record Pending(VehicleHistory history, long enqueuedAt) {
+    }
+
+    public VehicleHistoryAppender(
+            VehicleHistoryRepository vehicleHistoryRepository,
+            ParkingRecordRepository parkingRecordRepository,
+            ObjectMapper objectMapper,
+            ReportResultCache reportResultCache,
+            MeterRegistry meterRegistry,
+            @Value("${app.history.write-behind.enabled:false}") boolean enabled,
+            @Value("${app.history.write-behind.capacity:10000}") int capacity,
+            @Value("${app.history.write-behind.batch-size:500}") int batchSize,
+            @Value("${app.history.write-behind.journal-dir:./data/history-journal}") String journalDir
+    ) {
+        this.vehicleHistoryRepository = vehicleHistoryRepository;
+        this.parkingRecordRepository = parkingRecordRepository;
+        this.objectMapper = objectMapper;
+        this.reportResultCache = reportResultCache;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.journalDir = Path.of(journalDir);
+        this.flusher = enabled
+                ? Executors.newSingleThreadExecutor(Thread.ofPlatform().name("history-flusher").daemon().factory())
+                : null;
+
+        Gauge.builder("parking.history.queue.depth", reserved, AtomicInteger::get)
+                .description("Filas de historial pendientes de escribir")
+                .register(meterRegistry);
+        Gauge.builder("parking.history.flush.lag", this, VehicleHistoryAppender::getFlushLagMs)
+                .description("Antigüedad en ms de la fila de historial pendiente más vieja")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("parking.history.flush")
+                .description("Duración de cada escritura por lotes del historial")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra el historial de una salida. En modo diferido la fila se anota
+     * en el journal antes de confirmar la transacción actual y se encola solo
+     * si confirma.
+     */
+    public void append(VehicleHistory history) {
+        if (!enabled || !tryReserve()) {
+            vehicleHistoryRepository.save(history);
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (journalLock) {
+                writeJournal(history);
+                queue.add(new Pending(history, System.currentTimeMillis()));
+            }
+            requestFlushIfFull();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                synchronized (journalLock) {
+                    writeJournal(history);
+                    uncommitted.add(history);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                boolean committed = status == STATUS_COMMITTED;
+                // Se encola con el lock para que una rotación no borre la fila del journal entre ambos pasos
+                synchronized (journalLock) {
+                    uncommitted.remove(history);
+                    if (committed) {
+                        queue.add(new Pending(history, System.currentTimeMillis()));
+                    }
+                }
+                if (committed) {
+                    requestFlushIfFull();
+                } else {
+                    reserved.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    /**
+     * Escribe todas las filas pendientes en lotes de batch-size.
+     * @return cantidad de filas escritas
+     */
+    public int flush() {
+        flushLock.lock();
+        try {
+            List<Pending> drained = new ArrayList<>();
+            Path segment;
+            synchronized (journalLock) {
+                Pending pending;
+                while ((pending = queue.poll()) != null) {
+                    drained.add(pending);
+                }
+                if (drained.isEmpty()) {
+                    return 0;
+                }
+                segment = rotateJournal();
+            }
+
+            inFlightSince = drained.getFirst().enqueuedAt();
+            int written = 0;
+            try {
+                for (int from = 0; from < drained.size(); from += batchSize) {
+                    List<Pending> chunk = drained.subList(from, Math.min(from + batchSize, drained.size()));
+                    flushTimer.record(() -> vehicleHistoryRepository.saveAll(chunk.stream().map(Pending::history).toList()));
+                    written += chunk.size();
+                    reserved.addAndGet(-chunk.size());
+                    invalidateReports(chunk.stream().map(Pending::history).toList());
+                }
+            } catch (RuntimeException e) {
+                log.error("Error escribiendo historial diferido, {} filas se reintentarán: {}",
+                        drained.size() - written, e.getMessage());
+                requeue(drained.subList(written, drained.size()));
+            } finally {
+                inFlightSince = 0;
+            }
+            deleteSegment(segment);
+            return written;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Se recupera al crear el componente, antes de que se registren nuevas salidas
+    @PostConstruct
+    void recoverOnStartup() {
+        if (!enabled) {
+            if (Files.isDirectory(journalDir)) {
+                log.warn("Historial diferido desactivado: el journal en {} se recuperará al volver a activarlo",
+                        journalDir);
+            }
+            return;
+        }
+        recover();
+    }
+
+    /**
+     * Reinserta las filas que quedaron en el journal de una ejecución anterior.
+     * Se omiten las que ya estaban en la base de datos y las de salidas que
+     * no llegaron a confirmarse. Las filas se insertan como nuevas: un id
+     * asignado en un intento fallido no existe en la tabla.
+     * @return cantidad de filas recuperadas
+     */
+    public int recover() {
+        if (!Files.isDirectory(journalDir)) {
+            return 0;
+        }
+        flushLock.lock();
+        try {
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(journalDir,
+                    SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+                stream.forEach(files::add);
+            }
+            synchronized (journalLock) {
+                closeJournal();
+                Path current = journalDir.resolve(JOURNAL_FILE);
+                if (Files.exists(current)) {
+                    files.add(current);
+                }
+            }
+
+            List<VehicleHistory> missing = new ArrayList<>();
+            // Una fila puede estar en más de un archivo si se reintentó o se anotó durante una rotación
+            Set<String> seen = new HashSet<>();
+            for (Path file : files) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    VehicleHistory history = objectMapper.readValue(line, VehicleHistory.class);
+                    history.setId(null);
+                    if (seen.add(history.getLicensePlate() + "|" + history.getEntryDateTime())
+                            && !vehicleHistoryRepository.existsByLicensePlateAndEntryDateTime(
+                                    history.getLicensePlate(), history.getEntryDateTime())
+                            && exitCommitted(history)) {
+                        missing.add(history);
+                    }
+                }
+            }
+            for (int from = 0; from < missing.size(); from += batchSize) {
+                vehicleHistoryRepository.saveAll(missing.subList(from, Math.min(from + batchSize, missing.size())));
+            }
+            invalidateReports(missing);
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+            if (!missing.isEmpty()) {
+                log.warn("Recuperadas {} filas de historial desde el journal", missing.size());
+            }
+            return missing.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el journal del historial", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        return reserved.get();
+    }
+
+    public long getFlushLagMs() {
+        long oldest = inFlightSince;
+        if (oldest == 0) {
+            Pending head = queue.peek();
+            oldest = head != null ? head.enqueuedAt() : 0;
+        }
+        return oldest == 0 ? 0 : System.currentTimeMillis() - oldest;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        flush();
+        synchronized (journalLock) {
+            closeJournal();
+        }
+    }
+
+    /**
+     * Indica si la salida de la fila quedó confirmada. El journal se escribe
+     * antes del commit, así que puede tener filas de salidas que terminaron
+     * en rollback. Se compara con un margen de 1 ms porque la columna guarda
+     * microsegundos.
+     */
+    private boolean exitCommitted(VehicleHistory history) {
+        LocalDateTime exit = history.getExitDateTime();
+        return parkingRecordRepository.existsExited(history.getVehicleId(), history.getParkingId(),
+                exit.minusNanos(1_000_000), exit.plusNanos(1_000_000));
+    }
+
+    private void invalidateReports(List<VehicleHistory> written) {
+        if (written.isEmpty()) {
+            return;
+        }
+        reportResultCache.invalidateParkings(written.stream()
+                .map(VehicleHistory::getParkingId)
+                .collect(Collectors.toSet()));
+    }
+
+    private boolean tryReserve() {
+        int current;
+        do {
+            current = reserved.get();
+            if (current >= capacity) {
+                log.warn("Cola de historial llena ({}), se escribe de forma sincrónica", capacity);
+                return false;
+            }
+        } while (!reserved.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void requestFlushIfFull() {
+        if (reserved.get() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Devuelve a la cola las filas de un lote fallido. saveAll ya pudo
+     * asignarles ids de la secuencia que no existen en la tabla; se limpian
+     * para que el reintento las inserte como nuevas en lugar de hacer merge.
+     */
+    private void requeue(List<Pending> failed) {
+        synchronized (journalLock) {
+            for (Pending pending : failed) {
+                pending.history().setId(null);
+                writeJournal(pending.history());
+                queue.add(pending);
+            }
+        }
+    }
+
+    private void writeJournal(VehicleHistory history) {
+        try {
+            if (journal == null) {
+                Files.createDirectories(journalDir);
+                journal = FileChannel.open(journalDir.resolve(JOURNAL_FILE),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            BufferedWriter writer = new BufferedWriter(Channels.newWriter(journal, StandardCharsets.UTF_8));
+            writer.write(objectMapper.writeValueAsString(history));
+            writer.newLine();
+            writer.flush();
+            journal.force(false);
+        } catch (IOException e) {
+            log.error("No se pudo escribir el journal del historial: {}", e.getMessage());
+        }
+    }
+
+    private Path rotateJournal() {
+        if (journal == null) {
+            return null;
+        }
+        closeJournal();
+        Path segment = journalDir.resolve(SEGMENT_PREFIX + System.currentTimeMillis() + "-" + segmentSequence++
+                + SEGMENT_SUFFIX);
+        try {
+            Files.move(journalDir.resolve(JOURNAL_FILE), segment);
+        } catch (IOException e) {
+            log.error("No se pudo rotar el journal del historial: {}", e.getMessage());
+            return null;
+        }
+        // El segmento se borra al terminar el lote: las filas aún sin confirmar pasan al journal nuevo
+        uncommitted.forEach(this::writeJournal);
+        return segment;
+    }
+
+    private void deleteSegment(Path segment) {
+        if (segment == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            log.error("No se pudo eliminar el segmento {} del journal: {}", segment, e.getMessage());
+        }
+    }
+
+    private void closeJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.error("No se pudo cerrar el journal del historial: {}", e.getMessage());
+        }
+        journal = null;
+    }
+}
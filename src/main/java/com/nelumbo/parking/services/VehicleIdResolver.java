@@ -0,0 +1,51 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.config.CacheConfig;
+import com.nelumbo.parking.repositories.VehicleRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Objects;
+
+/**
+ * Resuelve el id del vehículo de una placa. Una placa conocida se responde
+ * desde la caché sin consultar la base de datos; una placa nueva cuesta un
+ * único INSERT ... ON CONFLICT que crea o recupera el vehículo.
+ */
+@Component
+public class VehicleIdResolver {
+
+    private final VehicleRepository vehicleRepository;
+    private final Cache vehicleIds;
+
+    public VehicleIdResolver(VehicleRepository vehicleRepository, CacheManager cacheManager) {
+        this.vehicleRepository = vehicleRepository;
+        this.vehicleIds = Objects.requireNonNull(cacheManager.getCache(CacheConfig.VEHICLES_CACHE),
+                "No existe la caché " + CacheConfig.VEHICLES_CACHE);
+    }
+
+    public Long resolve(String licensePlate) {
+        Long cached = vehicleIds.get(licensePlate, Long.class);
+        if (cached != null) {
+            return cached;
+        }
+
+        Long vehicleId = vehicleRepository.upsertIdByLicensePlate(licensePlate);
+        vehicleIds.put(licensePlate, vehicleId);
+        // Si la transacción se revierte el vehículo pudo no quedar creado
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        vehicleIds.evict(licensePlate);
+                    }
+                }
+            });
+        }
+        return vehicleId;
+    }
+}
@@ -1,38 +1,75 @@
 package com.nelumbo.parking.services;
 
+import com.nelumbo.parking.dto.ParkedVehicleRow;
 import com.nelumbo.parking.dto.VehicleEntryRequest;
+import com.nelumbo.parking.dto.VehicleEvent;
+import com.nelumbo.parking.dto.VehicleEventResult;
 import com.nelumbo.parking.dto.VehicleExitRequest;
+import com.nelumbo.parking.dto.VehicleResponse;
 import com.nelumbo.parking.entities.Parking;
 import com.nelumbo.parking.entities.ParkingRecord;
 import com.nelumbo.parking.entities.Vehicle;
 import com.nelumbo.parking.entities.VehicleHistory;
 import com.nelumbo.parking.entities.ParkingRecord.ParkingStatus;
 import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingDailyRollupRepository;
 import com.nelumbo.parking.repositories.ParkingRecordRepository;
 import com.nelumbo.parking.repositories.ParkingRepository;
-import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import com.nelumbo.parking.repositories.ParkingVehicleVisitRepository;
 import com.nelumbo.parking.repositories.VehicleRepository;
+import com.nelumbo.parking.utils.Money;
+import com.nelumbo.parking.utils.TariffCalculator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class VehicleService {
 
+    private static final Pattern LICENSE_PLATE_PATTERN = Pattern.compile("^[A-Z0-9]{6}$");
+    private static final Pattern PLATE_PREFIX_PATTERN = Pattern.compile("^[A-Z0-9]{0,6}$");
+    private static final int MAX_PARKED_PAGE_SIZE = 500;
+    private static final String PLATE_ALREADY_PARKED =
+            "No se puede Registrar Ingreso, ya existe la placa en este u otro parqueadero";
+
+    // Límites del rango de entrada cuando no se filtra
+    private static final LocalDateTime MIN_ENTRY = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_ENTRY = LocalDateTime.of(9999, 12, 31, 0, 0);
+
     private final VehicleRepository vehicleRepository;
     private final ParkingRepository parkingRepository;
     private final ParkingRecordRepository parkingRecordRepository;
-    private final VehicleHistoryRepository vehicleHistoryRepository;
-    private final EmailService emailService;
+    private final ParkingDailyRollupRepository parkingDailyRollupRepository;
+    private final ParkingVehicleVisitRepository parkingVehicleVisitRepository;
+    private final VehicleHistoryAppender vehicleHistoryAppender;
+    private final EmailOutboxService emailOutboxService;
+    private final OccupancyRegistry occupancyRegistry;
+    private final ActivePlateIndex activePlateIndex;
+    private final VehicleIdResolver vehicleIdResolver;
+    private final ReportResultCache reportResultCache;
+    private final UniqueVehicleService uniqueVehicleService;
+    private final TopVehicleTracker topVehicleTracker;
+    private final PlatformTransactionManager transactionManager;
 
     @Transactional
     public Long registerVehicleEntry(VehicleEntryRequest request) {
@@ -40,27 +77,76 @@ public class VehicleService {
         String licensePlate = request.getLicensePlate().toUpperCase();
 
         
-        Parking parking = parkingRepository.findById(request.getParkingId())
-                .orElseThrow(() -> new ValidationException("Parqueadero no encontrado"));
+        Parking parking = findParking(request.getParkingId());
+
+        return registerEntry(licensePlate, parking);
+    }
+
+    @Transactional
+    public String registerVehicleExit(VehicleExitRequest request) {
+        String licensePlate = request.getLicensePlate().toUpperCase();
+
+        
+        Parking parking = findParking(request.getParkingId());
+
+        return registerExit(licensePlate, parking);
+    }
+
+    /**
+     * Procesa en orden un lote de ingresos y salidas. Cada evento se confirma
+     * en su propia transacción, así un evento fallido no deshace los
+     * anteriores ni mantiene bloqueados los cupos hasta el final del lote.
+     * Los eventos rechazados se reportan individualmente.
+     */
+    public List<VehicleEventResult> registerVehicleEvents(List<VehicleEvent> events) {
+        Map<Long, Parking> parkings = new HashMap<>();
+        List<VehicleEventResult> results = new ArrayList<>(events.size());
+        TransactionTemplate eventTransaction = new TransactionTemplate(transactionManager);
+        eventTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        for (int i = 0; i < events.size(); i++) {
+            VehicleEvent event = events.get(i);
+            VehicleEventResult.VehicleEventResultBuilder result = VehicleEventResult.builder()
+                    .indice(i)
+                    .tipo(event.getType());
+            try {
+                String licensePlate = validateEvent(event);
+                result.placa(licensePlate);
+                Parking parking = parkings.computeIfAbsent(event.getParkingId(), this::findParking);
+
+                if (event.getType() == VehicleEvent.EventType.ENTRY) {
+                    result.registroId(eventTransaction.execute(status -> registerEntry(licensePlate, parking)))
+                            .mensaje("Ingreso registrado");
+                } else {
+                    result.mensaje(eventTransaction.execute(status -> registerExit(licensePlate, parking)));
+                }
+                result.exitoso(true);
+            } catch (ValidationException e) {
+                result.exitoso(false).mensaje(e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("Error al procesar el evento {} del lote: {}", i, e.getMessage(), e);
+                result.exitoso(false).mensaje("Error inesperado al procesar el evento");
+            }
+            results.add(result.build());
+        }
+
+        return results;
+    }
 
+    private Long registerEntry(String licensePlate, Parking parking) {
         
-        if (parkingRecordRepository.findActiveByLicensePlate(licensePlate).isPresent()) {
-            throw new ValidationException("No se puede Registrar Ingreso, ya existe la placa en este u otro parqueadero");
+        if (!activePlateIndex.reserve(licensePlate, parking.getId())) {
+            throw new ValidationException(PLATE_ALREADY_PARKED);
         }
- // Verificar capacidad del parqueadero
-        Long currentOccupancy = parkingRecordRepository.countActiveByParkingId(parking.getId());
-        if (currentOccupancy >= parking.getCapacity()) {
+        // Reservar cupo de forma atómica: la fila solo se actualiza si hay capacidad
+        if (parkingRepository.tryReserveSpot(parking.getId()) == 0) {
+            activePlateIndex.cancel(licensePlate, parking.getId());
             throw new ValidationException("El parqueadero está lleno. No se puede registrar más vehículos");
         }
+        occupancyRegistry.occupy(parking.getId());
 
         
-        Vehicle vehicle = vehicleRepository.findByLicensePlate(licensePlate)
-                .orElseGet(() -> {
-                    Vehicle newVehicle = Vehicle.builder()
-                            .licensePlate(licensePlate)
-                            .build();
-                    return vehicleRepository.save(newVehicle);
-                });
+        Vehicle vehicle = vehicleRepository.getReferenceById(vehicleIdResolver.resolve(licensePlate));
 
        
         ParkingRecord parkingRecord = ParkingRecord.builder()
@@ -71,6 +157,13 @@ public class VehicleService {
                 .build();
 
         ParkingRecord savedRecord = parkingRecordRepository.save(parkingRecord);
+        try {
+            // El índice único de registros activos rechaza un ingreso simultáneo en otra instancia
+            parkingRecordRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new ValidationException(PLATE_ALREADY_PARKED);
+        }
+        activePlateIndex.confirm(licensePlate, savedRecord);
         
         
         sendEntryEmail(licensePlate, parking.getName(), "Vehículo registrado exitosamente");
@@ -78,39 +171,26 @@ public class VehicleService {
         return savedRecord.getId();
     }
 
-    @Transactional
-    public String registerVehicleExit(VehicleExitRequest request) {
-        String licensePlate = request.getLicensePlate().toUpperCase();
-
-        
-        Parking parking = parkingRepository.findById(request.getParkingId())
-                .orElseThrow(() -> new ValidationException("Parqueadero no encontrado"));
-
+    private String registerExit(String licensePlate, Parking parking) {
         
-        ParkingRecord parkingRecord = parkingRecordRepository.findActiveByLicensePlateAndParking(licensePlate, parking.getId())
+        ParkingRecord parkingRecord = activePlateIndex.claim(licensePlate, parking.getId())
+                .flatMap(active -> parkingRecordRepository.lockActiveById(active.recordId()))
+                // El índice es de esta instancia: la placa pudo ingresar por otra
+                .or(() -> parkingRecordRepository.lockActiveByLicensePlateAndParking(licensePlate, parking.getId()))
                 .orElseThrow(() -> new ValidationException("No se puede Registrar Salida, no existe la placa en el parqueadero"));
 
         
         LocalDateTime exitDateTime = LocalDateTime.now();
-        long hours = ChronoUnit.HOURS.between(parkingRecord.getEntryDateTime(), exitDateTime);
-        long minutes = ChronoUnit.MINUTES.between(parkingRecord.getEntryDateTime(), exitDateTime) % 60;
-
-        
-        BigDecimal totalHours = BigDecimal.valueOf(hours);
-        if (minutes > 0) {
-            totalHours = totalHours.add(BigDecimal.valueOf(minutes).divide(BigDecimal.valueOf(60), 2, RoundingMode.UP));
-        }
-        if (totalHours.compareTo(BigDecimal.ONE) < 0) {
-            totalHours = BigDecimal.ONE;
-        }
-
-        BigDecimal totalCost = parking.getHourlyRate().multiply(totalHours);
+        long totalCost = TariffCalculator.calculateCost(
+                parking.getHourlyRate(), parkingRecord.getEntryDateTime(), exitDateTime);
 
         
         parkingRecord.setExitDateTime(exitDateTime);
         parkingRecord.setTotalCost(totalCost);
         parkingRecord.setStatus(ParkingStatus.EXITED);
         parkingRecordRepository.save(parkingRecord);
+        parkingRepository.releaseSpot(parking.getId());
+        occupancyRegistry.release(parking.getId());
 
         
         VehicleHistory history = VehicleHistory.builder()
@@ -123,25 +203,76 @@ public class VehicleService {
                 .vehicleId(parkingRecord.getVehicle().getId())
                 .build();
 
-        vehicleHistoryRepository.save(history);
+        vehicleHistoryAppender.append(history);
+        parkingDailyRollupRepository.addExit(parking.getId(), exitDateTime.toLocalDate(), totalCost,
+                Duration.between(parkingRecord.getEntryDateTime(), exitDateTime).toMinutes());
+        parkingVehicleVisitRepository.recordVisit(parking.getId(), parkingRecord.getVehicle().getId(), exitDateTime);
+        uniqueVehicleService.recordExit(parking.getId(), exitDateTime.toLocalDate(), licensePlate);
+        topVehicleTracker.recordExitOnCommit(parking.getId(), licensePlate, exitDateTime);
+        reportResultCache.invalidateParkingOnCommit(parking.getId());
 
         
-        String mensajeSalida = String.format("Vehículo salió del parqueadero. Costo total: $%.2f", totalCost);
+        String mensajeSalida = String.format("Vehículo salió del parqueadero. Costo total: $%.2f", Money.toDecimal(totalCost));
         sendExitEmail(licensePlate, parking.getName(), mensajeSalida);
 
         return "Salida registrada";
     }
 
-    public List<ParkingRecord> getParkedVehicles(Long parkingId) {
+    /**
+     * Vehículos estacionados en el parqueadero, por orden de entrada y
+     * paginados por cursor: cada página devuelve el cursor de la siguiente.
+     * Filtros opcionales por rango de entrada [enteredAfter, enteredBefore)
+     * y prefijo de placa.
+     */
+    public Map<String, Object> getParkedVehicles(Long parkingId, LocalDateTime enteredAfter, LocalDateTime enteredBefore,
+                                                 String platePrefix, String cursor, int size) {
         
-        if (!parkingRepository.existsById(parkingId)) {
-            throw new ValidationException("Parqueadero no encontrado");
+        findParking(parkingId);
+        if (size < 1 || size > MAX_PARKED_PAGE_SIZE) {
+            throw new ValidationException("El tamaño de página debe estar entre 1 y " + MAX_PARKED_PAGE_SIZE);
+        }
+        if (enteredAfter != null && enteredBefore != null && !enteredAfter.isBefore(enteredBefore)) {
+            throw new ValidationException("Rango de fechas no válido");
+        }
+        String prefix = platePrefix != null ? platePrefix.trim().toUpperCase() : "";
+        if (!PLATE_PREFIX_PATTERN.matcher(prefix).matches()) {
+            throw new ValidationException("El prefijo de placa solo puede contener letras y números (máximo 6)");
+        }
+
+        ParkedCursor position = cursor != null && !cursor.isBlank()
+                ? decodeCursor(cursor)
+                : new ParkedCursor(MIN_ENTRY, 0L);
+
+        Slice<ParkedVehicleRow> page = parkingRecordRepository.findParkedPage(parkingId,
+                enteredAfter != null ? enteredAfter : MIN_ENTRY,
+                enteredBefore != null ? enteredBefore : MAX_ENTRY,
+                position.entryDateTime(), position.id(), prefix + "%", PageRequest.of(0, size));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("vehiculos", page.getContent());
+        result.put("tamano", size);
+        result.put("hayMas", page.hasNext());
+        if (page.hasNext()) {
+            ParkedVehicleRow last = page.getContent().getLast();
+            result.put("siguienteCursor", encodeCursor(last.entryDateTime(), last.id()));
         }
+        return result;
+    }
 
-        return parkingRecordRepository.findActiveByParkingId(parkingId);
+    public Map<String, Object> locateVehicle(String licensePlate) {
+        String plate = licensePlate.toUpperCase();
+        ActivePlateIndex.ActiveVehicle active = activePlateIndex.find(plate)
+                .orElseThrow(() -> new ValidationException("La placa no se encuentra en ningún parqueadero"));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("placa", plate);
+        result.put("parkingId", active.parkingId());
+        result.put("registroId", active.recordId());
+        result.put("entrada", active.entryDateTime());
+        return result;
     }
 
-    public List<Vehicle> searchVehiclesByPlate(String partialPlate) {
+    public List<VehicleResponse> searchVehiclesByPlate(String partialPlate) {
         if (partialPlate == null || partialPlate.trim().isEmpty()) {
             throw new ValidationException("La placa parcial no puede estar vacía");
         }
@@ -149,25 +280,60 @@ public class VehicleService {
         return vehicleRepository.findByLicensePlateContaining(partialPlate.toUpperCase());
     }
 
-    
-    private void sendEntryEmail(String placa, String parqueaderoNombre, String mensaje) {
+    // Cursor opaco: Base64 URL de "entrada|id" del último registro de la página
+    private static String encodeCursor(LocalDateTime entryDateTime, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((entryDateTime + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static ParkedCursor decodeCursor(String cursor) {
         try {
-            
-            String email = "usuario@ejemplo.com";
-            emailService.sendEmail(email, placa, mensaje, parqueaderoNombre);
-        } catch (Exception e) {
-            log.warn("No se pudo enviar email de entrada: {}", e.getMessage());
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length == 2) {
+                return new ParkedCursor(LocalDateTime.parse(position[0]), Long.valueOf(position[1]));
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            log.debug("Cursor de vehículos estacionados no válido: {}", cursor);
+        }
+        throw new ValidationException("Cursor no válido");
+    }
+
+    private record ParkedCursor(LocalDateTime entryDateTime, Long id) {
+    }
+
+    private Parking findParking(Long parkingId) {
+        return parkingRepository.findCachedById(parkingId)
+                .orElseThrow(() -> new ValidationException("Parqueadero no encontrado"));
+    }
+
+    private String validateEvent(VehicleEvent event) {
+        if (event.getType() == null) {
+            throw new ValidationException("El tipo de evento es obligatorio");
+        }
+        if (event.getParkingId() == null) {
+            throw new ValidationException("El ID del parqueadero es obligatorio");
+        }
+        if (event.getLicensePlate() == null) {
+            throw new ValidationException("La placa es obligatoria");
+        }
+        String licensePlate = event.getLicensePlate().toUpperCase();
+        if (!LICENSE_PLATE_PATTERN.matcher(licensePlate).matches()) {
+            throw new ValidationException("La placa debe tener exactamente 6 caracteres alfanuméricos en mayúsculas");
         }
+        return licensePlate;
+    }
+
+    
+    private void sendEntryEmail(String placa, String parqueaderoNombre, String mensaje) {
+        
+        String email = "usuario@ejemplo.com";
+        emailOutboxService.enqueue(email, placa, mensaje, parqueaderoNombre);
     }
 
     
     private void sendExitEmail(String placa, String parqueaderoNombre, String mensaje) {
-        try {
-            
-            String email = "usuario@ejemplo.com";
-            emailService.sendEmail(email, placa, mensaje, parqueaderoNombre);
-        } catch (Exception e) {
-            log.warn("No se pudo enviar email de salida: {}", e.getMessage());
-        }
+        
+        String email = "usuario@ejemplo.com";
+        emailOutboxService.enqueue(email, placa, mensaje, parqueaderoNombre);
     }
 }
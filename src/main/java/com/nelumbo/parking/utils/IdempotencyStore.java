@@ -0,0 +1,107 @@
+package com.nelumbo.parking.utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Almacén acotado de respuestas por clave de idempotencia.
+ * Las entradas expiran tras el TTL configurado y, al superar la capacidad,
+ * se descartan las respuestas más antiguas. Las claves en proceso no se
+ * descartan hasta que la solicitud termina (complete o abandon).
+ * @param <V> tipo de la respuesta almacenada
+ */
+public class IdempotencyStore<V> {
+
+    public enum State {
+        STARTED,
+        IN_PROGRESS,
+        COMPLETED,
+        MISMATCH
+    }
+
+    public record Lookup<V>(State state, V value) {
+    }
+
+    private record Entry<V>(String fingerprint, V value, long expiresAt) {
+    }
+
+    private final int maxEntries;
+    private final long ttlMs;
+    private final Map<String, Entry<V>> entries;
+
+    public IdempotencyStore(int maxEntries, long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * Consulta la clave y, si no existe, la marca como en proceso.
+     * @param key clave de idempotencia
+     * @param fingerprint huella de la solicitud asociada a la clave
+     * @return STARTED si el llamador debe ejecutar la solicitud
+     */
+    public synchronized Lookup<V> begin(String key, String fingerprint) {
+        long now = System.currentTimeMillis();
+        evictExpired(now);
+
+        Entry<V> existing = entries.get(key);
+        if (existing == null) {
+            entries.put(key, new Entry<>(fingerprint, null, now + ttlMs));
+            evictOverflow();
+            return new Lookup<>(State.STARTED, null);
+        }
+        if (!Objects.equals(existing.fingerprint(), fingerprint)) {
+            return new Lookup<>(State.MISMATCH, null);
+        }
+        if (existing.value() == null) {
+            return new Lookup<>(State.IN_PROGRESS, null);
+        }
+        return new Lookup<>(State.COMPLETED, existing.value());
+    }
+
+    public synchronized void complete(String key, V value) {
+        Entry<V> existing = entries.remove(key);
+        if (existing != null) {
+            entries.put(key, new Entry<>(existing.fingerprint(), value, System.currentTimeMillis() + ttlMs));
+            evictOverflow();
+        }
+    }
+
+    /**
+     * Libera la clave para que un reintento vuelva a ejecutar la solicitud.
+     */
+    public synchronized void abandon(String key) {
+        entries.remove(key);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evictExpired(long now) {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if (entry.expiresAt() > now) {
+                // Las entradas están ordenadas por inserción, el resto no ha expirado
+                return;
+            }
+            if (entry.value() != null) {
+                iterator.remove();
+            }
+        }
+    }
+
+    // Las claves en proceso pueden superar la capacidad: están acotadas por las solicitudes concurrentes
+    private void evictOverflow() {
+        Iterator<Entry<V>> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            if (iterator.next().value() != null) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.nelumbo.parking.utils;
+
+import java.util.Arrays;
+
+/**
+ * Últimos `capacity` minutos de una serie de enteros en un arreglo circular
+ * de tamaño fijo. Cada minuto (época en minutos) ocupa la posición
+ * minuto % capacity; los minutos sin muestra quedan como MISSING. Registrar
+ * un minuto posterior al último descarta los que salen de la ventana.
+ * No es seguro para uso concurrente.
+ */
+public final class MinuteRingBuffer {
+
+    public static final int MISSING = -1;
+
+    /**
+     * Resumen de un conjunto de muestras; se combinan sumando, así que sirve
+     * igual para minutos, horas o días.
+     */
+    public record Summary(long sum, long samples, int min, int max) {
+
+        public static final Summary EMPTY = new Summary(0, 0, Integer.MAX_VALUE, Integer.MIN_VALUE);
+
+        public Summary add(int value) {
+            return new Summary(sum + value, samples + 1, Math.min(min, value), Math.max(max, value));
+        }
+
+        public Summary merge(Summary other) {
+            if (other.isEmpty()) {
+                return this;
+            }
+            if (isEmpty()) {
+                return other;
+            }
+            return new Summary(sum + other.sum, samples + other.samples,
+                    Math.min(min, other.min), Math.max(max, other.max));
+        }
+
+        public boolean isEmpty() {
+            return samples == 0;
+        }
+
+        public double average() {
+            return samples == 0 ? 0 : (double) sum / samples;
+        }
+    }
+
+    private final int[] values;
+    private long lastMinute = Long.MIN_VALUE;
+
+    public MinuteRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor a cero");
+        }
+        this.values = new int[capacity];
+        Arrays.fill(values, MISSING);
+    }
+
+    public void record(long minute, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("El valor no puede ser negativo");
+        }
+        if (lastMinute == Long.MIN_VALUE) {
+            lastMinute = minute;
+        } else if (minute > lastMinute) {
+            // Los minutos saltados dentro de la ventana quedan vacíos
+            long from = Math.max(lastMinute + 1, minute - values.length + 1);
+            for (long skipped = from; skipped < minute; skipped++) {
+                values[slot(skipped)] = MISSING;
+            }
+            lastMinute = minute;
+        } else if (minute <= lastMinute - values.length) {
+            return;
+        }
+        values[slot(minute)] = value;
+    }
+
+    /**
+     * Valor del minuto, o MISSING si no hay muestra o ya salió de la ventana.
+     */
+    public int get(long minute) {
+        if (lastMinute == Long.MIN_VALUE || minute > lastMinute || minute <= lastMinute - values.length) {
+            return MISSING;
+        }
+        return values[slot(minute)];
+    }
+
+    /**
+     * Resume las muestras de [fromMinute, toMinute).
+     */
+    public Summary summarize(long fromMinute, long toMinute) {
+        Summary summary = Summary.EMPTY;
+        for (long minute = Math.max(fromMinute, oldestMinute()); minute < toMinute; minute++) {
+            int value = get(minute);
+            if (value != MISSING) {
+                summary = summary.add(value);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * Minuto más antiguo que la ventana puede contener.
+     */
+    public long oldestMinute() {
+        return lastMinute == Long.MIN_VALUE ? Long.MAX_VALUE : lastMinute - values.length + 1;
+    }
+
+    public long lastMinute() {
+        return lastMinute;
+    }
+
+    public int capacity() {
+        return values.length;
+    }
+
+    private int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) values.length);
+    }
+}
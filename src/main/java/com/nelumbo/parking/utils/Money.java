@@ -0,0 +1,45 @@
+package com.nelumbo.parking.utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversión de montos entre unidades mínimas (long) y BigDecimal.
+ * Internamente los montos se manejan como long en la unidad mínima de la
+ * moneda (COP no usa centavos, por lo que la unidad mínima es el peso);
+ * BigDecimal solo se usa en el borde de la API.
+ */
+public final class Money {
+
+    /**
+     * Cantidad de decimales que representa la unidad mínima.
+     */
+    public static final int MINOR_UNIT_SCALE = 0;
+
+    private Money() {
+    }
+
+    /**
+     * Convierte un monto decimal a unidades mínimas, redondeando HALF_UP.
+     * @param amount monto decimal, puede ser null
+     * @return monto en unidades mínimas, o null si el monto es null
+     */
+    public static Long toMinor(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        return amount.movePointRight(MINOR_UNIT_SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Convierte un monto en unidades mínimas a decimal para la API.
+     * @param minor monto en unidades mínimas, puede ser null
+     * @return monto decimal, o null si el monto es null
+     */
+    public static BigDecimal toDecimal(Long minor) {
+        if (minor == null) {
+            return null;
+        }
+        return BigDecimal.valueOf(minor, MINOR_UNIT_SCALE);
+    }
+}
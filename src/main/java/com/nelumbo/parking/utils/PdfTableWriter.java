@@ -0,0 +1,139 @@
+package com.nelumbo.parking.utils;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.HeaderFooter;
+import com.lowagie.text.PageSize;
+import com.lowagie.text.Paragraph;
+import com.lowagie.text.Phrase;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+import com.lowagie.text.pdf.PdfWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Escritura de un reporte PDF de una sola tabla, fila por fila. La tabla se
+ * agrega al documento cada ROWS_PER_CHUNK filas y las páginas terminadas se
+ * escriben al OutputStream, por lo que la memoria usada no depende de la
+ * cantidad de filas. El encabezado de la tabla se repite en cada página.
+ */
+public class PdfTableWriter implements Closeable {
+
+    static final int ROWS_PER_CHUNK = 200;
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final Font TITLE_FONT = new Font(Font.HELVETICA, 14, Font.BOLD);
+    private static final Font HEADER_FONT = new Font(Font.HELVETICA, 9, Font.BOLD);
+    private static final Font BODY_FONT = new Font(Font.HELVETICA, 9);
+
+    private final Document document;
+    private final PdfPTable table;
+    private final int columns;
+
+    private long rows;
+
+    /**
+     * Abre el documento con un título, un subtítulo y el encabezado de la tabla.
+     */
+    public PdfTableWriter(OutputStream out, String title, String subtitle, String... headers) throws IOException {
+        this.document = new Document(PageSize.A4, 36, 36, 36, 36);
+        try {
+            PdfWriter writer = PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
+            HeaderFooter footer = new HeaderFooter(new Phrase("Página ", BODY_FONT), true);
+            footer.setAlignment(Element.ALIGN_CENTER);
+            footer.setBorder(0);
+            document.setFooter(footer);
+            document.open();
+            document.add(new Paragraph(title, TITLE_FONT));
+            document.add(new Paragraph(subtitle, BODY_FONT));
+            document.add(new Paragraph(" ", BODY_FONT));
+        } catch (DocumentException e) {
+            throw new IOException("No se pudo crear el PDF", e);
+        }
+        this.columns = headers.length;
+        this.table = new PdfPTable(headers.length);
+        table.setWidthPercentage(100);
+        table.setHeaderRows(1);
+        // Tabla incompleta: cada document.add escribe las filas acumuladas y las libera
+        table.setComplete(false);
+        for (String header : headers) {
+            table.addCell(new PdfPCell(new Phrase(header, HEADER_FONT)));
+        }
+    }
+
+    public void writeRow(Object... values) throws IOException {
+        for (Object value : values) {
+            table.addCell(new PdfPCell(new Phrase(format(value), BODY_FONT)));
+        }
+        if (++rows % ROWS_PER_CHUNK == 0) {
+            add(table);
+        }
+    }
+
+    /**
+     * Cierra la tabla y agrega una línea de resumen debajo.
+     */
+    public void writeSummary(String... lines) throws IOException {
+        finishTable();
+        for (String line : lines) {
+            add(new Paragraph(line, HEADER_FONT));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finishTable();
+        document.close();
+    }
+
+    static String format(Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            return dateTime.format(DATE_TIME_FORMAT);
+        }
+        return value.toString();
+    }
+
+    private void finishTable() throws IOException {
+        if (table.isComplete()) {
+            return;
+        }
+        table.setComplete(true);
+        if (rows == 0) {
+            table.addCell(emptyCell(columns));
+        } else if (rows % ROWS_PER_CHUNK == 0) {
+            // Las filas ya se escribieron; agregarla de nuevo repetiría solo el encabezado
+            return;
+        }
+        add(table);
+    }
+
+    private void add(Element element) throws IOException {
+        try {
+            document.add(element);
+        } catch (DocumentException e) {
+            throw new IOException("No se pudo escribir el PDF", e);
+        }
+    }
+
+    private static PdfPCell emptyCell(int columns) {
+        PdfPCell cell = new PdfPCell(new Phrase("Sin registros", BODY_FONT));
+        cell.setColspan(columns);
+        cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        return cell;
+    }
+}
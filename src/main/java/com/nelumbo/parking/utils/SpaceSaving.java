@@ -0,0 +1,112 @@
+package com.nelumbo.parking.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Resumen Space-Saving para los elementos más frecuentes de un flujo, con
+ * memoria fija de `capacity` contadores. Un elemento nuevo con la tabla llena
+ * reemplaza al contador mínimo y hereda su valor como error máximo, así que
+ * cada conteo es una cota superior (count - error es una cota inferior).
+ * Los resultados son exactos mientras haya menos elementos distintos que
+ * contadores. No es seguro para uso concurrente.
+ */
+public final class SpaceSaving {
+
+    public record Entry(String item, long count, long error) {
+    }
+
+    private static final class Counter {
+
+        private final String item;
+        private long count;
+        private final long error;
+
+        private Counter(String item, long count, long error) {
+            this.item = item;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    // Conteo ascendente; ante empate el recorrido descendente queda en orden alfabético
+    private static final Comparator<Counter> ORDER = Comparator.<Counter>comparingLong(c -> c.count)
+            .thenComparing(c -> c.item, Comparator.reverseOrder());
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(ORDER);
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("La capacidad debe ser mayor a cero");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Reconstruye un resumen desde sus entradas; si hay más entradas que
+     * capacidad se conservan las de mayor conteo.
+     */
+    public static SpaceSaving restore(int capacity, Collection<Entry> entries) {
+        SpaceSaving summary = new SpaceSaving(capacity);
+        entries.stream()
+                .sorted(Comparator.comparingLong(Entry::count).reversed())
+                .limit(capacity)
+                .forEach(entry -> summary.add(new Counter(entry.item(), entry.count(), entry.error())));
+        return summary;
+    }
+
+    public void offer(String item) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            byCount.remove(counter);
+            counter.count++;
+            byCount.add(counter);
+            return;
+        }
+        if (counters.size() < capacity) {
+            add(new Counter(item, 1, 0));
+            return;
+        }
+        Counter min = byCount.pollFirst();
+        counters.remove(min.item);
+        add(new Counter(item, min.count + 1, min.count));
+    }
+
+    /**
+     * Los n elementos de mayor conteo, de mayor a menor.
+     */
+    public List<Entry> top(int n) {
+        List<Entry> top = new ArrayList<>(Math.min(n, counters.size()));
+        Iterator<Counter> iterator = byCount.descendingIterator();
+        while (iterator.hasNext() && top.size() < n) {
+            Counter counter = iterator.next();
+            top.add(new Entry(counter.item, counter.count, counter.error));
+        }
+        return top;
+    }
+
+    public List<Entry> entries() {
+        return top(counters.size());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    private void add(Counter counter) {
+        counters.put(counter.item, counter);
+        byCount.add(counter);
+    }
+}
@@ -0,0 +1,37 @@
+package com.nelumbo.parking.utils;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Cálculo de tarifas con aritmética entera sobre unidades mínimas.
+ */
+public final class TariffCalculator {
+
+    private static final long HUNDREDTHS_PER_HOUR = 100;
+
+    private TariffCalculator() {
+    }
+
+    /**
+     * Calcula el costo de una estadía. Las horas se cobran con dos decimales,
+     * redondeando los minutos hacia arriba, y se cobra como mínimo una hora.
+     * @param hourlyRate tarifa por hora en unidades mínimas
+     * @param entry fecha y hora de ingreso
+     * @param exit fecha y hora de salida
+     * @return costo total en unidades mínimas
+     */
+    public static long calculateCost(long hourlyRate, LocalDateTime entry, LocalDateTime exit) {
+        long totalMinutes = ChronoUnit.MINUTES.between(entry, exit);
+        long hours = totalMinutes / 60;
+        long minutes = totalMinutes % 60;
+
+        // Centésimas de hora: los minutos se redondean hacia arriba (RoundingMode.UP)
+        long billedHundredths = hours * HUNDREDTHS_PER_HOUR + (minutes * HUNDREDTHS_PER_HOUR + 59) / 60;
+        if (billedHundredths < HUNDREDTHS_PER_HOUR) {
+            billedHundredths = HUNDREDTHS_PER_HOUR;
+        }
+
+        return (hourlyRate * billedHundredths + HUNDREDTHS_PER_HOUR / 2) / HUNDREDTHS_PER_HOUR;
+    }
+}
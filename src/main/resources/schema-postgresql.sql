@@ -0,0 +1,110 @@
+-- ========================================
+-- MIGRACIONES DE ESQUEMA - PARKING API (PostgreSQL)
+-- ========================================
+-- Se ejecuta después de que Hibernate actualiza el esquema
+-- (spring.jpa.defer-datasource-initialization=true).
+-- Cada bloque debe ser idempotente: se ejecuta en cada arranque.
+-- Los bloques se separan con @@ (spring.sql.init.separator).
+
+-- Montos en unidades mínimas de la moneda (BIGINT en lugar de NUMERIC)
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'parking_records' AND column_name = 'total_cost' AND data_type = 'numeric') THEN
+        ALTER TABLE parking_records ALTER COLUMN total_cost TYPE BIGINT USING ROUND(total_cost)::BIGINT;
+    END IF;
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'vehicle_history' AND column_name = 'total_cost' AND data_type = 'numeric') THEN
+        ALTER TABLE vehicle_history ALTER COLUMN total_cost TYPE BIGINT USING ROUND(total_cost)::BIGINT;
+    END IF;
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_name = 'parkings' AND column_name = 'hourly_rate' AND data_type = 'numeric') THEN
+        ALTER TABLE parkings ALTER COLUMN hourly_rate TYPE BIGINT USING ROUND(hourly_rate)::BIGINT;
+    END IF;
+END $$
+@@
+
+-- Identificadores por secuencia con optimizador pooled (allocationSize = 50).
+-- Las tablas creadas con IDENTITY dejan de generar ids por su cuenta y cada
+-- secuencia <tabla>_seq se adelanta por encima del mayor id existente.
+DO $$
+DECLARE
+    entity RECORD;
+    max_id BIGINT;
+    last_id BIGINT;
+BEGIN
+    FOR entity IN SELECT * FROM (VALUES
+            ('users'), ('parkings'), ('vehicles'), ('parking_records'),
+            ('vehicle_history'), ('invalid_tokens'), ('email_outbox')) AS t(table_name) LOOP
+        IF to_regclass(entity.table_name) IS NULL OR to_regclass(entity.table_name || '_seq') IS NULL THEN
+            CONTINUE;
+        END IF;
+        EXECUTE format('ALTER TABLE %I ALTER COLUMN id DROP IDENTITY IF EXISTS', entity.table_name);
+        EXECUTE format('SELECT MAX(id) FROM %I', entity.table_name) INTO max_id;
+        EXECUTE format('SELECT last_value FROM %I', entity.table_name || '_seq') INTO last_id;
+        -- pooled reserva el bloque (valor - 49 .. valor): el siguiente valor debe dejar libre todo el bloque
+        IF max_id IS NOT NULL AND max_id >= last_id THEN
+            PERFORM setval(entity.table_name || '_seq', max_id + 50, false);
+        END IF;
+    END LOOP;
+END $$
+@@
+
+-- Contadores de visitas por parqueadero y vehículo: índice parcial para el
+-- reporte de vehículos de primera vez y carga inicial desde el historial
+DO $$
+BEGIN
+    IF to_regclass('parking_vehicle_visits') IS NULL THEN
+        RETURN;
+    END IF;
+    CREATE INDEX IF NOT EXISTS idx_parking_vehicle_visits_first_time
+        ON parking_vehicle_visits (parking_id, last_visit_at) WHERE visit_count = 1;
+    IF NOT EXISTS (SELECT 1 FROM parking_vehicle_visits) THEN
+        INSERT INTO parking_vehicle_visits (parking_id, vehicle_id, visit_count, first_visit_at, last_visit_at)
+        SELECT parking_id, vehicle_id, COUNT(*), MIN(exit_date_time), MAX(exit_date_time)
+        FROM vehicle_history
+        WHERE parking_id IS NOT NULL AND vehicle_id IS NOT NULL
+        GROUP BY parking_id, vehicle_id;
+    END IF;
+END $$
+@@
+
+-- Un solo registro activo por vehículo entre todas las instancias (la placa
+-- es única por vehículo). Si ya hay duplicados el índice no se crea y se avisa.
+DO $$
+BEGIN
+    IF to_regclass('parking_records') IS NULL
+            OR to_regclass('uk_parking_records_active_vehicle') IS NOT NULL THEN
+        RETURN;
+    END IF;
+    IF EXISTS (SELECT 1 FROM parking_records WHERE status = 'PARKED'
+               GROUP BY vehicle_id HAVING COUNT(*) > 1) THEN
+        RAISE WARNING 'Hay vehículos con más de un registro activo: no se crea uk_parking_records_active_vehicle';
+        RETURN;
+    END IF;
+    CREATE UNIQUE INDEX uk_parking_records_active_vehicle
+        ON parking_records (vehicle_id) WHERE status = 'PARKED';
+END $$
+@@
+
+-- Cupos ocupados por parqueadero: la columna occupied se agregó con valor 0,
+-- se recalcula desde los registros activos. Cada fila se bloquea antes de
+-- contar (como OccupancyRegistry.reconcile) para incluir los ingresos y
+-- salidas en curso de otras instancias.
+DO $$
+DECLARE
+    parking RECORD;
+    active INTEGER;
+BEGIN
+    IF to_regclass('parkings') IS NULL OR to_regclass('parking_records') IS NULL THEN
+        RETURN;
+    END IF;
+    FOR parking IN SELECT id FROM parkings ORDER BY id LOOP
+        PERFORM 1 FROM parkings WHERE id = parking.id FOR UPDATE;
+        SELECT COUNT(*) INTO active FROM parking_records
+        WHERE parking_id = parking.id AND status = 'PARKED';
+        UPDATE parkings SET occupied = active
+        WHERE id = parking.id AND occupied IS DISTINCT FROM active;
+    END LOOP;
+END $$
+@@
@@ -0,0 +1,33 @@
+package com.nelumbo.parking.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheConfigTest {
+
+    @Test
+    void estimateBytes_SerializedJsonWeighsItsLength() {
+        // Act & Assert
+        assertEquals(1024, CacheConfig.estimateBytes(new byte[1024]));
+    }
+
+    @Test
+    void estimateBytes_DetailVariantWeighsMoreThanTotals() {
+        // Arrange
+        Map<String, Object> detail = Map.of("placa", "ABC123", "costo", 5000L);
+        List<Map<String, Object>> totals = List.of(Map.of("parkingId", 1L, "totalVehiculos", 3L));
+        List<Map<String, Object>> withDetail = List.of(Map.of("parkingId", 1L, "totalVehiculos", 3L,
+                "detalle", List.of(detail, detail, detail)));
+
+        // Act
+        long totalsWeight = CacheConfig.estimateBytes(totals);
+        long detailWeight = CacheConfig.estimateBytes(withDetail);
+
+        // Assert
+        assertTrue(detailWeight > totalsWeight * 3);
+    }
+}
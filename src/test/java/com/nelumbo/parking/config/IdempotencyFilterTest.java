@@ -0,0 +1,115 @@
+package com.nelumbo.parking.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyFilterTest {
+
+    private final IdempotencyFilter filter = new IdempotencyFilter(100, 60000);
+
+    private MockHttpServletRequest request(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/vehicles/entry");
+        request.setServletPath("/vehicles/entry");
+        request.addHeader(IdempotencyFilter.IDEMPOTENCY_KEY_HEADER, key);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private FilterChain countingChain(AtomicInteger calls, int status) {
+        return (req, res) -> {
+            calls.incrementAndGet();
+            req.getInputStream().readAllBytes();
+            ((HttpServletResponse) res).setStatus(status);
+            res.getWriter().write("{\"id\":1}");
+        };
+    }
+
+    @Test
+    void retryWithSameKey_ReplaysOriginalResponse() throws Exception {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        String body = "{\"licensePlate\":\"ABC123\",\"parkingId\":1}";
+
+        // Act
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(request("key-1", body), first, countingChain(calls, 201));
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(request("key-1", body), retry, countingChain(calls, 201));
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(201, retry.getStatus());
+        assertEquals("{\"id\":1}", retry.getContentAsString());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void sameKeyDifferentBody_Rejected() throws Exception {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        filter.doFilter(request("key-2", "{\"licensePlate\":\"ABC123\"}"), new MockHttpServletResponse(),
+                countingChain(calls, 201));
+
+        // Act
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("key-2", "{\"licensePlate\":\"XYZ789\"}"), response, countingChain(calls, 201));
+
+        // Assert
+        assertEquals(1, calls.get());
+        assertEquals(422, response.getStatus());
+    }
+
+    @Test
+    void serverError_NotStored() throws Exception {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        String body = "{\"licensePlate\":\"ABC123\",\"parkingId\":1}";
+
+        // Act
+        filter.doFilter(request("key-3", body), new MockHttpServletResponse(), countingChain(calls, 500));
+        filter.doFilter(request("key-3", body), new MockHttpServletResponse(), countingChain(calls, 500));
+
+        // Assert
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void validationError_NotStored_CorrectedRetryExecutes() throws Exception {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        filter.doFilter(request("key-4", "{\"licensePlate\":\"ABC\"}"), new MockHttpServletResponse(),
+                countingChain(calls, 400));
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(request("key-4", "{\"licensePlate\":\"ABC123\"}"), retry, countingChain(calls, 201));
+
+        // Assert
+        assertEquals(2, calls.get());
+        assertEquals(201, retry.getStatus());
+        assertNull(retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    void withoutKey_PassesThrough() throws Exception {
+        // Arrange
+        AtomicInteger calls = new AtomicInteger();
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/vehicles/entry");
+        request.setServletPath("/vehicles/entry");
+
+        // Act
+        filter.doFilter(request, new MockHttpServletResponse(), countingChain(calls, 201));
+        filter.doFilter(request, new MockHttpServletResponse(), countingChain(calls, 201));
+
+        // Assert
+        assertEquals(2, calls.get());
+    }
+}
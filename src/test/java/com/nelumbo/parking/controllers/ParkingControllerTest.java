@@ -2,6 +2,7 @@ package com.nelumbo.parking.controllers;
 
 import com.nelumbo.parking.dto.ParkingRequest;
 import com.nelumbo.parking.dto.AssociatePartnerRequest;
+import com.nelumbo.parking.dto.ParkingResponse;
 import com.nelumbo.parking.entities.Parking;
 import com.nelumbo.parking.entities.User;
 import com.nelumbo.parking.enums.Role;
@@ -33,7 +34,7 @@ class ParkingControllerTest {
     @Autowired
     private ParkingController parkingController;
 
-    private Parking testParking;
+    private ParkingResponse testParking;
     private ParkingRequest parkingRequest;
     private AssociatePartnerRequest associateRequest;
 
@@ -47,13 +48,13 @@ class ParkingControllerTest {
                 .role(Role.SOCIO)
                 .build();
 
-        testParking = Parking.builder()
+        testParking = ParkingResponse.from(Parking.builder()
                 .id(1L)
                 .name("Test Parking")
                 .capacity(50)
-                .hourlyRate(BigDecimal.valueOf(5.00))
+                .hourlyRate(5L)
                 .partner(testPartner)
-                .build();
+                .build());
 
         parkingRequest = new ParkingRequest();
         parkingRequest.setName("New Parking");
@@ -72,12 +73,12 @@ class ParkingControllerTest {
         when(parkingService.createParking(any(ParkingRequest.class))).thenReturn(testParking);
 
         // Act
-        ResponseEntity<Parking> response = parkingController.createParking(parkingRequest);
+        ResponseEntity<ParkingResponse> response = parkingController.createParking(parkingRequest);
 
         // Assert
         assertEquals(HttpStatus.CREATED, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("Test Parking", response.getBody().getName());
+        assertEquals("Test Parking", response.getBody().name());
         verify(parkingService).createParking(parkingRequest);
     }
 
@@ -97,12 +98,12 @@ class ParkingControllerTest {
         when(parkingService.getParkingById(1L)).thenReturn(testParking);
 
         // Act
-        ResponseEntity<Parking> response = parkingController.getParkingById(1L);
+        ResponseEntity<ParkingResponse> response = parkingController.getParkingById(1L);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("Test Parking", response.getBody().getName());
+        assertEquals("Test Parking", response.getBody().name());
         verify(parkingService).getParkingById(1L);
     }
 
@@ -113,12 +114,12 @@ class ParkingControllerTest {
         when(parkingService.getParkingById(1L)).thenReturn(testParking);
 
         // Act
-        ResponseEntity<Parking> response = parkingController.getParkingById(1L);
+        ResponseEntity<ParkingResponse> response = parkingController.getParkingById(1L);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("Test Parking", response.getBody().getName());
+        assertEquals("Test Parking", response.getBody().name());
         verify(parkingService).getParkingById(1L);
     }
 
@@ -126,11 +127,11 @@ class ParkingControllerTest {
     @WithMockUser(roles = "ADMIN")
     void getAllParkingsAsAdminSuccess() {
         // Arrange
-        List<Parking> parkings = Arrays.asList(testParking);
+        List<ParkingResponse> parkings = Arrays.asList(testParking);
         when(parkingService.getAllParkings()).thenReturn(parkings);
 
         // Act
-        ResponseEntity<List<Parking>> response = parkingController.getAllParkings();
+        ResponseEntity<List<ParkingResponse>> response = parkingController.getAllParkings();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -155,12 +156,12 @@ class ParkingControllerTest {
         when(parkingService.updateParking(anyLong(), any(ParkingRequest.class))).thenReturn(testParking);
 
         // Act
-        ResponseEntity<Parking> response = parkingController.updateParking(1L, parkingRequest);
+        ResponseEntity<ParkingResponse> response = parkingController.updateParking(1L, parkingRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("Test Parking", response.getBody().getName());
+        assertEquals("Test Parking", response.getBody().name());
         verify(parkingService).updateParking(1L, parkingRequest);
     }
 
@@ -200,12 +201,12 @@ class ParkingControllerTest {
         when(parkingService.associatePartnerToParking(anyLong(), anyLong())).thenReturn(testParking);
 
         // Act
-        ResponseEntity<Parking> response = parkingController.associatePartnerToParking(1L, associateRequest);
+        ResponseEntity<ParkingResponse> response = parkingController.associatePartnerToParking(1L, associateRequest);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("Test Parking", response.getBody().getName());
+        assertEquals("Test Parking", response.getBody().name());
         verify(parkingService).associatePartnerToParking(1L, associateRequest.getPartnerId());
     }
 
@@ -225,12 +226,12 @@ class ParkingControllerTest {
         when(parkingService.removePartnerFromParking(anyLong())).thenReturn(testParking);
 
         // Act
-        ResponseEntity<Parking> response = parkingController.removePartnerFromParking(1L);
+        ResponseEntity<ParkingResponse> response = parkingController.removePartnerFromParking(1L);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        assertEquals("Test Parking", response.getBody().getName());
+        assertEquals("Test Parking", response.getBody().name());
         verify(parkingService).removePartnerFromParking(1L);
     }
 
@@ -247,11 +248,11 @@ class ParkingControllerTest {
     @WithMockUser(roles = "ADMIN")
     void getParkingsWithoutPartnerAsAdminSuccess() {
         // Arrange
-        List<Parking> parkings = Arrays.asList(testParking);
+        List<ParkingResponse> parkings = Arrays.asList(testParking);
         when(parkingService.getParkingsWithoutPartner()).thenReturn(parkings);
 
         // Act
-        ResponseEntity<List<Parking>> response = parkingController.getParkingsWithoutPartner();
+        ResponseEntity<List<ParkingResponse>> response = parkingController.getParkingsWithoutPartner();
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -1,6 +1,13 @@
 package com.nelumbo.parking.controllers;
 
+import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.dto.ReportJobRequest;
+import com.nelumbo.parking.enums.ReportType;
+import com.nelumbo.parking.services.OccupancyHistoryService;
+import com.nelumbo.parking.services.ReportExportService;
+import com.nelumbo.parking.services.ReportJobService;
 import com.nelumbo.parking.services.ReportService;
+import com.nelumbo.parking.services.UniqueVehicleService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -11,18 +18,32 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.test.context.support.WithMockUser;
-
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.junit.jupiter.params.provider.Arguments.arguments;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
@@ -34,6 +55,18 @@ class ReportControllerTest {
     @MockBean
     private ReportService reportService;
 
+    @MockBean
+    private ReportExportService reportExportService;
+
+    @MockBean
+    private ReportJobService reportJobService;
+
+    @MockBean
+    private UniqueVehicleService uniqueVehicleService;
+
+    @MockBean
+    private OccupancyHistoryService occupancyHistoryService;
+
     @Autowired
     private ReportController reportController;
 
@@ -49,16 +82,16 @@ class ReportControllerTest {
     void getTopVehiclesAllParkings_AsAdmin_Success() {
         // Arrange
         List<Map<String, Object>> topVehicles = List.of(Map.of("placa", "ABC123", "count", 5));
-        when(reportService.getTopVehiclesAllParkings(10)).thenReturn(topVehicles);
+        when(reportService.getTopVehiclesAllParkings(10, false)).thenReturn(topVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesAllParkings(10);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesAllParkings(10, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(reportService).getTopVehiclesAllParkings(10);
+        verify(reportService).getTopVehiclesAllParkings(10, false);
     }
 
     @Test
@@ -66,16 +99,16 @@ class ReportControllerTest {
     void getTopVehiclesAllParkings_AsSocio_Success() {
         // Arrange
         List<Map<String, Object>> topVehicles = List.of(Map.of("placa", "ABC123", "count", 5));
-        when(reportService.getTopVehiclesAllParkings(10)).thenReturn(topVehicles);
+        when(reportService.getTopVehiclesAllParkings(10, false)).thenReturn(topVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesAllParkings(10);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesAllParkings(10, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(reportService).getTopVehiclesAllParkings(10);
+        verify(reportService).getTopVehiclesAllParkings(10, false);
     }
 
     @Test
@@ -83,16 +116,16 @@ class ReportControllerTest {
     void getTopVehiclesByParking_AsAdmin_Success() {
         // Arrange
         List<Map<String, Object>> topVehicles = List.of(Map.of("placa", "ABC123", "count", 3));
-        when(reportService.getTopVehiclesByParking(1L, 10)).thenReturn(topVehicles);
+        when(reportService.getTopVehiclesByParking(1L, 10, false)).thenReturn(topVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesByParking(1L, 10);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesByParking(1L, 10, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(reportService).getTopVehiclesByParking(1L, 10);
+        verify(reportService).getTopVehiclesByParking(1L, 10, false);
     }
 
     @Test
@@ -100,50 +133,85 @@ class ReportControllerTest {
     void getTopVehiclesByParking_AsSocio_Success() {
         // Arrange
         List<Map<String, Object>> topVehicles = List.of(Map.of("placa", "ABC123", "count", 3));
-        when(reportService.getTopVehiclesByParking(1L, 10)).thenReturn(topVehicles);
+        when(reportService.getTopVehiclesByParking(1L, 10, false)).thenReturn(topVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesByParking(1L, 10);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesByParking(1L, 10, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(reportService).getTopVehiclesByParking(1L, 10);
+        verify(reportService).getTopVehiclesByParking(1L, 10, false);
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
     void getFirstTimeVehiclesByParking_AsAdmin_Success() {
         // Arrange
-        List<Map<String, Object>> firstTimeVehicles = List.of(Map.of("placa", "XYZ789", "firstTime", true));
-        when(reportService.getFirstTimeVehiclesByParking(1L)).thenReturn(firstTimeVehicles);
+        Map<String, Object> firstTimeVehicles = Map.of("pagina", 0, "hayMas", false,
+                "vehiculos", List.of(Map.of("placa", "XYZ789", "totalVisitas", 1L)));
+        when(reportService.getFirstTimeVehiclesByParking(1L, null, null, 0, 50)).thenReturn(firstTimeVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getFirstTimeVehiclesByParking(1L);
+        ResponseEntity<Map<String, Object>> response = reportController.getFirstTimeVehiclesByParking(1L, null, null, 0, 50);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
-        assertEquals(1, response.getBody().size());
-        verify(reportService).getFirstTimeVehiclesByParking(1L);
+        assertEquals(1, ((List<?>) response.getBody().get("vehiculos")).size());
+        verify(reportService).getFirstTimeVehiclesByParking(1L, null, null, 0, 50);
     }
 
     @Test
     @WithMockUser(roles = "SOCIO")
     void getFirstTimeVehiclesByParking_AsSocio_Success() {
         // Arrange
-        List<Map<String, Object>> firstTimeVehicles = List.of(Map.of("placa", "XYZ789", "firstTime", true));
-        when(reportService.getFirstTimeVehiclesByParking(1L)).thenReturn(firstTimeVehicles);
+        Map<String, Object> firstTimeVehicles = Map.of("pagina", 0, "hayMas", false,
+                "vehiculos", List.of(Map.of("placa", "XYZ789", "totalVisitas", 1L)));
+        when(reportService.getFirstTimeVehiclesByParking(1L, null, null, 0, 50)).thenReturn(firstTimeVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getFirstTimeVehiclesByParking(1L);
+        ResponseEntity<Map<String, Object>> response = reportController.getFirstTimeVehiclesByParking(1L, null, null, 0, 50);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
-        assertEquals(1, response.getBody().size());
-        verify(reportService).getFirstTimeVehiclesByParking(1L);
+        assertEquals(1, ((List<?>) response.getBody().get("vehiculos")).size());
+        verify(reportService).getFirstTimeVehiclesByParking(1L, null, null, 0, 50);
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void getReturningVehiclesByParking_AsSocio_Success() {
+        // Arrange
+        Map<String, Object> returningVehicles = Map.of("pagina", 0, "hayMas", false,
+                "vehiculos", List.of(Map.of("placa", "ABC123", "totalVisitas", 4L)));
+        when(reportService.getReturningVehiclesByParking(1L, 2L, 0, 50)).thenReturn(returningVehicles);
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = reportController.getReturningVehiclesByParking(1L, 2L, 0, 50);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(returningVehicles, response.getBody());
+        verify(reportService).getReturningVehiclesByParking(1L, 2L, 0, 50);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getVisitFrequencyByParking_AsAdmin_Success() {
+        // Arrange
+        Map<String, Object> visitFrequency = Map.of("totalVehiculos", 3L, "histograma", List.of());
+        when(reportService.getVisitFrequencyByParking(1L)).thenReturn(visitFrequency);
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = reportController.getVisitFrequencyByParking(1L);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(visitFrequency, response.getBody());
+        verify(reportService).getVisitFrequencyByParking(1L);
     }
 
     @Test
@@ -174,36 +242,39 @@ class ReportControllerTest {
 
     @Test
     @WithMockUser(roles = "ADMIN")
-    void getEarningsByParkingAndDate_AsAdmin_WithDate_Success() {
-        // Arrange
-        Map<String, Object> earnings = Map.of("date", testDate.toString(), "amount", 75000.0);
-        when(reportService.getEarningsByParkingAndDate(1L, testDate)).thenReturn(earnings);
-
+    void getEarningsByParkingAndDate_AsAdmin_WithDate_Success() throws Exception {
         // Act
-        ResponseEntity<Map<String, Object>> response = reportController.getEarningsByParkingAndDate(1L, testDate);
+        ResponseEntity<StreamingResponseBody> response = reportController.getEarningsByParkingAndDate(1L, testDate);
+        response.getBody().writeTo(new ByteArrayOutputStream());
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
-        assertNotNull(response.getBody());
-        assertEquals(testDate.toString(), response.getBody().get("date"));
-        verify(reportService).getEarningsByParkingAndDate(1L, testDate);
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        verify(reportService).validateParkingExists(1L);
+        verify(reportService).writeEarningsByParkingAndDate(eq(1L), eq(testDate), any());
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
-    void getEarningsByParkingAndDate_AsAdmin_WithoutDate_Success() {
-        // Arrange
-        Map<String, Object> earnings = Map.of("date", "today", "amount", 50000.0);
-        when(reportService.getEarningsByParkingAndDate(1L, null)).thenReturn(earnings);
-
+    void getEarningsByParkingAndDate_AsAdmin_WithoutDate_Success() throws Exception {
         // Act
-        ResponseEntity<Map<String, Object>> response = reportController.getEarningsByParkingAndDate(1L, null);
+        ResponseEntity<StreamingResponseBody> response = reportController.getEarningsByParkingAndDate(1L, null);
+        response.getBody().writeTo(new ByteArrayOutputStream());
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
-        assertNotNull(response.getBody());
-        assertEquals("today", response.getBody().get("date"));
-        verify(reportService).getEarningsByParkingAndDate(1L, null);
+        verify(reportService).writeEarningsByParkingAndDate(eq(1L), eq(LocalDate.now()), any());
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getEarningsByParkingAndDate_ParkingNotFound_ThrowsBeforeStreaming() throws Exception {
+        // Arrange
+        doThrow(new ValidationException("Parqueadero no encontrado")).when(reportService).validateParkingExists(999L);
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> reportController.getEarningsByParkingAndDate(999L, testDate));
+        verify(reportService, never()).writeEarningsByParkingAndDate(anyLong(), any(), any());
     }
 
     @Test
@@ -214,16 +285,16 @@ class ReportControllerTest {
             Map.of("parkingId", 1L, "amount", 50000.0),
             Map.of("parkingId", 2L, "amount", 75000.0)
         );
-        when(reportService.getAllParkingsEarningsByDate(testDate)).thenReturn(allEarnings);
+        when(reportService.getAllParkingsEarningsByDate(testDate, false)).thenReturn(allEarnings);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getAllParkingsEarningsByDate(testDate);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getAllParkingsEarningsByDate(testDate, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(2, response.getBody().size());
-        verify(reportService).getAllParkingsEarningsByDate(testDate);
+        verify(reportService).getAllParkingsEarningsByDate(testDate, false);
     }
 
     @Test
@@ -234,16 +305,16 @@ class ReportControllerTest {
             Map.of("parkingId", 1L, "amount", 50000.0),
             Map.of("parkingId", 2L, "amount", 75000.0)
         );
-        when(reportService.getAllParkingsEarningsByDate(null)).thenReturn(allEarnings);
+        when(reportService.getAllParkingsEarningsByDate(null, false)).thenReturn(allEarnings);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getAllParkingsEarningsByDate(null);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getAllParkingsEarningsByDate(null, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(2, response.getBody().size());
-        verify(reportService).getAllParkingsEarningsByDate(null);
+        verify(reportService).getAllParkingsEarningsByDate(null, false);
     }
 
     @Test
@@ -267,6 +338,76 @@ class ReportControllerTest {
         verify(reportService).getGeneralStatistics();
     }
 
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void getUniqueVehicles_AsSocio_Success() {
+        // Arrange
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 3, 31);
+        when(uniqueVehicleService.getUniqueVehicles(List.of(1L, 2L), from, to, "month"))
+                .thenReturn(Map.of("vehiculosUnicos", 1200L, "margenError95", 38L));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response =
+                reportController.getUniqueVehicles(List.of(1L, 2L), from, to, "month");
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1200L, response.getBody().get("vehiculosUnicos"));
+        verify(uniqueVehicleService).getUniqueVehicles(List.of(1L, 2L), from, to, "month");
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void getOccupancy_AsSocio_Success() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2024, 1, 15, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 16, 0, 0);
+        when(occupancyHistoryService.getOccupancy(1L, from, to, "hour"))
+                .thenReturn(Map.of("paso", "hour", "puntos", List.of()));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = reportController.getOccupancy(1L, from, to, "hour");
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("hour", response.getBody().get("paso"));
+        verify(occupancyHistoryService).getOccupancy(1L, from, to, "hour");
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void getOccupancyHeatmap_AsAdmin_Success() {
+        // Arrange
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        when(occupancyHistoryService.getOccupancyHeatmap(1L, from, to)).thenReturn(Map.of("celdas", List.of()));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = reportController.getOccupancyHeatmap(1L, from, to);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(List.of(), response.getBody().get("celdas"));
+        verify(occupancyHistoryService).getOccupancyHeatmap(1L, from, to);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void rebuildDailyRollup_AsAdmin_Success() {
+        // Arrange
+        LocalDate from = testDate.minusDays(30);
+        when(reportService.rebuildDailyRollup(from, testDate)).thenReturn(Map.of("filasGeneradas", 12));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = reportController.rebuildDailyRollup(from, testDate);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(12, response.getBody().get("filasGeneradas"));
+        verify(reportService).rebuildDailyRollup(from, testDate);
+    }
+
     @Test
     @WithMockUser(roles = "SOCIO")
     void getGeneralStatistics_AsSocio_ThrowsAccessDeniedException() {
@@ -281,16 +422,16 @@ class ReportControllerTest {
     void getTopVehiclesAllParkings_WithDefaultLimit_Success() {
         // Arrange
         List<Map<String, Object>> topVehicles = List.of(Map.of("placa", "ABC123", "count", 5));
-        when(reportService.getTopVehiclesAllParkings(10)).thenReturn(topVehicles);
+        when(reportService.getTopVehiclesAllParkings(10, false)).thenReturn(topVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesAllParkings(10);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesAllParkings(10, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(reportService).getTopVehiclesAllParkings(10);
+        verify(reportService).getTopVehiclesAllParkings(10, false);
     }
 
     @Test
@@ -298,16 +439,16 @@ class ReportControllerTest {
     void getTopVehiclesAllParkings_WithCustomLimit_Success() {
         // Arrange
         List<Map<String, Object>> topVehicles = List.of(Map.of("placa", "ABC123", "count", 5));
-        when(reportService.getTopVehiclesAllParkings(20)).thenReturn(topVehicles);
+        when(reportService.getTopVehiclesAllParkings(20, false)).thenReturn(topVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesAllParkings(20);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesAllParkings(20, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(reportService).getTopVehiclesAllParkings(20);
+        verify(reportService).getTopVehiclesAllParkings(20, false);
     }
 
     @Test
@@ -315,16 +456,16 @@ class ReportControllerTest {
     void getTopVehiclesByParking_WithDefaultLimit_Success() {
         // Arrange
         List<Map<String, Object>> topVehicles = List.of(Map.of("placa", "ABC123", "count", 3));
-        when(reportService.getTopVehiclesByParking(1L, 10)).thenReturn(topVehicles);
+        when(reportService.getTopVehiclesByParking(1L, 10, false)).thenReturn(topVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesByParking(1L, 10);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesByParking(1L, 10, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(reportService).getTopVehiclesByParking(1L, 10);
+        verify(reportService).getTopVehiclesByParking(1L, 10, false);
     }
 
     @Test
@@ -332,16 +473,16 @@ class ReportControllerTest {
     void getTopVehiclesByParking_WithCustomLimit_Success() {
         // Arrange
         List<Map<String, Object>> topVehicles = List.of(Map.of("placa", "ABC123", "count", 3));
-        when(reportService.getTopVehiclesByParking(1L, 15)).thenReturn(topVehicles);
+        when(reportService.getTopVehiclesByParking(1L, 15, false)).thenReturn(topVehicles);
 
         // Act
-        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesByParking(1L, 15);
+        ResponseEntity<List<Map<String, Object>>> response = reportController.getTopVehiclesByParking(1L, 15, false);
 
         // Assert
         assertEquals(200, response.getStatusCodeValue());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(reportService).getTopVehiclesByParking(1L, 15);
+        verify(reportService).getTopVehiclesByParking(1L, 15, false);
     }
 
     @Test
@@ -361,6 +502,155 @@ class ReportControllerTest {
         verify(reportService).getEarningsByPeriod(1L, "today");
     }
 
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportAllParkingsEarnings_Csv_Success() throws Exception {
+        // Arrange
+        LocalDate from = testDate.minusDays(364);
+        when(reportExportService.allParkingsEarningsCsv(from, testDate, true))
+                .thenReturn(out -> out.write("parkingId,placa\r\n".getBytes(StandardCharsets.UTF_8)));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response =
+                reportController.exportAllParkingsEarnings(null, from, testDate, true, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("text/csv;charset=UTF-8", response.getHeaders().getContentType().toString());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains(".csv"));
+        assertEquals("parkingId,placa\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportEarningsByParkingAndDate_Gzip_CompressesOnTheFly() throws Exception {
+        // Arrange
+        when(reportExportService.earningsByParkingAndDateCsv(1L, testDate))
+                .thenReturn(out -> out.write("parkingId,placa\r\n".getBytes(StandardCharsets.UTF_8)));
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response =
+                reportController.exportEarningsByParkingAndDate(1L, testDate, true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Assert
+        assertEquals("application/gzip", response.getHeaders().getContentType().toString());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains(".csv.gz"));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("parkingId,placa\r\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportEarningsByParkingAndDatePdf_RendersOnPoolAndDeletesTempFile() throws Exception {
+        // Arrange
+        Path file = Files.createTempFile("reporte-", ".pdf");
+        Files.writeString(file, "%PDF-1.4");
+        StreamingResponseBody body = out -> { };
+        when(reportExportService.earningsByParkingAndDatePdf(1L, testDate)).thenReturn(body);
+        when(reportExportService.renderPdf(body)).thenReturn(CompletableFuture.completedFuture(file));
+
+        // Act
+        ResponseEntity<Resource> response = reportController.exportEarningsByParkingAndDatePdf(1L, testDate).get();
+        String content;
+        try (InputStream in = response.getBody().getInputStream()) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        // Assert
+        assertEquals(MediaType.APPLICATION_PDF, response.getHeaders().getContentType());
+        assertEquals("%PDF-1.4", content);
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void exportTopVehiclesByParking_AsSocio_Success() {
+        // Arrange
+        when(reportExportService.topVehiclesByParkingCsv(1L, 10)).thenReturn(out -> { });
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = reportController.exportTopVehiclesByParking(1L, 10, false);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        verify(reportExportService).topVehiclesByParkingCsv(1L, 10);
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void exportFirstTimeVehiclesByParking_PassesRange() {
+        // Arrange
+        LocalDate from = testDate.minusDays(30);
+        when(reportExportService.firstTimeVehiclesCsv(1L, from, testDate)).thenReturn(out -> { });
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response =
+                reportController.exportFirstTimeVehiclesByParking(1L, from, testDate, false);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        verify(reportExportService).firstTimeVehiclesCsv(1L, from, testDate);
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void exportReturningVehiclesByParking_AsSocio_Success() {
+        // Arrange
+        when(reportExportService.returningVehiclesCsv(1L, 3L)).thenReturn(out -> { });
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = reportController.exportReturningVehiclesByParking(1L, 3L, false);
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertTrue(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION).contains("recurrentes-1.csv"));
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void exportGeneralStatistics_AsSocio_ThrowsAccessDeniedException() {
+        // Act & Assert
+        assertThrows(AccessDeniedException.class, () -> reportController.exportGeneralStatistics(false));
+        verify(reportExportService, never()).generalStatisticsCsv();
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void submitReportJob_ReturnsAccepted() {
+        // Arrange
+        ReportJobRequest request = ReportJobRequest.builder().type(ReportType.ALL_PARKINGS_EARNINGS).build();
+        when(reportJobService.submit(request)).thenReturn(Map.of("id", "job-1", "estado", "PENDING"));
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = reportController.submitReportJob(request);
+
+        // Assert
+        assertEquals(202, response.getStatusCodeValue());
+        assertEquals("job-1", response.getBody().get("id"));
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void downloadReportJob_ReturnsResultFile() throws Exception {
+        // Arrange
+        Path file = Files.createTempFile("reporte", ".csv");
+        Files.writeString(file, "placa\r\n");
+        when(reportJobService.getResult("job-1")).thenReturn(file);
+
+        // Act
+        ResponseEntity<Resource> response = reportController.downloadReportJob("job-1");
+
+        // Assert
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals("placa\r\n", response.getBody().getContentAsString(StandardCharsets.UTF_8));
+        Files.delete(file);
+    }
+
     // Tests para verificar que SOCIO no puede acceder a endpoints de ADMIN
     @WithMockUser(roles = "SOCIO")
     @ParameterizedTest(name = "[{index}] SOCIO no autorizado: {0}")
@@ -371,11 +661,13 @@ class ReportControllerTest {
         assertThrows(AccessDeniedException.class, endpointCall);
         switch (verifyKind) {
             case EARNINGS_BY_PARKING_AND_DATE ->
-                    verify(reportService, never()).getEarningsByParkingAndDate(anyLong(), any());
+                    verify(reportService, never()).validateParkingExists(anyLong());
             case ALL_PARKINGS_EARNINGS_BY_DATE ->
-                    verify(reportService, never()).getAllParkingsEarningsByDate(any());
+                    verify(reportService, never()).getAllParkingsEarningsByDate(any(), anyBoolean());
             case GENERAL_STATISTICS ->
                     verify(reportService, never()).getGeneralStatistics();
+            case REBUILD_DAILY_ROLLUP ->
+                    verify(reportService, never()).rebuildDailyRollup(any(), any());
         }
     }
 
@@ -387,11 +679,14 @@ class ReportControllerTest {
                     (Executable) () -> reportController.getEarningsByParkingAndDate(1L, today),
                     ServiceCall.EARNINGS_BY_PARKING_AND_DATE),
             arguments("getAllParkingsEarningsByDate",
-                    (Executable) () -> reportController.getAllParkingsEarningsByDate(today),
+                    (Executable) () -> reportController.getAllParkingsEarningsByDate(today, false),
                     ServiceCall.ALL_PARKINGS_EARNINGS_BY_DATE),
             arguments("getGeneralStatistics",
                     (Executable) () -> reportController.getGeneralStatistics(),
-                    ServiceCall.GENERAL_STATISTICS)
+                    ServiceCall.GENERAL_STATISTICS),
+            arguments("rebuildDailyRollup",
+                    (Executable) () -> reportController.rebuildDailyRollup(today, today),
+                    ServiceCall.REBUILD_DAILY_ROLLUP)
         );
     }
 
@@ -399,6 +694,7 @@ class ReportControllerTest {
     private enum ServiceCall {
         EARNINGS_BY_PARKING_AND_DATE,
         ALL_PARKINGS_EARNINGS_BY_DATE,
-        GENERAL_STATISTICS
+        GENERAL_STATISTICS,
+        REBUILD_DAILY_ROLLUP
     }
 }
@@ -1,9 +1,11 @@
 package com.nelumbo.parking.controllers;
 
 import com.nelumbo.parking.dto.VehicleEntryRequest;
+import com.nelumbo.parking.dto.VehicleEvent;
+import com.nelumbo.parking.dto.VehicleEventBatchRequest;
+import com.nelumbo.parking.dto.VehicleEventResult;
 import com.nelumbo.parking.dto.VehicleExitRequest;
-import com.nelumbo.parking.entities.ParkingRecord;
-import com.nelumbo.parking.entities.Vehicle;
+import com.nelumbo.parking.dto.VehicleResponse;
 import com.nelumbo.parking.services.VehicleService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +18,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 
 import jakarta.validation.Valid;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -33,7 +36,7 @@ class VehicleControllerTest {
 
     private VehicleEntryRequest entryRequest;
     private VehicleExitRequest exitRequest;
-    private Vehicle testVehicle;
+    private VehicleResponse testVehicle;
 
     @BeforeEach
     void setUp() {
@@ -45,10 +48,7 @@ class VehicleControllerTest {
         exitRequest.setLicensePlate("ABC123");
         exitRequest.setParkingId(1L);
 
-        testVehicle = Vehicle.builder()
-                .id(1L)
-                .licensePlate("ABC123")
-                .build();
+        testVehicle = new VehicleResponse(1L, "ABC123");
     }
 
     @Test
@@ -105,43 +105,43 @@ class VehicleControllerTest {
     @WithMockUser(roles = "ADMIN")
     void getParkedVehicles_AsAdmin_Success() {
         // Arrange
-        List<ParkingRecord> parkedVehicles = List.of();
-        when(vehicleService.getParkedVehicles(1L)).thenReturn(parkedVehicles);
+        Map<String, Object> parkedVehicles = Map.of("vehiculos", List.of(), "hayMas", false);
+        when(vehicleService.getParkedVehicles(1L, null, null, null, null, 50)).thenReturn(parkedVehicles);
 
         // Act
-        ResponseEntity<List<ParkingRecord>> response = vehicleController.getParkedVehicles(1L);
+        ResponseEntity<Map<String, Object>> response = vehicleController.getParkedVehicles(1L, null, null, null, null, 50);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        verify(vehicleService).getParkedVehicles(1L);
+        verify(vehicleService).getParkedVehicles(1L, null, null, null, null, 50);
     }
 
     @Test
     @WithMockUser(roles = "SOCIO")
     void getParkedVehicles_AsSocio_Success() {
         // Arrange
-        List<ParkingRecord> parkedVehicles = List.of();
-        when(vehicleService.getParkedVehicles(1L)).thenReturn(parkedVehicles);
+        Map<String, Object> parkedVehicles = Map.of("vehiculos", List.of(), "hayMas", false);
+        when(vehicleService.getParkedVehicles(1L, null, null, null, null, 50)).thenReturn(parkedVehicles);
 
         // Act
-        ResponseEntity<List<ParkingRecord>> response = vehicleController.getParkedVehicles(1L);
+        ResponseEntity<Map<String, Object>> response = vehicleController.getParkedVehicles(1L, null, null, null, null, 50);
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
-        verify(vehicleService).getParkedVehicles(1L);
+        verify(vehicleService).getParkedVehicles(1L, null, null, null, null, 50);
     }
 
     @Test
     @WithMockUser(roles = "ADMIN")
     void searchVehiclesByPlate_AsAdmin_Success() {
         // Arrange
-        List<Vehicle> vehicles = List.of(testVehicle);
+        List<VehicleResponse> vehicles = List.of(testVehicle);
         when(vehicleService.searchVehiclesByPlate("ABC")).thenReturn(vehicles);
 
         // Act
-        ResponseEntity<List<Vehicle>> response = vehicleController.searchVehiclesByPlate("ABC");
+        ResponseEntity<List<VehicleResponse>> response = vehicleController.searchVehiclesByPlate("ABC");
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -154,11 +154,11 @@ class VehicleControllerTest {
     @WithMockUser(roles = "SOCIO")
     void searchVehiclesByPlate_AsSocio_Success() {
         // Arrange
-        List<Vehicle> vehicles = List.of(testVehicle);
+        List<VehicleResponse> vehicles = List.of(testVehicle);
         when(vehicleService.searchVehiclesByPlate("ABC")).thenReturn(vehicles);
 
         // Act
-        ResponseEntity<List<Vehicle>> response = vehicleController.searchVehiclesByPlate("ABC");
+        ResponseEntity<List<VehicleResponse>> response = vehicleController.searchVehiclesByPlate("ABC");
 
         // Assert
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -166,4 +166,50 @@ class VehicleControllerTest {
         assertEquals(1, response.getBody().size());
         verify(vehicleService).searchVehiclesByPlate("ABC");
     }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void locateVehicle_AsSocio_Success() {
+        // Arrange
+        Map<String, Object> location = Map.of("placa", "ABC123", "parkingId", 1L);
+        when(vehicleService.locateVehicle("ABC123")).thenReturn(location);
+
+        // Act
+        ResponseEntity<Map<String, Object>> response = vehicleController.locateVehicle("ABC123");
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1L, response.getBody().get("parkingId"));
+        verify(vehicleService).locateVehicle("ABC123");
+    }
+
+    @Test
+    @WithMockUser(roles = "SOCIO")
+    void registerVehicleEvents_AsSocio_Success() {
+        // Arrange
+        List<VehicleEvent> events = List.of(new VehicleEvent(VehicleEvent.EventType.ENTRY, "ABC123", 1L));
+        VehicleEventBatchRequest request = new VehicleEventBatchRequest(events);
+        List<VehicleEventResult> results = List.of(VehicleEventResult.builder().indice(0).exitoso(true).build());
+        when(vehicleService.registerVehicleEvents(events)).thenReturn(results);
+
+        // Act
+        ResponseEntity<List<VehicleEventResult>> response = vehicleController.registerVehicleEvents(request);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(1, response.getBody().size());
+        verify(vehicleService).registerVehicleEvents(events);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void registerVehicleEvents_AsAdmin_ThrowsAccessDeniedException() {
+        // Arrange
+        VehicleEventBatchRequest request = new VehicleEventBatchRequest(List.of());
+
+        // Act & Assert
+        assertThrows(org.springframework.security.access.AccessDeniedException.class, () ->
+            vehicleController.registerVehicleEvents(request));
+        verify(vehicleService, never()).registerVehicleEvents(any());
+    }
 }
@@ -0,0 +1,152 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.entities.Parking;
+import com.nelumbo.parking.entities.ParkingRecord;
+import com.nelumbo.parking.repositories.ParkingRecordRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActivePlateIndexTest {
+
+    @Mock
+    private ParkingRecordRepository parkingRecordRepository;
+
+    @InjectMocks
+    private ActivePlateIndex activePlateIndex;
+
+    @Test
+    void rebuild_LoadsActivePlates() {
+        // Arrange
+        LocalDateTime entry = LocalDateTime.now();
+        when(parkingRecordRepository.findAllActiveSummaries())
+                .thenReturn(List.<Object[]>of(new Object[]{"ABC123", 5L, 1L, entry}));
+
+        // Act
+        activePlateIndex.rebuild();
+
+        // Assert
+        Optional<ActivePlateIndex.ActiveVehicle> result = activePlateIndex.find("ABC123");
+        assertTrue(result.isPresent());
+        assertEquals(5L, result.get().recordId());
+        assertEquals(1L, result.get().parkingId());
+        verify(parkingRecordRepository, never()).findActiveByLicensePlate(anyString());
+    }
+
+    @Test
+    void reserve_DuplicatePlate_ReturnsFalse() {
+        // Arrange
+        when(parkingRecordRepository.findAllActiveSummaries()).thenReturn(List.of());
+        activePlateIndex.rebuild();
+
+        // Act & Assert
+        assertTrue(activePlateIndex.reserve("ABC123", 1L));
+        assertFalse(activePlateIndex.reserve("ABC123", 2L));
+    }
+
+    @Test
+    void reserve_ActiveOnAnotherInstance_ReturnsFalse() {
+        // Arrange
+        when(parkingRecordRepository.findAllActiveSummaries()).thenReturn(List.of());
+        activePlateIndex.rebuild();
+        when(parkingRecordRepository.findActiveByLicensePlate("ABC123"))
+                .thenReturn(Optional.of(ParkingRecord.builder().id(7L).build()));
+
+        // Act & Assert
+        assertFalse(activePlateIndex.reserve("ABC123", 1L));
+        assertEquals(0, activePlateIndex.size());
+    }
+
+    @Test
+    void reserve_ExitedOnAnotherInstance_ReplacesStaleEntry() {
+        // Arrange
+        when(parkingRecordRepository.findAllActiveSummaries())
+                .thenReturn(List.<Object[]>of(new Object[]{"ABC123", 5L, 1L, LocalDateTime.now()}));
+        activePlateIndex.rebuild();
+        when(parkingRecordRepository.findActiveByLicensePlate("ABC123")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertTrue(activePlateIndex.reserve("ABC123", 2L));
+        assertFalse(activePlateIndex.reserve("ABC123", 3L));
+    }
+
+    @Test
+    void confirmAndClaim_RemovesPlate() {
+        // Arrange
+        when(parkingRecordRepository.findAllActiveSummaries()).thenReturn(List.of());
+        activePlateIndex.rebuild();
+        ParkingRecord parkingRecord = ParkingRecord.builder()
+                .id(9L)
+                .parking(Parking.builder().id(1L).build())
+                .entryDateTime(LocalDateTime.now())
+                .build();
+        activePlateIndex.reserve("ABC123", 1L);
+        activePlateIndex.confirm("ABC123", parkingRecord);
+
+        // Act
+        Optional<ActivePlateIndex.ActiveVehicle> wrongParking = activePlateIndex.claim("ABC123", 2L);
+        Optional<ActivePlateIndex.ActiveVehicle> claimed = activePlateIndex.claim("ABC123", 1L);
+
+        // Assert
+        assertTrue(wrongParking.isEmpty());
+        assertTrue(claimed.isPresent());
+        assertEquals(9L, claimed.get().recordId());
+        assertTrue(activePlateIndex.find("ABC123").isEmpty());
+    }
+
+    @Test
+    void rebuild_KeepsReservationsMadeBeforeLoad() {
+        // Arrange
+        when(parkingRecordRepository.findActiveByLicensePlate("ABC123")).thenReturn(Optional.empty());
+        when(parkingRecordRepository.findAllActiveSummaries()).thenReturn(List.of());
+        assertTrue(activePlateIndex.reserve("ABC123", 1L));
+
+        // Act
+        activePlateIndex.rebuild();
+
+        // Assert
+        assertFalse(activePlateIndex.reserve("ABC123", 2L));
+    }
+
+    @Test
+    void rebuild_SkipsPlatesClaimedWhileLoading() {
+        // Arrange
+        LocalDateTime entry = LocalDateTime.now();
+        ParkingRecord parkingRecord = ParkingRecord.builder()
+                .id(5L)
+                .parking(Parking.builder().id(1L).build())
+                .entryDateTime(entry)
+                .build();
+        when(parkingRecordRepository.findActiveByLicensePlate("ABC123")).thenReturn(Optional.of(parkingRecord));
+        when(parkingRecordRepository.findAllActiveSummaries())
+                .thenReturn(List.<Object[]>of(new Object[]{"ABC123", 5L, 1L, entry}));
+        assertTrue(activePlateIndex.claim("ABC123", 1L).isPresent());
+
+        // Act
+        activePlateIndex.rebuild();
+
+        // Assert
+        assertTrue(activePlateIndex.find("ABC123").isEmpty());
+    }
+
+    @Test
+    void find_NotLoaded_FallsBackToDatabase() {
+        // Arrange
+        when(parkingRecordRepository.findActiveByLicensePlate("ABC123")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertTrue(activePlateIndex.find("ABC123").isEmpty());
+        verify(parkingRecordRepository).findActiveByLicensePlate("ABC123");
+    }
+}
@@ -0,0 +1,151 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.entities.EmailOutbox;
+import com.nelumbo.parking.entities.EmailOutbox.OutboxStatus;
+import com.nelumbo.parking.repositories.EmailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EmailOutboxServiceTest {
+
+    @Mock
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private EmailOutboxService emailOutboxService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(emailOutboxService, "batchSize", 10);
+        ReflectionTestUtils.setField(emailOutboxService, "maxAttempts", 2);
+        ReflectionTestUtils.setField(emailOutboxService, "backoffMs", 1000L);
+        ReflectionTestUtils.setField(emailOutboxService, "claimTimeoutMs", 60000L);
+    }
+
+    private EmailOutbox pending(int attempts) {
+        return EmailOutbox.builder()
+                .id(1L)
+                .email("usuario@ejemplo.com")
+                .licensePlate("ABC123")
+                .message("Vehículo registrado exitosamente")
+                .parkingName("Test Parking")
+                .status(OutboxStatus.PENDING)
+                .attempts(attempts)
+                .createdAt(LocalDateTime.now())
+                .nextAttemptAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Test
+    void enqueue_SavesPendingMessage() {
+        // Act
+        emailOutboxService.enqueue("usuario@ejemplo.com", "ABC123", "Mensaje", "Test Parking");
+
+        // Assert
+        ArgumentCaptor<EmailOutbox> captor = ArgumentCaptor.forClass(EmailOutbox.class);
+        verify(emailOutboxRepository).save(captor.capture());
+        assertEquals(OutboxStatus.PENDING, captor.getValue().getStatus());
+        assertEquals(0, captor.getValue().getAttempts());
+        verifyNoInteractions(emailService);
+    }
+
+    @Test
+    void dispatchPending_Sent_MarksAsSent() {
+        // Arrange
+        EmailOutbox outbox = pending(0);
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(outbox));
+        when(emailService.sendEmail(anyString(), anyString(), anyString(), anyString())).thenReturn(true);
+
+        // Act
+        int processed = emailOutboxService.dispatchPending();
+
+        // Assert
+        assertEquals(1, processed);
+        assertEquals(OutboxStatus.SENT, outbox.getStatus());
+        assertNotNull(outbox.getSentAt());
+        verify(emailOutboxRepository, times(2)).saveAll(List.of(outbox));
+        verify(emailOutboxRepository).lockDue(any(LocalDateTime.class), eq(10));
+    }
+
+    @Test
+    void dispatchPending_Failure_SchedulesRetry() {
+        // Arrange
+        EmailOutbox outbox = pending(0);
+        LocalDateTime before = outbox.getNextAttemptAt();
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(outbox));
+        when(emailService.sendEmail(anyString(), anyString(), anyString(), anyString())).thenReturn(false);
+
+        // Act
+        emailOutboxService.dispatchPending();
+
+        // Assert
+        assertEquals(OutboxStatus.PENDING, outbox.getStatus());
+        assertEquals(1, outbox.getAttempts());
+        assertTrue(outbox.getNextAttemptAt().isAfter(before));
+    }
+
+    @Test
+    void dispatchPending_MaxAttemptsReached_MarksAsFailed() {
+        // Arrange
+        EmailOutbox outbox = pending(1);
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(outbox));
+        when(emailService.sendEmail(anyString(), anyString(), anyString(), anyString()))
+                .thenThrow(new RuntimeException("SMTP caído"));
+
+        // Act
+        emailOutboxService.dispatchPending();
+
+        // Assert
+        assertEquals(OutboxStatus.FAILED, outbox.getStatus());
+        assertEquals("SMTP caído", outbox.getLastError());
+    }
+
+    @Test
+    void dispatchPending_LongError_TruncatesToColumnLength() {
+        // Arrange
+        EmailOutbox outbox = pending(0);
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of(outbox));
+        when(emailService.sendEmail(anyString(), anyString(), anyString(), anyString()))
+                .thenThrow(new RuntimeException("x".repeat(1000)));
+
+        // Act
+        emailOutboxService.dispatchPending();
+
+        // Assert
+        assertEquals(EmailOutbox.LAST_ERROR_LENGTH, outbox.getLastError().length());
+    }
+
+    @Test
+    void dispatchPending_NothingDue_ReturnsZero() {
+        // Arrange
+        when(emailOutboxRepository.lockDue(any(LocalDateTime.class), anyInt())).thenReturn(List.of());
+
+        // Act & Assert
+        assertEquals(0, emailOutboxService.dispatchPending());
+        verify(emailOutboxRepository, never()).saveAll(any());
+    }
+}
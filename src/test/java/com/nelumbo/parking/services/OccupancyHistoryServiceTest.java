@@ -0,0 +1,204 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.entities.Parking;
+import com.nelumbo.parking.entities.ParkingOccupancySample;
+import com.nelumbo.parking.entities.ParkingOccupancySample.Resolution;
+import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingOccupancySampleRepository;
+import com.nelumbo.parking.repositories.ParkingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyHistoryServiceTest {
+
+    @Mock
+    private ParkingRepository parkingRepository;
+
+    @Mock
+    private ParkingOccupancySampleRepository parkingOccupancySampleRepository;
+
+    private OccupancyHistoryService service;
+    private Parking testParking;
+
+    @BeforeEach
+    void setUp() {
+        service = new OccupancyHistoryService(parkingRepository, parkingOccupancySampleRepository, 120, 30);
+        testParking = Parking.builder()
+                .id(1L)
+                .name("Parqueadero Centro")
+                .capacity(20)
+                .build();
+    }
+
+    private void occupied(int occupied) {
+        when(parkingRepository.findAllOccupied()).thenReturn(List.<Object[]>of(new Object[]{1L, occupied}));
+    }
+
+    @Test
+    void sample_HourChange_StoresSummaryOfClosedHour() {
+        // Arrange
+        LocalDateTime hour = LocalDateTime.of(2024, 1, 15, 10, 0);
+        occupied(4);
+        service.sample(hour.plusMinutes(58));
+        occupied(8);
+        service.sample(hour.plusMinutes(59));
+
+        // Act
+        occupied(5);
+        service.sample(hour.plusHours(1));
+
+        // Assert
+        verify(parkingOccupancySampleRepository).upsertHour(1L, hour, 12L, 2L, 4, 8);
+        verify(parkingOccupancySampleRepository, never()).rollUpDay(any(), any());
+    }
+
+    @Test
+    void sample_DayChange_RollsUpDayAndPurgesOldHours() {
+        // Arrange
+        occupied(3);
+        service.sample(LocalDateTime.of(2024, 1, 15, 23, 59));
+
+        // Act
+        service.sample(LocalDateTime.of(2024, 1, 16, 0, 0));
+
+        // Assert
+        verify(parkingOccupancySampleRepository).upsertHour(1L, LocalDateTime.of(2024, 1, 15, 23, 0), 3L, 1L, 3, 3);
+        verify(parkingOccupancySampleRepository).rollUpDay(LocalDateTime.of(2024, 1, 15, 0, 0),
+                LocalDateTime.of(2024, 1, 16, 0, 0));
+        verify(parkingOccupancySampleRepository).rollUpPendingDays(LocalDateTime.of(2024, 1, 16, 0, 0));
+        verify(parkingOccupancySampleRepository).deleteByResolutionAndBucketStartBefore(Resolution.HOUR,
+                LocalDateTime.of(2023, 12, 16, 0, 0));
+    }
+
+    @Test
+    void sample_FirstSample_RollsUpPendingDays() {
+        // Arrange
+        occupied(3);
+
+        // Act
+        service.sample(LocalDateTime.of(2024, 1, 15, 10, 0));
+
+        // Assert
+        verify(parkingOccupancySampleRepository).rollUpPendingDays(LocalDateTime.of(2024, 1, 15, 0, 0));
+        verify(parkingOccupancySampleRepository, never()).rollUpDay(any(), any());
+    }
+
+    @Test
+    void sample_FirstSample_StoresNothing() {
+        // Arrange
+        occupied(3);
+
+        // Act
+        service.sample(LocalDateTime.of(2024, 1, 15, 10, 0));
+
+        // Assert
+        verify(parkingOccupancySampleRepository, never())
+                .upsertHour(anyLong(), any(), anyLong(), anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getOccupancy_ByMinute_ReadsInMemorySamples() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        occupied(5);
+        service.sample(now.minusMinutes(2));
+        occupied(10);
+        service.sample(now.minusMinutes(1));
+
+        // Act
+        Map<String, Object> result = service.getOccupancy(1L, now.minusMinutes(5), now, "minute");
+
+        // Assert
+        List<Map<String, Object>> points = (List<Map<String, Object>>) result.get("puntos");
+        assertEquals(2, points.size());
+        assertEquals(now.minusMinutes(2), points.get(0).get("periodo"));
+        assertEquals(5, points.get(0).get("maximo"));
+        assertEquals(50.0, points.get(1).get("porcentajePromedio"));
+        verify(parkingOccupancySampleRepository, never()).findBuckets(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void getOccupancy_ByHour_ReadsStoredHours() {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2024, 1, 15, 8, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 1, 15, 10, 0);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingOccupancySampleRepository.findBuckets(1L, Resolution.HOUR, from, to)).thenReturn(List.of(
+                ParkingOccupancySample.builder().parkingId(1L).resolution(Resolution.HOUR).bucketStart(from)
+                        .occupiedSum(300L).samples(60L).minOccupied(2).maxOccupied(9).build()));
+
+        // Act
+        Map<String, Object> result = service.getOccupancy(1L, from, to, "hour");
+
+        // Assert
+        List<Map<String, Object>> points = (List<Map<String, Object>>) result.get("puntos");
+        assertEquals(1, points.size());
+        assertEquals(5.0, points.get(0).get("promedio"));
+        assertEquals(9, points.get(0).get("maximo"));
+        assertEquals(25.0, points.get(0).get("porcentajePromedio"));
+    }
+
+    @Test
+    void getOccupancy_MinutesOutsideRetention_ThrowsValidationException() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> service.getOccupancy(1L, now.minusHours(3), now, "minute"));
+    }
+
+    @Test
+    void getOccupancy_InvalidStep_ThrowsValidationException() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> service.getOccupancy(1L, now.minusHours(1), now, "week"));
+    }
+
+    @Test
+    void getOccupancyHeatmap_ReturnsCellPerHourOfWeek() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingOccupancySampleRepository.sumByHourOfWeek(eq(1L), any(), any())).thenReturn(List.<Object[]>of(
+                new Object[]{1, 9, 1200L, 120L, 4, 16}));
+
+        // Act
+        Map<String, Object> result = service.getOccupancyHeatmap(1L, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31));
+
+        // Assert
+        List<Map<String, Object>> cells = (List<Map<String, Object>>) result.get("celdas");
+        assertEquals(168, cells.size());
+        Map<String, Object> mondayNine = cells.get(9);
+        assertEquals(1, mondayNine.get("diaSemana"));
+        assertEquals(9, mondayNine.get("hora"));
+        assertEquals(10.0, mondayNine.get("promedio"));
+        assertEquals(16, mondayNine.get("maximo"));
+        assertEquals(0L, cells.get(10).get("muestras"));
+        verify(parkingOccupancySampleRepository).sumByHourOfWeek(1L,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0));
+    }
+}
@@ -0,0 +1,179 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.repositories.ParkingRecordRepository;
+import com.nelumbo.parking.repositories.ParkingRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OccupancyRegistryTest {
+
+    @Mock
+    private ParkingRecordRepository parkingRecordRepository;
+
+    @Mock
+    private ParkingRepository parkingRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private OccupancyRegistry occupancyRegistry;
+
+    @Test
+    void occupy_LazilySeedsFromDatabase() {
+        // Arrange
+        when(parkingRecordRepository.countActiveByParkingId(1L)).thenReturn(2L);
+
+        // Act
+        occupancyRegistry.occupy(1L);
+        occupancyRegistry.occupy(1L);
+
+        // Assert
+        assertEquals(4, occupancyRegistry.getOccupancy(1L));
+        verify(parkingRecordRepository, times(1)).countActiveByParkingId(1L);
+    }
+
+    @Test
+    void release_DecrementsWithoutGoingNegative() {
+        // Arrange
+        when(parkingRecordRepository.countActiveByParkingId(1L)).thenReturn(1L);
+
+        // Act
+        occupancyRegistry.release(1L);
+        occupancyRegistry.release(1L);
+
+        // Assert
+        assertEquals(0, occupancyRegistry.getOccupancy(1L));
+    }
+
+    @Test
+    void seedFromDatabase_LoadsCountersWithoutTouchingColumn() {
+        // Arrange
+        when(parkingRecordRepository.countActiveGroupedByParking())
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 3L}));
+
+        // Act
+        occupancyRegistry.seedFromDatabase();
+
+        // Assert
+        verifyNoInteractions(parkingRepository);
+        assertEquals(3, occupancyRegistry.getOccupancy(1L));
+    }
+
+    @Test
+    void reconcile_CorrectsCounterAndColumnDrift() {
+        // Arrange
+        when(parkingRecordRepository.countActiveGroupedByParking())
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 3L}))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 4L}, new Object[]{2L, 1L}));
+        when(parkingRepository.findAllOccupied())
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 4}, new Object[]{2L, 0}));
+        when(parkingRecordRepository.countActiveByParkingId(2L)).thenReturn(1L);
+        when(parkingRepository.lockOccupied(2L)).thenReturn(0);
+        occupancyRegistry.seedFromDatabase();
+        occupancyRegistry.getOccupancy(2L);
+
+        // Act
+        int corrected = occupancyRegistry.reconcile();
+
+        // Assert
+        assertEquals(2, corrected);
+        assertEquals(4, occupancyRegistry.getOccupancy(1L));
+        verify(parkingRepository).setOccupied(2L, 1);
+        verify(parkingRepository, never()).lockOccupied(1L);
+    }
+
+    @Test
+    void reconcile_ColumnMatchesUnderLock_LeavesColumn() {
+        // Arrange
+        when(parkingRecordRepository.countActiveGroupedByParking())
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 2L}));
+        when(parkingRepository.findAllOccupied())
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 3}));
+        // Un ingreso confirmó entre la lectura de la columna y el bloqueo
+        when(parkingRepository.lockOccupied(1L)).thenReturn(3);
+        when(parkingRecordRepository.countActiveByParkingId(1L)).thenReturn(3L);
+
+        // Act
+        int corrected = occupancyRegistry.reconcile();
+
+        // Assert
+        assertEquals(0, corrected);
+        verify(parkingRepository, never()).setOccupied(anyLong(), anyInt());
+    }
+
+    @Test
+    void reconcile_TransactionInFlight_KeepsCounter() {
+        // Arrange
+        when(parkingRecordRepository.countActiveByParkingId(1L)).thenReturn(2L);
+        when(parkingRecordRepository.countActiveGroupedByParking())
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 2L}));
+        when(parkingRepository.findAllOccupied())
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 3}));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            occupancyRegistry.occupy(1L);
+
+            // Act
+            occupancyRegistry.reconcile();
+
+            // Assert
+            assertEquals(3, occupancyRegistry.getOccupancy(1L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void occupy_Rollback_RestoresCounter() {
+        // Arrange
+        when(parkingRecordRepository.countActiveByParkingId(1L)).thenReturn(2L);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            occupancyRegistry.occupy(1L);
+
+            // Act
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            // Assert
+            assertEquals(2, occupancyRegistry.getOccupancy(1L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getDrift_ReportsCounterColumnAndDatabase() {
+        // Arrange
+        when(parkingRecordRepository.countActiveGroupedByParking())
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 2L}));
+        when(parkingRepository.findAllOccupied())
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 2}));
+
+        // Act
+        List<Map<String, Object>> drift = occupancyRegistry.getDrift();
+
+        // Assert
+        assertEquals(1, drift.size());
+        assertEquals(0L, drift.getFirst().get("contador"));
+        assertEquals(2L, drift.getFirst().get("columna"));
+        assertEquals(-2L, drift.getFirst().get("diferencia"));
+        verify(parkingRepository, never()).setOccupied(anyLong(), anyInt());
+    }
+}
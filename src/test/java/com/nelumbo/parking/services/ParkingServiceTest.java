@@ -1,6 +1,7 @@
 package com.nelumbo.parking.services;
 
 import com.nelumbo.parking.dto.ParkingRequest;
+import com.nelumbo.parking.dto.ParkingResponse;
 import com.nelumbo.parking.entities.Parking;
 import com.nelumbo.parking.entities.User;
 import com.nelumbo.parking.enums.Role;
@@ -15,12 +16,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -33,6 +34,15 @@ class ParkingServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private OccupancyRegistry occupancyRegistry;
+
+    @Mock
+    private ReportResultCache reportResultCache;
+
+    @Mock
+    private TopVehicleTracker topVehicleTracker;
+
     @InjectMocks
     private ParkingService parkingService;
 
@@ -54,7 +64,7 @@ class ParkingServiceTest {
                 .id(1L)
                 .name("Test Parking")
                 .capacity(50)
-                .hourlyRate(BigDecimal.valueOf(5.00))
+                .hourlyRate(5L)
                 .partner(testPartner)
                 .build();
 
@@ -73,12 +83,14 @@ class ParkingServiceTest {
         when(parkingRepository.save(any(Parking.class))).thenReturn(testParking);
 
         // Act
-        Parking result = parkingService.createParking(parkingRequest);
+        ParkingResponse result = parkingService.createParking(parkingRequest);
 
         // Assert
         assertNotNull(result);
-        assertEquals("Test Parking", result.getName());
-        verify(parkingRepository).save(any(Parking.class));
+        assertEquals("Test Parking", result.name());
+        assertEquals(1L, result.partnerId());
+        assertEquals("partner@test.com", result.partnerEmail());
+        verify(parkingRepository).save(argThat(parking -> parking.getHourlyRate() == 3L));
     }
 
     @Test
@@ -89,7 +101,7 @@ class ParkingServiceTest {
         when(parkingRepository.save(any(Parking.class))).thenReturn(testParking);
 
         // Act
-        Parking result = parkingService.createParking(parkingRequest);
+        ParkingResponse result = parkingService.createParking(parkingRequest);
 
         // Assert
         assertNotNull(result);
@@ -145,20 +157,21 @@ class ParkingServiceTest {
     @Test
     void getParkingById_Success() {
         // Arrange
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingRepository.findResponseById(1L)).thenReturn(Optional.of(ParkingResponse.from(testParking)));
 
         // Act
-        Parking result = parkingService.getParkingById(1L);
+        ParkingResponse result = parkingService.getParkingById(1L);
 
         // Assert
         assertNotNull(result);
-        assertEquals("Test Parking", result.getName());
+        assertEquals("Test Parking", result.name());
+        verify(parkingRepository, never()).findById(anyLong());
     }
 
     @Test
     void getParkingById_NotFound_ThrowsValidationException() {
         // Arrange
-        when(parkingRepository.findById(999L)).thenReturn(Optional.empty());
+        when(parkingRepository.findResponseById(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ValidationException.class,
@@ -168,16 +181,17 @@ class ParkingServiceTest {
     @Test
     void getAllParkings_Success() {
         // Arrange
-        List<Parking> parkings = List.of(testParking);
-        when(parkingRepository.findAll()).thenReturn(parkings);
+        List<ParkingResponse> parkings = List.of(ParkingResponse.from(testParking));
+        when(parkingRepository.findAllResponses()).thenReturn(parkings);
 
         // Act
-        List<Parking> result = parkingService.getAllParkings();
+        List<ParkingResponse> result = parkingService.getAllParkings();
 
         // Assert
         assertNotNull(result);
         assertEquals(1, result.size());
-        assertEquals("Test Parking", result.getFirst().getName());
+        assertEquals("Test Parking", result.getFirst().name());
+        verify(parkingRepository, never()).findAll();
     }
 
     @Test
@@ -189,11 +203,12 @@ class ParkingServiceTest {
         when(parkingRepository.save(any(Parking.class))).thenReturn(testParking);
 
         // Act
-        Parking result = parkingService.updateParking(1L, parkingRequest);
+        ParkingResponse result = parkingService.updateParking(1L, parkingRequest);
 
         // Assert
         assertNotNull(result);
         verify(parkingRepository).save(any(Parking.class));
+        verify(reportResultCache).invalidateParkingDefinitions(List.of(1L));
     }
 
     @Test
@@ -232,36 +247,38 @@ class ParkingServiceTest {
 
         // Assert
         verify(parkingRepository).delete(testParking);
+        verify(occupancyRegistry).remove(1L);
+        verify(reportResultCache).invalidateParkingDefinitions(List.of(1L));
     }
 
     @Test
     void getParkingsByPartner_Success() {
         // Arrange
-        List<Parking> parkings = List.of(testParking);
-        when(parkingRepository.findByPartnerId(1L)).thenReturn(parkings);
+        List<ParkingResponse> parkings = List.of(ParkingResponse.from(testParking));
+        when(parkingRepository.findResponsesByPartnerId(1L)).thenReturn(parkings);
 
         // Act
-        List<Parking> result = parkingService.getParkingsByPartner(1L);
+        List<ParkingResponse> result = parkingService.getParkingsByPartner(1L);
 
         // Assert
         assertNotNull(result);
         assertEquals(1, result.size());
-        assertEquals("Test Parking", result.getFirst().getName());
+        assertEquals("Test Parking", result.getFirst().name());
     }
 
     @Test
     void getParkingsByPartnerEmail_Success() {
         // Arrange
-        List<Parking> parkings = List.of(testParking);
-        when(parkingRepository.findByPartnerEmail("partner@test.com")).thenReturn(parkings);
+        List<ParkingResponse> parkings = List.of(ParkingResponse.from(testParking));
+        when(parkingRepository.findResponsesByPartnerEmail("partner@test.com")).thenReturn(parkings);
 
         // Act
-        List<Parking> result = parkingService.getParkingsByPartnerEmail("partner@test.com");
+        List<ParkingResponse> result = parkingService.getParkingsByPartnerEmail("partner@test.com");
 
         // Assert
         assertNotNull(result);
         assertEquals(1, result.size());
-        assertEquals("Test Parking", result.getFirst().getName());
+        assertEquals("Test Parking", result.getFirst().name());
     }
 
     @Test
@@ -272,11 +289,12 @@ class ParkingServiceTest {
         when(parkingRepository.save(any(Parking.class))).thenReturn(testParking);
 
         // Act
-        Parking result = parkingService.associatePartnerToParking(1L, 1L);
+        ParkingResponse result = parkingService.associatePartnerToParking(1L, 1L);
 
         // Assert
         assertNotNull(result);
-        assertEquals(testPartner, result.getPartner());
+        assertEquals(testPartner.getId(), result.partnerId());
+        assertEquals(testPartner.getName(), result.partnerName());
         verify(parkingRepository).save(any(Parking.class));
     }
 
@@ -319,18 +337,18 @@ class ParkingServiceTest {
         when(parkingRepository.save(any(Parking.class))).thenReturn(testParking);
 
         // Act
-        Parking result = parkingService.removePartnerFromParking(1L);
+        ParkingResponse result = parkingService.removePartnerFromParking(1L);
 
         // Assert
         assertNotNull(result);
-        assertNull(result.getPartner());
+        assertNull(result.partnerId());
         verify(parkingRepository).save(any(Parking.class));
     }
 
     @Test
     void hasPartner_WithPartner_ReturnsTrue() {
         // Arrange
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingRepository.findResponseById(1L)).thenReturn(Optional.of(ParkingResponse.from(testParking)));
 
         // Act
         boolean result = parkingService.hasPartner(1L);
@@ -346,11 +364,11 @@ class ParkingServiceTest {
                 .id(2L)
                 .name("Parking Without Partner")
                 .capacity(30)
-                .hourlyRate(BigDecimal.valueOf(3.00))
+                .hourlyRate(3L)
                 .partner(null)
                 .build();
 
-        when(parkingRepository.findById(2L)).thenReturn(Optional.of(parkingWithoutPartner));
+        when(parkingRepository.findResponseById(2L)).thenReturn(Optional.of(ParkingResponse.from(parkingWithoutPartner)));
 
         // Act
         boolean result = parkingService.hasPartner(2L);
@@ -366,19 +384,20 @@ class ParkingServiceTest {
                 .id(2L)
                 .name("Parking Without Partner")
                 .capacity(30)
-                .hourlyRate(BigDecimal.valueOf(3.00))
+                .hourlyRate(3L)
                 .partner(null)
                 .build();
 
-        List<Parking> allParkings = Arrays.asList(testParking, parkingWithoutPartner);
-        when(parkingRepository.findAll()).thenReturn(allParkings);
+        when(parkingRepository.findResponsesWithoutPartner())
+                .thenReturn(List.of(ParkingResponse.from(parkingWithoutPartner)));
 
         // Act
-        List<Parking> result = parkingService.getParkingsWithoutPartner();
+        List<ParkingResponse> result = parkingService.getParkingsWithoutPartner();
 
         // Assert
         assertNotNull(result);
         assertEquals(1, result.size());
-        assertEquals("Parking Without Partner", result.getFirst().getName());
+        assertEquals("Parking Without Partner", result.getFirst().name());
+        assertNull(result.getFirst().partnerId());
     }
 }
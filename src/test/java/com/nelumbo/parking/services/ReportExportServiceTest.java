@@ -0,0 +1,262 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.dto.EarningsDetailRow;
+import com.nelumbo.parking.entities.ParkingDailyRollup;
+import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingDailyRollupRepository;
+import com.nelumbo.parking.repositories.ParkingVehicleVisitRepository;
+import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportExportServiceTest {
+
+    @Mock
+    private VehicleHistoryRepository vehicleHistoryRepository;
+
+    @Mock
+    private ParkingDailyRollupRepository parkingDailyRollupRepository;
+
+    @Mock
+    private ParkingVehicleVisitRepository parkingVehicleVisitRepository;
+
+    @Mock
+    private ReportService reportService;
+
+    @Mock
+    private UniqueVehicleService uniqueVehicleService;
+
+    @Mock
+    private OccupancyHistoryService occupancyHistoryService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ReportExportService reportExportService;
+
+    @AfterEach
+    void tearDown() {
+        reportExportService.shutdown();
+    }
+
+    @BeforeEach
+    void setUp() {
+        reportExportService = new ReportExportService(vehicleHistoryRepository, parkingDailyRollupRepository,
+                parkingVehicleVisitRepository, reportService, uniqueVehicleService, occupancyHistoryService,
+                transactionManager, true, 366, 1, 1);
+    }
+
+    private String write(StreamingResponseBody body) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void topVehiclesByParkingCsv_LimitsInDatabase() throws Exception {
+        // Arrange
+        when(vehicleHistoryRepository.findTopPlatesByParkingId(1L, PageRequest.of(0, 2))).thenReturn(List.of(
+                new Object[]{"ABC123", 5L}, new Object[]{"XYZ789", 3L}));
+
+        // Act
+        String csv = write(reportExportService.topVehiclesByParkingCsv(1L, 2));
+
+        // Assert
+        assertEquals("placa,totalRegistros\r\nABC123,5\r\nXYZ789,3\r\n", csv);
+        verify(reportService).validateParkingExists(1L);
+        verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void firstTimeVehiclesCsv_WithRange_StreamsOnlyVisitsInRange() throws Exception {
+        // Arrange
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        when(parkingVehicleVisitRepository.streamFirstTimePlatesByParkingIdAndVisitBetween(1L,
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay())).thenReturn(Stream.of("ABC123"));
+
+        // Act
+        String csv = write(reportExportService.firstTimeVehiclesCsv(1L, from, to));
+
+        // Assert
+        assertEquals("placa,totalVisitas\r\nABC123,1\r\n", csv);
+        verify(parkingVehicleVisitRepository, never()).streamFirstTimePlatesByParkingId(any());
+    }
+
+    @Test
+    void firstTimeVehiclesCsv_OnlyOneDate_ThrowsValidationException() {
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> reportExportService.firstTimeVehiclesCsv(1L, LocalDate.of(2024, 1, 1), null));
+    }
+
+    @Test
+    void returningVehiclesCsv_WritesVisitRows() throws Exception {
+        // Arrange
+        LocalDateTime first = LocalDateTime.of(2024, 1, 1, 8, 0);
+        LocalDateTime last = LocalDateTime.of(2024, 1, 5, 9, 0);
+        when(parkingVehicleVisitRepository.streamReturningByParkingId(1L, 3L)).thenReturn(Stream.<Object[]>of(
+                new Object[]{"ABC123", 4L, first, last}));
+
+        // Act
+        String csv = write(reportExportService.returningVehiclesCsv(1L, 3L));
+
+        // Assert
+        assertEquals("placa,totalVisitas,primeraVisita,ultimaVisita\r\nABC123,4," + first + "," + last + "\r\n", csv);
+    }
+
+    @Test
+    void uniqueVehiclesCsv_Grouped_WritesOneRowPerPeriod() throws Exception {
+        // Arrange
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 2, 29);
+        when(uniqueVehicleService.getUniqueVehicles(List.of(1L), from, to, "month")).thenReturn(Map.of(
+                "vehiculosUnicos", 150L,
+                "detalle", List.of(
+                        Map.of("periodo", from, "vehiculosUnicos", 100L, "margenError95", 3L, "minimo", 97L, "maximo", 103L),
+                        Map.of("periodo", from.plusMonths(1), "vehiculosUnicos", 80L, "margenError95", 2L,
+                                "minimo", 78L, "maximo", 82L))));
+
+        // Act
+        String csv = write(reportExportService.uniqueVehiclesCsv(List.of(1L), from, to, "month"));
+
+        // Assert
+        assertEquals("periodo,vehiculosUnicos,margenError95,minimo,maximo\r\n"
+                + "2024-01-01,100,3,97,103\r\n2024-02-01,80,2,78,82\r\n", csv);
+    }
+
+    @Test
+    void occupancyCsv_EmptyPointLeavesAveragesBlank() throws Exception {
+        // Arrange
+        LocalDateTime from = LocalDateTime.of(2024, 1, 15, 0, 0);
+        when(occupancyHistoryService.getOccupancy(1L, from, from.plusHours(2), "hour")).thenReturn(Map.of(
+                "puntos", List.of(
+                        Map.of("periodo", from, "muestras", 60, "promedio", 4.5, "minimo", 2, "maximo", 7,
+                                "porcentajePromedio", 45.0),
+                        Map.of("periodo", from.plusHours(1), "muestras", 0))));
+
+        // Act
+        String csv = write(reportExportService.occupancyCsv(1L, from, from.plusHours(2), "hour"));
+
+        // Assert
+        assertEquals("periodo,muestras,promedio,minimo,maximo,porcentajePromedio\r\n"
+                + from + ",60,4.5,2,7,45.0\r\n" + from.plusHours(1) + ",0,,,,\r\n", csv);
+    }
+
+    @Test
+    void earningsByParkingAndDateCsv_WritesDetailRows() throws Exception {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(vehicleHistoryRepository.streamDetailByParkingIdAndExitDateTimeBetween(1L, date.atStartOfDay(),
+                date.atTime(23, 59, 59))).thenReturn(Stream.of(
+                new EarningsDetailRow(1L, "ABC123", date.atTime(8, 0), date.atTime(10, 0), 10000L)));
+
+        // Act
+        String csv = write(reportExportService.earningsByParkingAndDateCsv(1L, date));
+
+        // Assert
+        assertEquals("parkingId,placa,entrada,salida,costo\r\n1,ABC123,2024-01-01T08:00,2024-01-01T10:00,10000\r\n", csv);
+    }
+
+    @Test
+    void allParkingsEarningsCsv_TotalsPerDayFromRollup() throws Exception {
+        // Arrange
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        when(parkingDailyRollupRepository.streamDailyTotalsForAllParkings(from, to)).thenReturn(Stream.<Object[]>of(
+                new Object[]{from, 1L, "Centro", 2L, 15000L}));
+
+        // Act
+        String csv = write(reportExportService.allParkingsEarningsCsv(from, to, false));
+
+        // Assert
+        assertEquals("fecha,parkingId,nombre,totalVehiculos,gananciasTotales\r\n2024-01-01,1,Centro,2,15000\r\n", csv);
+        verify(vehicleHistoryRepository, never()).streamDetailByExitDateTimeBetween(any(), any());
+    }
+
+    @Test
+    void allParkingsEarningsCsv_RangeOverMaxDays_ThrowsBeforeStreaming() {
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> reportExportService.allParkingsEarningsCsv(
+                LocalDate.of(2023, 1, 1), LocalDate.of(2024, 1, 2), true));
+        verifyNoInteractions(vehicleHistoryRepository, transactionManager);
+    }
+
+    @Test
+    void earningsByPeriodCsv_OneRowPerDay() throws Exception {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        when(parkingDailyRollupRepository.findByParkingIdAndRollupDateBetweenOrderByRollupDate(
+                1L, today.minusWeeks(1), today)).thenReturn(List.of(ParkingDailyRollup.builder()
+                .parkingId(1L).rollupDate(today).vehicleCount(2L).revenue(15000L).totalDwellMinutes(90L).build()));
+
+        // Act
+        String csv = write(reportExportService.earningsByPeriodCsv(1L, "week"));
+
+        // Assert
+        assertTrue(csv.endsWith("1," + today + ",2,15000,45\r\n"));
+    }
+
+    @Test
+    void exportDisabled_ThrowsValidationException() {
+        // Arrange
+        ReportExportService disabled = new ReportExportService(vehicleHistoryRepository, parkingDailyRollupRepository,
+                parkingVehicleVisitRepository, reportService, uniqueVehicleService, occupancyHistoryService,
+                transactionManager, false, 366, 1, 1);
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> disabled.topVehiclesAllParkingsCsv(10));
+        verifyNoInteractions(vehicleHistoryRepository);
+    }
+
+    @Test
+    void renderPdf_WritesPagedPdfToTempFile() throws Exception {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(vehicleHistoryRepository.streamDetailByParkingIdAndExitDateTimeBetween(1L, date.atStartOfDay(),
+                date.atTime(23, 59, 59))).thenReturn(Stream.iterate(0, i -> i + 1).limit(500)
+                .map(i -> new EarningsDetailRow(1L, "ABC" + i, date.atTime(8, 0), date.atTime(10, 0), 5000L)));
+
+        // Act
+        Path file = reportExportService.renderPdf(reportExportService.earningsByParkingAndDatePdf(1L, date)).get();
+
+        // Assert
+        String content = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        assertTrue(content.startsWith("%PDF"));
+        assertTrue(content.contains("/Count "));
+        Files.delete(file);
+    }
+
+    @Test
+    void earningsByParkingAndDatePdf_ParkingNotFound_ThrowsBeforeRendering() {
+        // Arrange
+        doThrow(new ValidationException("Parqueadero no encontrado")).when(reportService).validateParkingExists(9L);
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> reportExportService.earningsByParkingAndDatePdf(9L, LocalDate.now()));
+        verifyNoInteractions(vehicleHistoryRepository);
+    }
+}
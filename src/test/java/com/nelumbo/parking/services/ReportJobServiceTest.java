@@ -0,0 +1,197 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.dto.ReportJobRequest;
+import com.nelumbo.parking.enums.ReportType;
+import com.nelumbo.parking.exceptions.AuthorizationException;
+import com.nelumbo.parking.exceptions.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReportJobServiceTest {
+
+    @Mock
+    private ReportExportService reportExportService;
+
+    @TempDir
+    Path resultDir;
+
+    private ReportJobService reportJobService;
+
+    @BeforeEach
+    void setUp() {
+        authenticateAs("ADMIN");
+        reportJobService = new ReportJobService(reportExportService, 1, 1, resultDir.toString(), 3600, "CSV");
+    }
+
+    @AfterEach
+    void tearDown() {
+        reportJobService.shutdown();
+        SecurityContextHolder.clearContext();
+    }
+
+    private void authenticateAs(String role) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "user@test.com", null, List.of(new SimpleGrantedAuthority("ROLE_" + role))));
+    }
+
+    private Map<String, Object> awaitFinished(String jobId) throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            Map<String, Object> status = reportJobService.getStatus(jobId);
+            if (status.get("estado") == ReportJobService.Status.COMPLETED
+                    || status.get("estado") == ReportJobService.Status.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        fail("El reporte no terminó a tiempo");
+        return null;
+    }
+
+    private StreamingResponseBody blockingBody(CountDownLatch release) {
+        return out -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.write("placa\r\n".getBytes(StandardCharsets.UTF_8));
+        };
+    }
+
+    @Test
+    void submit_WritesResultFile() throws Exception {
+        // Arrange
+        when(reportExportService.topVehiclesAllParkingsCsv(10))
+                .thenReturn(out -> out.write("placa,totalRegistros\r\n".getBytes(StandardCharsets.UTF_8)));
+
+        // Act
+        Map<String, Object> job = reportJobService.submit(
+                ReportJobRequest.builder().type(ReportType.TOP_VEHICLES_ALL_PARKINGS).build());
+        Map<String, Object> status = awaitFinished((String) job.get("id"));
+
+        // Assert
+        assertEquals(ReportJobService.Status.COMPLETED, status.get("estado"));
+        Path result = reportJobService.getResult((String) job.get("id"));
+        assertEquals("placa,totalRegistros\r\n", Files.readString(result));
+    }
+
+    @Test
+    void submit_DefaultPdfFormat_FallsBackToCsvWhenUnavailable() throws Exception {
+        // Arrange
+        reportJobService.shutdown();
+        reportJobService = new ReportJobService(reportExportService, 1, 1, resultDir.toString(), 3600, "PDF");
+        when(reportExportService.topVehiclesAllParkingsPdf(10)).thenReturn(out -> out.write('%'));
+        when(reportExportService.generalStatisticsCsv()).thenReturn(out -> out.write('x'));
+
+        // Act
+        Map<String, Object> pdf = reportJobService.submit(
+                ReportJobRequest.builder().type(ReportType.TOP_VEHICLES_ALL_PARKINGS).build());
+        Map<String, Object> csv = reportJobService.submit(
+                ReportJobRequest.builder().type(ReportType.GENERAL_STATISTICS).build());
+
+        // Assert
+        assertEquals("pdf", pdf.get("formato"));
+        assertEquals("csv", csv.get("formato"));
+        awaitFinished((String) pdf.get("id"));
+        assertTrue(reportJobService.getResult((String) pdf.get("id")).toString().endsWith(".pdf"));
+        assertThrows(ValidationException.class, () -> reportJobService.submit(ReportJobRequest.builder()
+                .type(ReportType.FIRST_TIME_VEHICLES).parkingId(1L).format("pdf").build()));
+    }
+
+    @Test
+    void submit_IdenticalInFlightJob_Deduplicated() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        when(reportExportService.allParkingsEarningsCsv(from, from, false)).thenReturn(blockingBody(release));
+
+        // Act
+        Map<String, Object> first = reportJobService.submit(ReportJobRequest.builder()
+                .type(ReportType.ALL_PARKINGS_EARNINGS).date(from).limit(99).build());
+        Map<String, Object> second = reportJobService.submit(ReportJobRequest.builder()
+                .type(ReportType.ALL_PARKINGS_EARNINGS).from(from).to(from).detail(false).build());
+        release.countDown();
+
+        // Assert
+        assertEquals(first.get("id"), second.get("id"));
+        verify(reportExportService, times(1)).allParkingsEarningsCsv(from, from, false);
+        assertEquals(ReportJobService.Status.COMPLETED, awaitFinished((String) first.get("id")).get("estado"));
+    }
+
+    @Test
+    void submit_QueueFull_ThrowsValidationException() {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        when(reportExportService.topVehiclesAllParkingsCsv(anyInt())).thenReturn(blockingBody(release));
+        reportJobService.submit(ReportJobRequest.builder().type(ReportType.TOP_VEHICLES_ALL_PARKINGS).limit(1).build());
+        reportJobService.submit(ReportJobRequest.builder().type(ReportType.TOP_VEHICLES_ALL_PARKINGS).limit(2).build());
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> reportJobService.submit(
+                ReportJobRequest.builder().type(ReportType.TOP_VEHICLES_ALL_PARKINGS).limit(3).build()));
+        release.countDown();
+    }
+
+    @Test
+    void submit_ReportNotAllowedForRole_ThrowsAuthorizationException() {
+        // Arrange
+        authenticateAs("SOCIO");
+
+        // Act & Assert
+        assertThrows(AuthorizationException.class, () -> reportJobService.submit(
+                ReportJobRequest.builder().type(ReportType.GENERAL_STATISTICS).build()));
+        verifyNoInteractions(reportExportService);
+    }
+
+    @Test
+    void submit_MissingParking_ThrowsValidationException() {
+        assertThrows(ValidationException.class, () -> reportJobService.submit(
+                ReportJobRequest.builder().type(ReportType.FIRST_TIME_VEHICLES).build()));
+        verifyNoInteractions(reportExportService);
+    }
+
+    @Test
+    void purgeExpired_RemovesJobAndFile() throws Exception {
+        // Arrange
+        reportJobService.shutdown();
+        reportJobService = new ReportJobService(reportExportService, 1, 1, resultDir.toString(), -1, "CSV");
+        when(reportExportService.generalStatisticsCsv()).thenReturn(out -> out.write('x'));
+        String jobId = (String) reportJobService.submit(
+                ReportJobRequest.builder().type(ReportType.GENERAL_STATISTICS).build()).get("id");
+        Path result = resultDir.resolve(jobId + ".csv");
+        for (int i = 0; i < 200 && !Files.exists(result); i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(20);
+
+        // Act
+        int purged = reportJobService.purgeExpired();
+
+        // Assert
+        assertEquals(1, purged);
+        assertFalse(Files.exists(result));
+        assertThrows(ValidationException.class, () -> reportJobService.getStatus(jobId));
+    }
+}
@@ -0,0 +1,146 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.config.CacheConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportResultCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReportResultCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ReportResultCache(new ConcurrentMapCacheManager(), meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    private Integer load() {
+        return loads.incrementAndGet();
+    }
+
+    @Test
+    void get_SecondCallIsServedFromCache() {
+        // Arrange
+        ReportResultCache.Key key = ReportResultCache.Key.of(1L, "top-vehicles", 10);
+
+        // Act
+        Integer first = cache.get(key, this::load);
+        Integer second = cache.get(key, this::load);
+
+        // Assert
+        assertEquals(1, first);
+        assertEquals(1, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void invalidateParkings_KeepsOtherParkingsAndDropsGlobalEntries() {
+        // Arrange
+        ReportResultCache.Key parking1 = ReportResultCache.Key.of(1L, "top-vehicles", 10);
+        ReportResultCache.Key parking2 = ReportResultCache.Key.of(2L, "top-vehicles", 10);
+        ReportResultCache.Key global = ReportResultCache.Key.of(null, "statistics");
+        cache.get(parking1, this::load);
+        cache.get(parking2, this::load);
+        cache.get(global, this::load);
+
+        // Act
+        cache.invalidateParkings(List.of(1L));
+        cache.get(parking1, this::load);
+        cache.get(parking2, this::load);
+        cache.get(global, this::load);
+
+        // Assert
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void get_InvalidatedWhileLoading_ResultIsNotCached() {
+        // Arrange
+        ReportResultCache.Key key = ReportResultCache.Key.of(1L, "first-time-vehicles");
+
+        // Act
+        cache.get(key, () -> {
+            cache.invalidateParkings(List.of(1L));
+            return load();
+        });
+        Integer result = cache.get(key, this::load);
+
+        // Assert
+        assertEquals(2, result);
+    }
+
+    @Test
+    void getImmutable_NotInvalidatedByExits_OnlyByInvalidateAll() {
+        // Arrange
+        ReportResultCache.Key key = ReportResultCache.Key.of(1L, "earnings", LocalDate.of(2024, 1, 1));
+        cache.getImmutable(key, this::load);
+
+        // Act
+        cache.invalidateParkings(List.of(1L));
+        cache.getImmutable(key, this::load);
+        cache.invalidateAll();
+        cache.getImmutable(key, this::load);
+
+        // Assert
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateParkingDefinitions_DropsClosedDayEntriesOfParkingAndGlobal() {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        ReportResultCache.Key parking1 = ReportResultCache.Key.of(1L, "earnings", date);
+        ReportResultCache.Key parking2 = ReportResultCache.Key.of(2L, "earnings", date);
+        ReportResultCache.Key global = ReportResultCache.Key.of(null, "all-parkings-earnings", date);
+        cache.getImmutable(parking1, this::load);
+        cache.getImmutable(parking2, this::load);
+        cache.getImmutable(global, this::load);
+
+        // Act
+        cache.invalidateParkingDefinitions(List.of(1L));
+        cache.getImmutable(parking1, this::load);
+        cache.getImmutable(parking2, this::load);
+        cache.getImmutable(global, this::load);
+
+        // Assert
+        assertEquals(5, loads.get());
+    }
+
+    @Test
+    void isClosedDay_PastDayIsClosedAndTodayIsNot() {
+        // Act & Assert
+        assertTrue(cache.isClosedDay(LocalDate.now().minusDays(2)));
+        assertFalse(cache.isClosedDay(LocalDate.now()));
+    }
+
+    @Test
+    void hitRatio_ExposedPerCache() {
+        // Arrange
+        ReportResultCache.Key key = ReportResultCache.Key.of(1L, "top-vehicles", 10);
+
+        // Act
+        cache.get(key, this::load);
+        cache.get(key, this::load);
+        cache.get(key, this::load);
+        cache.get(key, this::load);
+
+        // Assert
+        assertEquals(0.75, meterRegistry.get("parking.report.cache.hit.ratio")
+                .tag("cache", CacheConfig.REPORTS_CACHE).gauge().value());
+        assertEquals(0, meterRegistry.get("parking.report.cache.hit.ratio")
+                .tag("cache", CacheConfig.IMMUTABLE_REPORTS_CACHE).gauge().value());
+        assertEquals(3, meterRegistry.get("parking.report.cache.requests")
+                .tag("cache", CacheConfig.REPORTS_CACHE).tag("result", "hit").counter().count());
+    }
+}
@@ -1,22 +1,41 @@
 package com.nelumbo.parking.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.nelumbo.parking.dto.EarningsDetailRow;
+import com.nelumbo.parking.dto.RollupTotals;
+import com.nelumbo.parking.entities.Parking;
 import com.nelumbo.parking.entities.VehicleHistory;
 import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingDailyRollupRepository;
 import com.nelumbo.parking.repositories.ParkingRecordRepository;
 import com.nelumbo.parking.repositories.ParkingRepository;
+import com.nelumbo.parking.repositories.ParkingVehicleVisitRepository;
 import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import com.nelumbo.parking.utils.SpaceSaving;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -35,21 +54,51 @@ class ReportServiceTest {
     @Mock
     private ParkingRepository parkingRepository;
 
+    @Mock
+    private ParkingDailyRollupRepository parkingDailyRollupRepository;
+
+    @Mock
+    private ParkingVehicleVisitRepository parkingVehicleVisitRepository;
+
+    @Mock
+    private UniqueVehicleService uniqueVehicleService;
+
+    @Mock
+    private TopVehicleTracker topVehicleTracker;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Spy
+    private ReportResultCache reportResultCache =
+            new ReportResultCache(new ConcurrentMapCacheManager(), new SimpleMeterRegistry());
+
     @InjectMocks
     private ReportService reportService;
 
+    private Parking testParking;
     private VehicleHistory testHistory1;
     private VehicleHistory testHistory2;
 
     @BeforeEach
     void setUp() {
+        ReflectionTestUtils.setField(reportService, "immutableMaxEntryBytes", 1024 * 1024);
+
+        testParking = Parking.builder()
+                .id(1L)
+                .name("Test Parking")
+                .capacity(10)
+                .hourlyRate(5000L)
+                .build();
+
         testHistory1 = VehicleHistory.builder()
                 .id(1L)
                 .licensePlate("ABC123")
                 .parkingName("Test Parking")
                 .entryDateTime(LocalDateTime.now().minusHours(2))
                 .exitDateTime(LocalDateTime.now())
-                .totalCost(BigDecimal.valueOf(10.00))
+                .totalCost(10000L)
                 .parkingId(1L)
                 .vehicleId(1L)
                 .build();
@@ -60,7 +109,7 @@ class ReportServiceTest {
                 .parkingName("Test Parking")
                 .entryDateTime(LocalDateTime.now().minusHours(1))
                 .exitDateTime(LocalDateTime.now())
-                .totalCost(BigDecimal.valueOf(5.00))
+                .totalCost(5000L)
                 .parkingId(1L)
                 .vehicleId(2L)
                 .build();
@@ -69,9 +118,9 @@ class ReportServiceTest {
     @Test
     void getTopVehiclesByParking_Success() {
         // Arrange
-        when(parkingRepository.existsById(1L)).thenReturn(true);
-        when(vehicleHistoryRepository.findByParkingId(1L))
-                .thenReturn(Arrays.asList(testHistory1, testHistory1, testHistory2));
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(vehicleHistoryRepository.findTopPlatesByParkingId(1L, PageRequest.of(0, 5)))
+                .thenReturn(List.of(new Object[]{"ABC123", 2L}, new Object[]{"XYZ789", 1L}));
 
         // Act
         List<Map<String, Object>> result = reportService.getTopVehiclesByParking(1L, 5);
@@ -85,10 +134,76 @@ class ReportServiceTest {
         assertEquals(1L, result.get(1).get("totalRegistros"));
     }
 
+    @Test
+    void getTopVehiclesByParking_CachedUntilExitInSameParking() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(vehicleHistoryRepository.findTopPlatesByParkingId(1L, PageRequest.of(0, 5)))
+                .thenReturn(List.<Object[]>of(new Object[]{"ABC123", 2L}));
+
+        // Act
+        reportService.getTopVehiclesByParking(1L, 5);
+        reportService.getTopVehiclesByParking(1L, 5);
+        reportResultCache.invalidateParkings(List.of(2L));
+        reportService.getTopVehiclesByParking(1L, 5);
+        reportResultCache.invalidateParkings(List.of(1L));
+        reportService.getTopVehiclesByParking(1L, 5);
+
+        // Assert
+        verify(vehicleHistoryRepository, times(2)).findTopPlatesByParkingId(1L, PageRequest.of(0, 5));
+    }
+
+    @Test
+    void getTopVehiclesByParking_Approximate_AnswersFromTracker() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(topVehicleTracker.top(1L, 5)).thenReturn(Optional.of(List.of(new SpaceSaving.Entry("ABC123", 9L, 2L))));
+
+        // Act
+        List<Map<String, Object>> result = reportService.getTopVehiclesByParking(1L, 5, false);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals("ABC123", result.get(0).get("placa"));
+        assertEquals(9L, result.get(0).get("totalRegistros"));
+        assertEquals(2L, result.get(0).get("errorMaximo"));
+        verifyNoInteractions(vehicleHistoryRepository);
+    }
+
+    @Test
+    void getTopVehiclesByParking_TrackerUnavailable_FallsBackToExact() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(topVehicleTracker.top(1L, 5)).thenReturn(Optional.empty());
+        when(vehicleHistoryRepository.findTopPlatesByParkingId(1L, PageRequest.of(0, 5)))
+                .thenReturn(List.<Object[]>of(new Object[]{"ABC123", 7L}));
+
+        // Act
+        List<Map<String, Object>> result = reportService.getTopVehiclesByParking(1L, 5, false);
+
+        // Assert
+        assertEquals(7L, result.get(0).get("totalRegistros"));
+        assertFalse(result.get(0).containsKey("errorMaximo"));
+    }
+
+    @Test
+    void getTopVehiclesAllParkings_Exact_SkipsTracker() {
+        // Arrange
+        when(vehicleHistoryRepository.findTopPlates(PageRequest.of(0, 3)))
+                .thenReturn(List.<Object[]>of(new Object[]{"ABC123", 7L}));
+
+        // Act
+        List<Map<String, Object>> result = reportService.getTopVehiclesAllParkings(3, true);
+
+        // Assert
+        assertEquals(1, result.size());
+        verifyNoInteractions(topVehicleTracker);
+    }
+
     @Test
     void getTopVehiclesByParking_ParkingNotFound_ThrowsValidationException() {
         // Arrange
-        when(parkingRepository.existsById(999L)).thenReturn(false);
+        when(parkingRepository.findCachedById(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ValidationException.class, () -> {
@@ -99,26 +214,251 @@ class ReportServiceTest {
     @Test
     void getFirstTimeVehiclesByParking_Success() {
         // Arrange
-        when(parkingRepository.existsById(1L)).thenReturn(true);
-        when(vehicleHistoryRepository.findByParkingId(1L))
+        LocalDateTime visit = LocalDateTime.of(2024, 1, 15, 10, 0);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingVehicleVisitRepository.findFirstTimeByParkingId(1L, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(List.<Object[]>of(
+                        new Object[]{"ABC123", visit}, new Object[]{"XYZ789", visit.minusDays(1)}),
+                        PageRequest.of(0, 2), true));
+
+        // Act
+        Map<String, Object> result = reportService.getFirstTimeVehiclesByParking(1L, null, null, 0, 2);
+
+        // Assert
+        List<Map<String, Object>> vehicles = (List<Map<String, Object>>) result.get("vehiculos");
+        assertEquals(2, vehicles.size());
+        assertEquals(true, result.get("hayMas"));
+        assertEquals("ABC123", vehicles.get(0).get("placa"));
+        assertEquals(visit, vehicles.get(0).get("visita"));
+        assertTrue(vehicles.stream().allMatch(v -> v.get("totalVisitas").equals(1L)));
+    }
+
+    @Test
+    void getFirstTimeVehiclesByParking_WithDateRange_BoundsVisitsToRange() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingVehicleVisitRepository.findFirstTimeByParkingIdAndVisitBetween(1L,
+                LocalDateTime.of(2024, 1, 1, 0, 0), LocalDateTime.of(2024, 2, 1, 0, 0), PageRequest.of(0, 50)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 50), false));
+
+        // Act
+        Map<String, Object> result = reportService.getFirstTimeVehiclesByParking(1L,
+                LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), 0, 50);
+
+        // Assert
+        assertEquals(List.of(), result.get("vehiculos"));
+        assertEquals(false, result.get("hayMas"));
+        verify(parkingVehicleVisitRepository, never()).findFirstTimeByParkingId(anyLong(), any());
+    }
+
+    @Test
+    void getFirstTimeVehiclesByParking_InvalidPageSize_ThrowsValidationException() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> reportService.getFirstTimeVehiclesByParking(1L, null, null, 0, 501));
+        verifyNoInteractions(parkingVehicleVisitRepository);
+    }
+
+    @Test
+    void getReturningVehiclesByParking_Success() {
+        // Arrange
+        LocalDateTime first = LocalDateTime.of(2024, 1, 1, 8, 0);
+        LocalDateTime last = LocalDateTime.of(2024, 1, 20, 18, 0);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingVehicleVisitRepository.findReturningByParkingId(1L, 3L, PageRequest.of(0, 10)))
+                .thenReturn(new SliceImpl<>(List.<Object[]>of(new Object[]{"ABC123", 5L, first, last}),
+                        PageRequest.of(0, 10), false));
+
+        // Act
+        Map<String, Object> result = reportService.getReturningVehiclesByParking(1L, 3L, 0, 10);
+
+        // Assert
+        List<Map<String, Object>> vehicles = (List<Map<String, Object>>) result.get("vehiculos");
+        assertEquals(1, vehicles.size());
+        assertEquals(5L, vehicles.get(0).get("totalVisitas"));
+        assertEquals(first, vehicles.get(0).get("primeraVisita"));
+        assertEquals(last, vehicles.get(0).get("ultimaVisita"));
+    }
+
+    @Test
+    void getReturningVehiclesByParking_MinVisitsBelowTwo_ThrowsValidationException() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> reportService.getReturningVehiclesByParking(1L, 1L, 0, 10));
+    }
+
+    @Test
+    void getVisitFrequencyByParking_GroupsCountsIntoBuckets() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingVehicleVisitRepository.countVehiclesByVisitCount(1L)).thenReturn(List.of(
+                new Object[]{1L, 40L}, new Object[]{2L, 10L}, new Object[]{4L, 3L},
+                new Object[]{5L, 2L}, new Object[]{12L, 1L}, new Object[]{35L, 1L}));
+
+        // Act
+        Map<String, Object> result = reportService.getVisitFrequencyByParking(1L);
+
+        // Assert
+        List<Map<String, Object>> histogram = (List<Map<String, Object>>) result.get("histograma");
+        assertEquals(57L, result.get("totalVehiculos"));
+        assertEquals(40L, result.get("vehiculosPrimeraVez"));
+        assertEquals(17L, result.get("vehiculosRecurrentes"));
+        assertEquals(List.of("1", "2", "3-5", "6-10", "11-20", "21+"),
+                histogram.stream().map(b -> b.get("visitas")).toList());
+        assertEquals(List.of(40L, 10L, 5L, 0L, 1L, 1L),
+                histogram.stream().map(b -> b.get("vehiculos")).toList());
+    }
+
+    @Test
+    void getTopVehiclesAllParkings_UsesGroupedQuery() {
+        // Arrange
+        when(vehicleHistoryRepository.findTopPlates(PageRequest.of(0, 1)))
+                .thenReturn(List.<Object[]>of(new Object[]{"ABC123", 7L}));
+
+        // Act
+        List<Map<String, Object>> result = reportService.getTopVehiclesAllParkings(1);
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(7L, result.get(0).get("totalRegistros"));
+        verify(vehicleHistoryRepository, never()).findAll();
+    }
+
+    @Test
+    void writeEarningsByParkingAndDate_StreamsDetailAndTotals() throws Exception {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(vehicleHistoryRepository.streamDetailByParkingIdAndExitDateTimeBetween(anyLong(), any(), any()))
+                .thenReturn(Stream.of(
+                        new EarningsDetailRow(1L, "ABC123", date.atTime(8, 0), date.atTime(10, 0), 10000L),
+                        new EarningsDetailRow(1L, "XYZ789", date.atTime(9, 0), date.atTime(10, 0), 5000L)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        reportService.writeEarningsByParkingAndDate(1L, date, out);
+
+        // Assert
+        JsonNode json = objectMapper.readTree(out.toByteArray());
+        assertEquals(1L, json.get("parkingId").asLong());
+        assertEquals("2024-01-01", json.get("fecha").asText());
+        assertEquals(2, json.get("detalle").size());
+        assertEquals("ABC123", json.get("detalle").get(0).get("placa").asText());
+        assertEquals("2024-01-01T08:00:00", json.get("detalle").get(0).get("entrada").asText());
+        assertEquals(2, json.get("totalVehiculos").asInt());
+        assertEquals(15000, json.get("gananciasTotales").asInt());
+    }
+
+    @Test
+    void writeEarningsByParkingAndDate_ClosedDay_ServedFromCache() throws Exception {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(vehicleHistoryRepository.streamDetailByParkingIdAndExitDateTimeBetween(anyLong(), any(), any()))
+                .thenReturn(Stream.of(
+                        new EarningsDetailRow(1L, "ABC123", date.atTime(8, 0), date.atTime(10, 0), 10000L)));
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        // Act
+        reportService.writeEarningsByParkingAndDate(1L, date, first);
+        reportResultCache.invalidateParkings(List.of(1L));
+        reportService.writeEarningsByParkingAndDate(1L, date, second);
+
+        // Assert
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+        verify(vehicleHistoryRepository, times(1))
+                .streamDetailByParkingIdAndExitDateTimeBetween(anyLong(), any(), any());
+    }
+
+    @Test
+    void writeEarningsByParkingAndDate_ClosedDayOverEntryLimit_StreamedWithoutCaching() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(reportService, "immutableMaxEntryBytes", 16);
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(vehicleHistoryRepository.streamDetailByParkingIdAndExitDateTimeBetween(anyLong(), any(), any()))
+                .thenAnswer(invocation -> Stream.of(
+                        new EarningsDetailRow(1L, "ABC123", date.atTime(8, 0), date.atTime(10, 0), 10000L)));
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        // Act
+        reportService.writeEarningsByParkingAndDate(1L, date, first);
+        reportService.writeEarningsByParkingAndDate(1L, date, second);
+
+        // Assert
+        assertEquals("ABC123", objectMapper.readTree(first.toByteArray()).get("detalle").get(0).get("placa").asText());
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+        verify(vehicleHistoryRepository, times(2))
+                .streamDetailByParkingIdAndExitDateTimeBetween(anyLong(), any(), any());
+    }
+
+    @Test
+    void getAllParkingsEarningsByDate_ClosedDayWithDetail_NotCached() {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(parkingDailyRollupRepository.findDailyTotalsForAllParkings(date)).thenReturn(List.of(
+                new Object[]{1L, "Test Parking", 2L, 15000L},
+                new Object[]{2L, "Otro Parking", 0L, 0L}));
+        when(vehicleHistoryRepository.findByExitDateTimeBetween(any(), any()))
                 .thenReturn(Arrays.asList(testHistory1, testHistory2));
 
         // Act
-        List<Map<String, Object>> result = reportService.getFirstTimeVehiclesByParking(1L);
+        reportService.getAllParkingsEarningsByDate(date, true);
+        reportService.getAllParkingsEarningsByDate(date, true);
+
+        // Assert
+        verify(vehicleHistoryRepository, times(2)).findByExitDateTimeBetween(any(), any());
+    }
+
+    @Test
+    void getAllParkingsEarningsByDate_SingleGroupedQuery() {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(parkingDailyRollupRepository.findDailyTotalsForAllParkings(date)).thenReturn(List.of(
+                new Object[]{1L, "Test Parking", 2L, 15000L},
+                new Object[]{2L, "Otro Parking", 0L, 0L}));
+
+        // Act
+        List<Map<String, Object>> result = reportService.getAllParkingsEarningsByDate(date, false);
 
         // Assert
-        assertNotNull(result);
         assertEquals(2, result.size());
-        assertTrue(result.stream().allMatch(v -> v.get("totalVisitas").equals(1L)));
+        assertEquals(BigDecimal.valueOf(15000), result.get(0).get("gananciasTotales"));
+        assertFalse(result.get(0).containsKey("detalle"));
+        verifyNoInteractions(vehicleHistoryRepository);
+        verify(parkingRepository, never()).findCachedById(anyLong());
     }
 
     @Test
-    void getEarningsByPeriod_Today_Success() {
+    void getAllParkingsEarningsByDate_WithDetail_GroupsRowsByParking() {
         // Arrange
-        when(parkingRepository.existsById(1L)).thenReturn(true);
-        when(vehicleHistoryRepository.findByParkingIdAndExitDateTimeBetween(anyLong(), any(), any()))
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(parkingDailyRollupRepository.findDailyTotalsForAllParkings(date)).thenReturn(List.of(
+                new Object[]{1L, "Test Parking", 2L, 15000L},
+                new Object[]{2L, "Otro Parking", 0L, 0L}));
+        when(vehicleHistoryRepository.findByExitDateTimeBetween(any(), any()))
                 .thenReturn(Arrays.asList(testHistory1, testHistory2));
 
+        // Act
+        List<Map<String, Object>> result = reportService.getAllParkingsEarningsByDate(date, true);
+
+        // Assert
+        assertEquals(2, ((List<?>) result.get(0).get("detalle")).size());
+        assertTrue(((List<?>) result.get(1).get("detalle")).isEmpty());
+    }
+
+    @Test
+    void getEarningsByPeriod_Today_Success() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingDailyRollupRepository.sumByParkingIdAndRollupDateBetween(anyLong(), any(), any()))
+                .thenReturn(new RollupTotals(2L, 15000L, 180L));
+
         // Act
         Map<String, Object> result = reportService.getEarningsByPeriod(1L, "today");
 
@@ -126,14 +466,15 @@ class ReportServiceTest {
         assertNotNull(result);
         assertEquals(1L, result.get("parkingId"));
         assertEquals("today", result.get("periodo"));
-        assertEquals(2, result.get("totalVehiculos"));
-        assertEquals(BigDecimal.valueOf(15.00), result.get("gananciasTotales"));
+        assertEquals(2L, result.get("totalVehiculos"));
+        assertEquals(BigDecimal.valueOf(15000), result.get("gananciasTotales"));
+        assertEquals(90L, result.get("permanenciaPromedioMinutos"));
     }
 
     @Test
     void getEarningsByPeriod_InvalidPeriod_ThrowsValidationException() {
         // Arrange
-        when(parkingRepository.existsById(1L)).thenReturn(true);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
 
         // Act & Assert
         assertThrows(ValidationException.class, () -> {
@@ -145,9 +486,8 @@ class ReportServiceTest {
     void getGeneralStatistics_Success() {
         // Arrange
         when(parkingRepository.count()).thenReturn(5L);
-        when(vehicleHistoryRepository.countByExitDateTimeBetween(any(), any())).thenReturn(25L);
-        when(vehicleHistoryRepository.findByExitDateTimeBetween(any(), any()))
-                .thenReturn(Arrays.asList(testHistory1, testHistory2));
+        when(parkingDailyRollupRepository.sumByRollupDate(any()))
+                .thenReturn(new RollupTotals(25L, 15000L, 900L));
         when(parkingRecordRepository.countActiveByParkingId(null)).thenReturn(10L);
 
         // Act
@@ -157,7 +497,61 @@ class ReportServiceTest {
         assertNotNull(result);
         assertEquals(5L, result.get("totalParqueaderos"));
         assertEquals(25L, result.get("vehiculosRegistradosHoy"));
-        assertEquals(BigDecimal.valueOf(15.00), result.get("gananciasHoy"));
+        assertEquals(BigDecimal.valueOf(15000), result.get("gananciasHoy"));
         assertEquals(10L, result.get("vehiculosEstacionados"));
     }
+
+    @Test
+    void getGeneralStatistics_CachesTotalsButNotParkedCount() {
+        // Arrange
+        when(parkingRepository.count()).thenReturn(5L);
+        when(parkingDailyRollupRepository.sumByRollupDate(any()))
+                .thenReturn(new RollupTotals(25L, 15000L, 900L));
+        when(parkingRecordRepository.countActiveByParkingId(null)).thenReturn(10L, 11L);
+
+        // Act
+        reportService.getGeneralStatistics();
+        Map<String, Object> result = reportService.getGeneralStatistics();
+
+        // Assert
+        assertEquals(11L, result.get("vehiculosEstacionados"));
+        verify(parkingRepository, times(1)).count();
+        verify(parkingDailyRollupRepository, times(1)).sumByRollupDate(any());
+    }
+
+    @Test
+    void rebuildDailyRollup_ReplacesRange() {
+        // Arrange
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 12, 31);
+        when(parkingDailyRollupRepository.insertFromHistory(from.atStartOfDay(), LocalDate.of(2025, 1, 1).atStartOfDay()))
+                .thenReturn(366);
+        when(uniqueVehicleService.rebuild(from, to)).thenReturn(1200);
+
+        // Act
+        Map<String, Object> result = reportService.rebuildDailyRollup(from, to);
+
+        // Assert
+        assertEquals(366, result.get("filasGeneradas"));
+        assertEquals(1200, result.get("sketchesGenerados"));
+        verify(parkingDailyRollupRepository).deleteByRollupDateBetween(from, to);
+        verify(reportResultCache).invalidateAll();
+    }
+
+    @Test
+    void rebuildDailyRollup_OpenDay_ThrowsValidationException() {
+        // Act & Assert
+        assertThrows(ValidationException.class, () ->
+                reportService.rebuildDailyRollup(LocalDate.now().minusDays(7), LocalDate.now()));
+        verifyNoInteractions(parkingDailyRollupRepository);
+        verifyNoInteractions(uniqueVehicleService);
+    }
+
+    @Test
+    void rebuildDailyRollup_InvertedRange_ThrowsValidationException() {
+        // Act & Assert
+        assertThrows(ValidationException.class, () ->
+                reportService.rebuildDailyRollup(LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1)));
+        verifyNoInteractions(parkingDailyRollupRepository);
+    }
 }
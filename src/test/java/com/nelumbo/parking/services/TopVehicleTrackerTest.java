@@ -0,0 +1,193 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.entities.TopVehicleSnapshot;
+import com.nelumbo.parking.repositories.TopVehicleSnapshotRepository;
+import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import com.nelumbo.parking.utils.SpaceSaving;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TopVehicleTrackerTest {
+
+    @Mock
+    private TopVehicleSnapshotRepository topVehicleSnapshotRepository;
+
+    @Mock
+    private VehicleHistoryRepository vehicleHistoryRepository;
+
+    private TopVehicleTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new TopVehicleTracker(topVehicleSnapshotRepository, vehicleHistoryRepository, 10);
+    }
+
+    private void loadEmpty() {
+        when(topVehicleSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.empty());
+        when(vehicleHistoryRepository.streamPlateCountsByParking(any())).thenReturn(Stream.empty());
+        when(vehicleHistoryRepository.streamTopPlates(any())).thenReturn(Stream.empty());
+        tracker.load();
+    }
+
+    private static TopVehicleSnapshot row(long scopeId, String licensePlate, long hits, LocalDateTime takenAt) {
+        return TopVehicleSnapshot.builder()
+                .scopeId(scopeId).licensePlate(licensePlate).hits(hits).maxError(0L).takenAt(takenAt).build();
+    }
+
+    @Test
+    void top_BeforeLoad_RequiresExactReport() {
+        // Act & Assert
+        assertTrue(tracker.top(1L, 5).isEmpty());
+    }
+
+    @Test
+    void load_WithoutSnapshot_SeedsFromHistoryCounts() {
+        // Arrange
+        when(topVehicleSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.empty());
+        when(vehicleHistoryRepository.streamPlateCountsByParking(any())).thenReturn(Stream.of(
+                new Object[]{1L, "ABC123", 4L},
+                new Object[]{1L, "XYZ789", 2L},
+                new Object[]{2L, "XYZ789", 6L}));
+        when(vehicleHistoryRepository.streamTopPlates(any())).thenReturn(Stream.of(
+                new Object[]{"XYZ789", 8L},
+                new Object[]{"ABC123", 4L}));
+
+        // Act
+        tracker.load();
+
+        // Assert
+        assertEquals(List.of(new SpaceSaving.Entry("ABC123", 4, 0), new SpaceSaving.Entry("XYZ789", 2, 0)),
+                tracker.top(1L, 5).orElseThrow());
+        assertEquals(new SpaceSaving.Entry("XYZ789", 8, 0), tracker.top(null, 1).orElseThrow().get(0));
+        assertEquals(List.of(), tracker.top(3L, 5).orElseThrow());
+    }
+
+    @Test
+    void load_WithSnapshot_ReplaysLaterExits() {
+        // Arrange
+        LocalDateTime takenAt = LocalDateTime.of(2024, 1, 1, 12, 0);
+        when(topVehicleSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.of(takenAt));
+        when(topVehicleSnapshotRepository.findAll()).thenReturn(List.of(
+                row(1L, "ABC123", 3L, takenAt), row(0L, "ABC123", 3L, takenAt)));
+        when(vehicleHistoryRepository.streamPlatesByExitDateTimeBetween(eq(takenAt), any())).thenReturn(Stream.<Object[]>of(
+                new Object[]{1L, takenAt.plusMinutes(5), "ABC123"}));
+
+        // Act
+        tracker.load();
+
+        // Assert
+        assertEquals(4, tracker.top(1L, 1).orElseThrow().get(0).count());
+        assertEquals(4, tracker.top(null, 1).orElseThrow().get(0).count());
+    }
+
+    @Test
+    void recordExit_UpdatesParkingAndGlobalSummaries() {
+        // Arrange
+        loadEmpty();
+
+        // Act
+        tracker.recordExitOnCommit(1L, "ABC123", LocalDateTime.now());
+        tracker.recordExitOnCommit(2L, "ABC123", LocalDateTime.now());
+
+        // Assert
+        assertEquals(1, tracker.top(1L, 5).orElseThrow().get(0).count());
+        assertEquals(2, tracker.top(null, 5).orElseThrow().get(0).count());
+    }
+
+    @Test
+    void recordExit_BeforeLoad_IsAppliedOnLoad() {
+        // Arrange
+        tracker.recordExitOnCommit(1L, "ABC123", LocalDateTime.now());
+
+        // Act
+        loadEmpty();
+
+        // Assert
+        assertEquals(1, tracker.top(1L, 5).orElseThrow().get(0).count());
+        assertEquals(1, tracker.top(null, 5).orElseThrow().get(0).count());
+    }
+
+    @Test
+    void recordExit_BeforeCutoff_IsLeftToHistory() {
+        // Arrange
+        loadEmpty();
+
+        // Act
+        tracker.recordExitOnCommit(1L, "ABC123", LocalDateTime.now().minus(TopVehicleTracker.HISTORY_LAG).minusMinutes(1));
+
+        // Assert
+        assertEquals(List.of(), tracker.top(1L, 5).orElseThrow());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void snapshot_Writer_SavesChangedScopesFromHistoryOnly() {
+        // Arrange
+        LocalDateTime takenAt = LocalDateTime.now().minusHours(1);
+        when(topVehicleSnapshotRepository.tryLock(TopVehicleTracker.SNAPSHOT_LOCK_KEY)).thenReturn(true);
+        when(topVehicleSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.of(takenAt));
+        when(topVehicleSnapshotRepository.findAll()).thenReturn(List.of(
+                row(1L, "ABC123", 3L, takenAt), row(2L, "XYZ789", 1L, takenAt), row(0L, "ABC123", 3L, takenAt)));
+        when(vehicleHistoryRepository.streamPlatesByExitDateTimeBetween(eq(takenAt), any())).thenReturn(Stream.<Object[]>of(
+                new Object[]{1L, takenAt.plusMinutes(5), "ABC123"}));
+        tracker.recordExitOnCommit(1L, "ABC123", LocalDateTime.now());
+
+        // Act
+        int saved = tracker.snapshot();
+
+        // Assert
+        assertEquals(2, saved);
+        verify(topVehicleSnapshotRepository).deleteByScopeId(1L);
+        verify(topVehicleSnapshotRepository).deleteByScopeId(TopVehicleTracker.GLOBAL_SCOPE);
+        verify(topVehicleSnapshotRepository, never()).deleteByScopeId(2L);
+        ArgumentCaptor<List<TopVehicleSnapshot>> rows = ArgumentCaptor.forClass(List.class);
+        verify(topVehicleSnapshotRepository, times(2)).saveAll(rows.capture());
+        // La salida local aún no está en el historial: se cuenta en memoria pero no se guarda
+        assertEquals(4L, rows.getValue().get(0).getHits());
+        assertEquals(5, tracker.top(1L, 1).orElseThrow().get(0).count());
+    }
+
+    @Test
+    void snapshot_NotWriter_OnlyRefreshesMemory() {
+        // Arrange
+        LocalDateTime takenAt = LocalDateTime.now().minusHours(1);
+        when(topVehicleSnapshotRepository.tryLock(TopVehicleTracker.SNAPSHOT_LOCK_KEY)).thenReturn(false);
+        when(topVehicleSnapshotRepository.findLatestTakenAt()).thenReturn(Optional.of(takenAt));
+        when(topVehicleSnapshotRepository.findAll()).thenReturn(List.of(row(1L, "ABC123", 3L, takenAt)));
+        when(vehicleHistoryRepository.streamPlatesByExitDateTimeBetween(eq(takenAt), any())).thenReturn(Stream.<Object[]>of(
+                new Object[]{1L, takenAt.plusMinutes(5), "ABC123"}));
+
+        // Act
+        int saved = tracker.snapshot();
+
+        // Assert
+        assertEquals(0, saved);
+        verify(topVehicleSnapshotRepository, never()).saveAll(anyList());
+        assertEquals(4, tracker.top(1L, 1).orElseThrow().get(0).count());
+    }
+
+    @Test
+    void top_LimitAboveCapacity_RequiresExactReport() {
+        // Arrange
+        loadEmpty();
+
+        // Act & Assert
+        assertTrue(tracker.top(1L, 11).isEmpty());
+        verify(topVehicleSnapshotRepository, never()).saveAll(anyList());
+    }
+}
@@ -0,0 +1,148 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.entities.Parking;
+import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingDailySketchRepository;
+import com.nelumbo.parking.repositories.ParkingRepository;
+import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import com.nelumbo.parking.utils.HyperLogLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UniqueVehicleServiceTest {
+
+    @Mock
+    private ParkingDailySketchRepository parkingDailySketchRepository;
+
+    @Mock
+    private VehicleHistoryRepository vehicleHistoryRepository;
+
+    @Mock
+    private ParkingRepository parkingRepository;
+
+    @Spy
+    private ReportResultCache reportResultCache =
+            new ReportResultCache(new ConcurrentMapCacheManager(), new SimpleMeterRegistry());
+
+    @InjectMocks
+    private UniqueVehicleService uniqueVehicleService;
+
+    private static byte[] sketchOf(String... plates) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (String plate : plates) {
+            sketch.add(plate);
+        }
+        return sketch.toBytes();
+    }
+
+    @Test
+    void recordExit_UpdatesRegisterForPlateHash() {
+        // Arrange
+        long hash = HyperLogLog.hash("ABC123");
+        LocalDate date = LocalDate.of(2024, 1, 1);
+
+        // Act
+        uniqueVehicleService.recordExit(1L, date, "ABC123");
+
+        // Assert
+        verify(parkingDailySketchRepository).updateRegister(1L, date,
+                HyperLogLog.registerIndex(hash), HyperLogLog.rank(hash));
+    }
+
+    @Test
+    void getUniqueVehicles_MergesDaysWithoutDoubleCounting() {
+        // Arrange
+        LocalDate monday = LocalDate.of(2024, 1, 1);
+        LocalDate tuesday = monday.plusDays(1);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(Parking.builder().id(1L).build()));
+        when(parkingDailySketchRepository.streamByParkingIdInAndSketchDateBetween(List.of(1L), monday, tuesday))
+                .thenReturn(Stream.of(
+                        new Object[]{monday, sketchOf("ABC123", "XYZ789")},
+                        new Object[]{tuesday, sketchOf("ABC123", "DEF456")}));
+
+        // Act
+        Map<String, Object> result = uniqueVehicleService.getUniqueVehicles(List.of(1L), monday, tuesday, "day");
+
+        // Assert
+        assertEquals(3L, result.get("vehiculosUnicos"));
+        assertEquals(true, result.get("aproximado"));
+        assertEquals(0.0163, result.get("errorEstandar"));
+        List<?> detail = (List<?>) result.get("detalle");
+        assertEquals(2, detail.size());
+        assertEquals(monday, ((Map<?, ?>) detail.get(0)).get("periodo"));
+        assertEquals(2L, ((Map<?, ?>) detail.get(1)).get("vehiculosUnicos"));
+    }
+
+    @Test
+    void getUniqueVehicles_ClosedRange_ServedFromCache() {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(parkingDailySketchRepository.streamBySketchDateBetween(date, date))
+                .thenReturn(Stream.<Object[]>of(new Object[]{date, sketchOf("ABC123")}));
+
+        // Act
+        uniqueVehicleService.getUniqueVehicles(null, date, date, null);
+        Map<String, Object> result = uniqueVehicleService.getUniqueVehicles(List.of(), date, date, null);
+
+        // Assert
+        assertEquals(1L, result.get("vehiculosUnicos"));
+        assertEquals("todos", result.get("parqueaderos"));
+        verify(parkingDailySketchRepository, times(1)).streamBySketchDateBetween(date, date);
+    }
+
+    @Test
+    void getUniqueVehicles_InvalidGroupBy_ThrowsValidationException() {
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> uniqueVehicleService.getUniqueVehicles(
+                null, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31), "hour"));
+        verifyNoInteractions(parkingDailySketchRepository);
+    }
+
+    @Test
+    void getUniqueVehicles_InvertedRange_ThrowsValidationException() {
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> uniqueVehicleService.getUniqueVehicles(
+                null, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), null));
+    }
+
+    @Test
+    void rebuild_OneSketchPerParkingAndDay() {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 1);
+        when(vehicleHistoryRepository.streamPlatesByExitDateTimeBetween(any(), any())).thenReturn(Stream.of(
+                new Object[]{1L, date.atTime(9, 0), "ABC123"},
+                new Object[]{1L, date.atTime(18, 0), "ABC123"},
+                new Object[]{1L, date.plusDays(1).atTime(9, 0), "XYZ789"},
+                new Object[]{2L, date.atTime(10, 0), "ABC123"}));
+
+        // Act
+        int generated = uniqueVehicleService.rebuild(date, date.plusDays(1));
+
+        // Assert
+        assertEquals(3, generated);
+        verify(parkingDailySketchRepository).deleteBySketchDateBetween(date, date.plusDays(1));
+        ArgumentCaptor<byte[]> registers = ArgumentCaptor.forClass(byte[].class);
+        verify(parkingDailySketchRepository).insertSketch(eq(1L), eq(date), registers.capture());
+        assertEquals(1, HyperLogLog.fromBytes(registers.getValue()).estimate());
+        verify(parkingDailySketchRepository).insertSketch(eq(1L), eq(date.plusDays(1)), any());
+        verify(parkingDailySketchRepository).insertSketch(eq(2L), eq(date), any());
+    }
+}
@@ -0,0 +1,208 @@
+package com.nelumbo.parking.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nelumbo.parking.entities.VehicleHistory;
+import com.nelumbo.parking.repositories.ParkingRecordRepository;
+import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VehicleHistoryAppenderTest {
+
+    @Mock
+    private VehicleHistoryRepository vehicleHistoryRepository;
+
+    @Mock
+    private ParkingRecordRepository parkingRecordRepository;
+
+    @Mock
+    private ReportResultCache reportResultCache;
+
+    @TempDir
+    private Path journalDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private VehicleHistoryAppender appender(boolean enabled, int capacity) {
+        return new VehicleHistoryAppender(vehicleHistoryRepository, parkingRecordRepository, objectMapper, reportResultCache,
+                new SimpleMeterRegistry(),
+                enabled, capacity, 10, journalDir.toString());
+    }
+
+    private VehicleHistory history(String plate) {
+        return VehicleHistory.builder()
+                .licensePlate(plate)
+                .parkingName("Test Parking")
+                .entryDateTime(LocalDateTime.of(2024, 1, 1, 8, 0))
+                .exitDateTime(LocalDateTime.of(2024, 1, 1, 10, 0))
+                .totalCost(10000L)
+                .parkingId(1L)
+                .vehicleId(1L)
+                .build();
+    }
+
+    @Test
+    void append_Disabled_SavesImmediately() {
+        // Arrange
+        VehicleHistoryAppender appender = appender(false, 100);
+
+        // Act
+        appender.append(history("ABC123"));
+
+        // Assert
+        verify(vehicleHistoryRepository).save(any(VehicleHistory.class));
+        assertEquals(0, appender.getQueueDepth());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_WritesQueuedRowsInOneBatch() {
+        // Arrange
+        VehicleHistoryAppender appender = appender(true, 100);
+        appender.append(history("ABC123"));
+        appender.append(history("XYZ789"));
+        appender.append(history("DEF456"));
+        verify(vehicleHistoryRepository, never()).save(any(VehicleHistory.class));
+        assertEquals(3, appender.getQueueDepth());
+
+        // Act
+        int written = appender.flush();
+
+        // Assert
+        ArgumentCaptor<List<VehicleHistory>> captor = ArgumentCaptor.forClass(List.class);
+        verify(vehicleHistoryRepository, times(1)).saveAll(captor.capture());
+        assertEquals(3, written);
+        assertEquals(3, captor.getValue().size());
+        assertEquals(0, appender.getQueueDepth());
+        verify(reportResultCache).invalidateParkings(Set.of(1L));
+    }
+
+    @Test
+    void append_QueueFull_SavesImmediately() {
+        // Arrange
+        VehicleHistoryAppender appender = appender(true, 1);
+
+        // Act
+        appender.append(history("ABC123"));
+        appender.append(history("XYZ789"));
+
+        // Assert
+        verify(vehicleHistoryRepository, times(1)).save(any(VehicleHistory.class));
+        assertEquals(1, appender.getQueueDepth());
+    }
+
+    @Test
+    void recover_ReinsertsMissingRowsFromJournal() throws Exception {
+        // Arrange
+        VehicleHistoryAppender crashed = appender(true, 100);
+        crashed.append(history("ABC123"));
+        crashed.append(history("XYZ789"));
+        when(vehicleHistoryRepository.existsByLicensePlateAndEntryDateTime(eq("ABC123"), any()))
+                .thenReturn(true);
+        when(vehicleHistoryRepository.existsByLicensePlateAndEntryDateTime(eq("XYZ789"), any()))
+                .thenReturn(false);
+        when(parkingRecordRepository.existsExited(eq(1L), eq(1L), any(), any())).thenReturn(true);
+
+        // Act
+        int recovered = appender(true, 100).recover();
+
+        // Assert
+        assertEquals(1, recovered);
+        verify(vehicleHistoryRepository).saveAll(anyList());
+        try (var files = Files.list(journalDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void recover_SkipsRowsOfExitsThatDidNotCommit() {
+        // Arrange
+        appender(true, 100).append(history("ABC123"));
+        when(vehicleHistoryRepository.existsByLicensePlateAndEntryDateTime(eq("ABC123"), any()))
+                .thenReturn(false);
+        when(parkingRecordRepository.existsExited(anyLong(), anyLong(), any(), any())).thenReturn(false);
+
+        // Act
+        int recovered = appender(true, 100).recover();
+
+        // Assert
+        assertEquals(0, recovered);
+        verify(vehicleHistoryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void recoverOnStartup_Disabled_DoesNotTouchDatabase() {
+        // Arrange
+        appender(true, 100).append(history("ABC123"));
+
+        // Act
+        appender(false, 100).recoverOnStartup();
+
+        // Assert
+        verifyNoInteractions(vehicleHistoryRepository, parkingRecordRepository);
+    }
+
+    @Test
+    void flush_Failure_ClearsAssignedIdsBeforeRetry() {
+        // Arrange
+        VehicleHistoryAppender appender = appender(true, 100);
+        VehicleHistory history = history("ABC123");
+        appender.append(history);
+        when(vehicleHistoryRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            history.setId(50L);
+            throw new IllegalStateException("conexión perdida");
+        });
+
+        // Act
+        int written = appender.flush();
+
+        // Assert
+        assertEquals(0, written);
+        assertNull(history.getId());
+        assertEquals(1, appender.getQueueDepth());
+    }
+
+    @Test
+    void append_InTransaction_JournalsBeforeCommitAndQueuesAfter() throws Exception {
+        // Arrange
+        VehicleHistoryAppender appender = appender(true, 100);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            appender.append(history("ABC123"));
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+            // Act
+            synchronizations.forEach(sync -> sync.beforeCommit(false));
+            long journaled = Files.readAllLines(journalDir.resolve("history.journal")).size();
+            int flushedBeforeCommit = appender.flush();
+            synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+            // Assert
+            assertEquals(1, journaled);
+            assertEquals(0, flushedBeforeCommit);
+            assertEquals(1, appender.flush());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
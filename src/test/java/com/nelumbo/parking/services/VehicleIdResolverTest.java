@@ -0,0 +1,54 @@
+package com.nelumbo.parking.services;
+
+import com.nelumbo.parking.config.CacheConfig;
+import com.nelumbo.parking.repositories.VehicleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VehicleIdResolverTest {
+
+    @Mock
+    private VehicleRepository vehicleRepository;
+
+    private VehicleIdResolver vehicleIdResolver;
+
+    @BeforeEach
+    void setUp() {
+        vehicleIdResolver = new VehicleIdResolver(vehicleRepository,
+                new ConcurrentMapCacheManager(CacheConfig.VEHICLES_CACHE));
+    }
+
+    @Test
+    void resolve_NewPlate_UpsertsOnce() {
+        // Arrange
+        when(vehicleRepository.upsertIdByLicensePlate("ABC123")).thenReturn(7L);
+
+        // Act
+        Long first = vehicleIdResolver.resolve("ABC123");
+        Long second = vehicleIdResolver.resolve("ABC123");
+
+        // Assert
+        assertEquals(7L, first);
+        assertEquals(7L, second);
+        verify(vehicleRepository, times(1)).upsertIdByLicensePlate("ABC123");
+    }
+
+    @Test
+    void resolve_DifferentPlates_UpsertsEach() {
+        // Arrange
+        when(vehicleRepository.upsertIdByLicensePlate("ABC123")).thenReturn(7L);
+        when(vehicleRepository.upsertIdByLicensePlate("XYZ789")).thenReturn(8L);
+
+        // Act & Assert
+        assertEquals(7L, vehicleIdResolver.resolve("ABC123"));
+        assertEquals(8L, vehicleIdResolver.resolve("XYZ789"));
+    }
+}
@@ -1,16 +1,21 @@
 package com.nelumbo.parking.services;
 
+import com.nelumbo.parking.dto.ParkedVehicleRow;
 import com.nelumbo.parking.dto.VehicleEntryRequest;
+import com.nelumbo.parking.dto.VehicleEvent;
+import com.nelumbo.parking.dto.VehicleEventResult;
 import com.nelumbo.parking.dto.VehicleExitRequest;
+import com.nelumbo.parking.dto.VehicleResponse;
 import com.nelumbo.parking.entities.Parking;
 import com.nelumbo.parking.entities.ParkingRecord;
 import com.nelumbo.parking.entities.Vehicle;
 import com.nelumbo.parking.entities.VehicleHistory;
 import com.nelumbo.parking.entities.ParkingRecord.ParkingStatus;
 import com.nelumbo.parking.exceptions.ValidationException;
+import com.nelumbo.parking.repositories.ParkingDailyRollupRepository;
 import com.nelumbo.parking.repositories.ParkingRecordRepository;
 import com.nelumbo.parking.repositories.ParkingRepository;
-import com.nelumbo.parking.repositories.VehicleHistoryRepository;
+import com.nelumbo.parking.repositories.ParkingVehicleVisitRepository;
 import com.nelumbo.parking.repositories.VehicleRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,14 +27,19 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.transaction.PlatformTransactionManager;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -46,10 +56,37 @@ class VehicleServiceTest {
     private ParkingRecordRepository parkingRecordRepository;
 
     @Mock
-    private VehicleHistoryRepository vehicleHistoryRepository;
+    private ParkingDailyRollupRepository parkingDailyRollupRepository;
 
     @Mock
-    private EmailService emailService;
+    private ParkingVehicleVisitRepository parkingVehicleVisitRepository;
+
+    @Mock
+    private VehicleHistoryAppender vehicleHistoryAppender;
+
+    @Mock
+    private EmailOutboxService emailOutboxService;
+
+    @Mock
+    private OccupancyRegistry occupancyRegistry;
+
+    @Mock
+    private ActivePlateIndex activePlateIndex;
+
+    @Mock
+    private VehicleIdResolver vehicleIdResolver;
+
+    @Mock
+    private ReportResultCache reportResultCache;
+
+    @Mock
+    private UniqueVehicleService uniqueVehicleService;
+
+    @Mock
+    private TopVehicleTracker topVehicleTracker;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     @InjectMocks
     private VehicleService vehicleService;
@@ -66,7 +103,7 @@ class VehicleServiceTest {
                 .id(1L)
                 .name("Test Parking")
                 .capacity(50)
-                .hourlyRate(BigDecimal.valueOf(5.00))
+                .hourlyRate(5L)
                 .build();
 
         testVehicle = Vehicle.builder()
@@ -94,12 +131,12 @@ class VehicleServiceTest {
     @Test
     void registerVehicleEntry_Success() {
         // Arrange
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
-        when(parkingRecordRepository.findActiveByLicensePlate("ABC123")).thenReturn(Optional.empty());
-        when(parkingRecordRepository.countActiveByParkingId(1L)).thenReturn(25L);
-        when(vehicleRepository.findByLicensePlate("ABC123")).thenReturn(Optional.of(testVehicle));
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.reserve("ABC123", 1L)).thenReturn(true);
+        when(parkingRepository.tryReserveSpot(1L)).thenReturn(1);
+        when(vehicleIdResolver.resolve("ABC123")).thenReturn(1L);
+        when(vehicleRepository.getReferenceById(1L)).thenReturn(testVehicle);
         when(parkingRecordRepository.save(any(ParkingRecord.class))).thenReturn(testParkingRecord);
-        when(emailService.sendEmail(anyString(), anyString(), anyString(), anyString())).thenReturn(true);
 
         // Act
         Long result = vehicleService.registerVehicleEntry(entryRequest);
@@ -107,8 +144,9 @@ class VehicleServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(1L, result);
+        verify(occupancyRegistry).occupy(1L);
         verify(parkingRecordRepository).save(any(ParkingRecord.class));
-        verify(emailService).sendEmail(anyString(), anyString(), anyString(), anyString());
+        verify(emailOutboxService).enqueue(anyString(), anyString(), anyString(), anyString());
     }
 
     @Test
@@ -120,27 +158,27 @@ class VehicleServiceTest {
                 .build();
 
         entryRequest.setLicensePlate("XYZ789");
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
-        when(parkingRecordRepository.findActiveByLicensePlate("XYZ789")).thenReturn(Optional.empty());
-        when(parkingRecordRepository.countActiveByParkingId(1L)).thenReturn(25L);
-        when(vehicleRepository.findByLicensePlate("XYZ789")).thenReturn(Optional.empty());
-        when(vehicleRepository.save(any(Vehicle.class))).thenReturn(newVehicle);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.reserve("XYZ789", 1L)).thenReturn(true);
+        when(parkingRepository.tryReserveSpot(1L)).thenReturn(1);
+        when(vehicleIdResolver.resolve("XYZ789")).thenReturn(2L);
+        when(vehicleRepository.getReferenceById(2L)).thenReturn(newVehicle);
         when(parkingRecordRepository.save(any(ParkingRecord.class))).thenReturn(testParkingRecord);
-        when(emailService.sendEmail(anyString(), anyString(), anyString(), anyString())).thenReturn(true);
 
         // Act
         Long result = vehicleService.registerVehicleEntry(entryRequest);
 
         // Assert
         assertNotNull(result);
-        verify(vehicleRepository).save(any(Vehicle.class));
+        verify(vehicleIdResolver).resolve("XYZ789");
+        verify(vehicleRepository, never()).save(any(Vehicle.class));
         verify(parkingRecordRepository).save(any(ParkingRecord.class));
     }
 
     @Test
     void registerVehicleEntry_ParkingNotFound_ThrowsValidationException() {
         // Arrange
-        when(parkingRepository.findById(999L)).thenReturn(Optional.empty());
+        when(parkingRepository.findCachedById(999L)).thenReturn(Optional.empty());
         entryRequest.setParkingId(999L);
 
         // Act & Assert
@@ -152,8 +190,8 @@ class VehicleServiceTest {
     @Test
     void registerVehicleEntry_VehicleAlreadyParked_ThrowsValidationException() {
         // Arrange
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
-        when(parkingRecordRepository.findActiveByLicensePlate("ABC123")).thenReturn(Optional.of(testParkingRecord));
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.reserve("ABC123", 1L)).thenReturn(false);
 
         // Act & Assert
         assertThrows(ValidationException.class,
@@ -164,25 +202,43 @@ class VehicleServiceTest {
     @Test
     void registerVehicleEntry_ParkingFull_ThrowsValidationException() {
         // Arrange
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
-        when(parkingRecordRepository.findActiveByLicensePlate("ABC123")).thenReturn(Optional.empty());
-        when(parkingRecordRepository.countActiveByParkingId(1L)).thenReturn(50L);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.reserve("ABC123", 1L)).thenReturn(true);
+        when(parkingRepository.tryReserveSpot(1L)).thenReturn(0);
 
         // Act & Assert
         assertThrows(ValidationException.class,
                 () -> vehicleService.registerVehicleEntry(entryRequest));
+        verify(occupancyRegistry, never()).occupy(anyLong());
         verify(parkingRecordRepository, never()).save(any(ParkingRecord.class));
     }
 
+    @Test
+    void registerVehicleEntry_ActiveOnAnotherInstance_ThrowsValidationException() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.reserve("ABC123", 1L)).thenReturn(true);
+        when(parkingRepository.tryReserveSpot(1L)).thenReturn(1);
+        when(vehicleIdResolver.resolve("ABC123")).thenReturn(1L);
+        when(vehicleRepository.getReferenceById(1L)).thenReturn(testVehicle);
+        when(parkingRecordRepository.save(any(ParkingRecord.class))).thenReturn(testParkingRecord);
+        doThrow(new DataIntegrityViolationException("uk_parking_records_active_vehicle"))
+                .when(parkingRecordRepository).flush();
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> vehicleService.registerVehicleEntry(entryRequest));
+        verify(activePlateIndex, never()).confirm(anyString(), any(ParkingRecord.class));
+    }
+
     @Test
     void registerVehicleExit_Success() {
         // Arrange
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
-        when(parkingRecordRepository.findActiveByLicensePlateAndParking("ABC123", 1L))
-                .thenReturn(Optional.of(testParkingRecord));
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.claim("ABC123", 1L))
+                .thenReturn(Optional.of(new ActivePlateIndex.ActiveVehicle(1L, 1L, testParkingRecord.getEntryDateTime())));
+        when(parkingRecordRepository.lockActiveById(1L)).thenReturn(Optional.of(testParkingRecord));
         when(parkingRecordRepository.save(any(ParkingRecord.class))).thenReturn(testParkingRecord);
-        when(vehicleHistoryRepository.save(any(VehicleHistory.class))).thenReturn(new VehicleHistory());
-        when(emailService.sendEmail(anyString(), anyString(), anyString(), anyString())).thenReturn(true);
 
         // Act
         String result = vehicleService.registerVehicleExit(exitRequest);
@@ -191,14 +247,39 @@ class VehicleServiceTest {
         assertNotNull(result);
         assertEquals("Salida registrada", result);
         verify(parkingRecordRepository).save(any(ParkingRecord.class));
-        verify(vehicleHistoryRepository).save(any(VehicleHistory.class));
-        verify(emailService).sendEmail(anyString(), anyString(), anyString(), anyString());
+        verify(parkingRepository).releaseSpot(1L);
+        verify(occupancyRegistry).release(1L);
+        verify(vehicleHistoryAppender).append(any(VehicleHistory.class));
+        verify(parkingDailyRollupRepository).addExit(eq(1L), any(), anyLong(), anyLong());
+        verify(parkingVehicleVisitRepository).recordVisit(eq(1L), any(), any());
+        verify(reportResultCache).invalidateParkingOnCommit(1L);
+        verify(uniqueVehicleService).recordExit(eq(1L), any(), anyString());
+        verify(topVehicleTracker).recordExitOnCommit(eq(1L), anyString(), any(LocalDateTime.class));
+        verify(emailOutboxService).enqueue(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void registerVehicleExit_NotInLocalIndex_FallsBackToDatabase() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.claim("ABC123", 1L)).thenReturn(Optional.empty());
+        when(parkingRecordRepository.lockActiveByLicensePlateAndParking("ABC123", 1L))
+                .thenReturn(Optional.of(testParkingRecord));
+        when(parkingRecordRepository.save(any(ParkingRecord.class))).thenReturn(testParkingRecord);
+
+        // Act
+        String result = vehicleService.registerVehicleExit(exitRequest);
+
+        // Assert
+        assertEquals("Salida registrada", result);
+        assertEquals(ParkingStatus.EXITED, testParkingRecord.getStatus());
+        verify(parkingRepository).releaseSpot(1L);
     }
 
     @Test
     void registerVehicleExit_ParkingNotFound_ThrowsValidationException() {
         // Arrange
-        when(parkingRepository.findById(999L)).thenReturn(Optional.empty());
+        when(parkingRepository.findCachedById(999L)).thenReturn(Optional.empty());
         exitRequest.setParkingId(999L);
 
         // Act & Assert
@@ -210,9 +291,8 @@ class VehicleServiceTest {
     @Test
     void registerVehicleExit_VehicleNotInParking_ThrowsValidationException() {
         // Arrange
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
-        when(parkingRecordRepository.findActiveByLicensePlateAndParking("ABC123", 1L))
-                .thenReturn(Optional.empty());
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.claim("ABC123", 1L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ValidationException.class,
@@ -221,44 +301,186 @@ class VehicleServiceTest {
     }
 
     @Test
-    void getParkedVehicles_Success() {
+    void registerVehicleEvents_MixedBatch_ReportsEachEvent() {
         // Arrange
-        List<ParkingRecord> parkedVehicles = List.of(testParkingRecord);
-        when(parkingRepository.existsById(1L)).thenReturn(true);
-        when(parkingRecordRepository.findActiveByParkingId(1L)).thenReturn(parkedVehicles);
+        List<VehicleEvent> events = List.of(
+                new VehicleEvent(VehicleEvent.EventType.ENTRY, "abc123", 1L),
+                new VehicleEvent(VehicleEvent.EventType.ENTRY, "BAD", 1L),
+                new VehicleEvent(VehicleEvent.EventType.EXIT, "XYZ789", 1L));
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.reserve("ABC123", 1L)).thenReturn(true);
+        when(parkingRepository.tryReserveSpot(1L)).thenReturn(1);
+        when(vehicleIdResolver.resolve("ABC123")).thenReturn(1L);
+        when(vehicleRepository.getReferenceById(1L)).thenReturn(testVehicle);
+        when(parkingRecordRepository.save(any(ParkingRecord.class))).thenReturn(testParkingRecord);
+        when(activePlateIndex.claim("XYZ789", 1L)).thenReturn(Optional.empty());
 
         // Act
-        List<ParkingRecord> result = vehicleService.getParkedVehicles(1L);
+        List<VehicleEventResult> results = vehicleService.registerVehicleEvents(events);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals("ABC123", result.getFirst().getVehicle().getLicensePlate());
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isExitoso());
+        assertEquals(1L, results.get(0).getRegistroId());
+        assertFalse(results.get(1).isExitoso());
+        assertFalse(results.get(2).isExitoso());
+        verify(parkingRepository, times(1)).findCachedById(1L);
+        verify(parkingRecordRepository, times(1)).save(any(ParkingRecord.class));
+    }
+
+    @Test
+    void registerVehicleEvents_ParkingFull_CancelsPlateReservation() {
+        // Arrange
+        List<VehicleEvent> events = List.of(new VehicleEvent(VehicleEvent.EventType.ENTRY, "ABC123", 1L));
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.reserve("ABC123", 1L)).thenReturn(true);
+        when(parkingRepository.tryReserveSpot(1L)).thenReturn(0);
+
+        // Act
+        List<VehicleEventResult> results = vehicleService.registerVehicleEvents(events);
+
+        // Assert
+        assertFalse(results.getFirst().isExitoso());
+        verify(activePlateIndex).cancel("ABC123", 1L);
+        verify(parkingRecordRepository, never()).save(any(ParkingRecord.class));
+    }
+
+    @Test
+    void registerVehicleEvents_UnexpectedError_OnlyFailsThatEvent() {
+        // Arrange
+        List<VehicleEvent> events = List.of(
+                new VehicleEvent(VehicleEvent.EventType.ENTRY, "ABC123", 1L),
+                new VehicleEvent(VehicleEvent.EventType.ENTRY, "XYZ789", 1L));
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.reserve(anyString(), eq(1L))).thenReturn(true);
+        when(parkingRepository.tryReserveSpot(1L)).thenReturn(1);
+        when(vehicleIdResolver.resolve("ABC123")).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(vehicleIdResolver.resolve("XYZ789")).thenReturn(1L);
+        when(vehicleRepository.getReferenceById(1L)).thenReturn(testVehicle);
+        when(parkingRecordRepository.save(any(ParkingRecord.class))).thenReturn(testParkingRecord);
+
+        // Act
+        List<VehicleEventResult> results = vehicleService.registerVehicleEvents(events);
+
+        // Assert
+        assertFalse(results.get(0).isExitoso());
+        assertTrue(results.get(1).isExitoso());
+        verify(transactionManager, times(2)).getTransaction(any());
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void getParkedVehicles_FirstPage_ReturnsCursorOfLastRow() {
+        // Arrange
+        LocalDateTime entry = LocalDateTime.of(2024, 12, 15, 8, 30);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingRecordRepository.findParkedPage(eq(1L), any(), any(), any(), eq(0L), eq("%"), eq(PageRequest.of(0, 2))))
+                .thenReturn(new SliceImpl<>(List.of(
+                        new ParkedVehicleRow(7L, "ABC123", entry),
+                        new ParkedVehicleRow(9L, "XYZ789", entry.plusMinutes(5))), PageRequest.of(0, 2), true));
+
+        // Act
+        Map<String, Object> result = vehicleService.getParkedVehicles(1L, null, null, null, null, 2);
+
+        // Assert
+        assertEquals(2, ((List<?>) result.get("vehiculos")).size());
+        assertEquals(true, result.get("hayMas"));
+        assertNotNull(result.get("siguienteCursor"));
+    }
+
+    @Test
+    void getParkedVehicles_WithCursor_ContinuesAfterLastRow() {
+        // Arrange
+        LocalDateTime entry = LocalDateTime.of(2024, 12, 15, 8, 35);
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(parkingRecordRepository.findParkedPage(eq(1L), any(), any(), any(), anyLong(), anyString(), any()))
+                .thenReturn(new SliceImpl<>(List.of(new ParkedVehicleRow(9L, "XYZ789", entry)), PageRequest.of(0, 1), true));
+        String cursor = (String) vehicleService.getParkedVehicles(1L, null, null, null, null, 1).get("siguienteCursor");
+        LocalDateTime after = LocalDateTime.of(2024, 12, 15, 8, 0);
+        when(parkingRecordRepository.findParkedPage(1L, after, LocalDateTime.of(9999, 12, 31, 0, 0),
+                entry, 9L, "AB%", PageRequest.of(0, 1)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 1), false));
+
+        // Act
+        Map<String, Object> result = vehicleService.getParkedVehicles(1L, after, null, "ab", cursor, 1);
+
+        // Assert
+        assertEquals(false, result.get("hayMas"));
+        assertNull(result.get("siguienteCursor"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"no-es-un-cursor", "MjAyNHwx"})
+    void getParkedVehicles_InvalidCursor_ThrowsValidationException(String cursor) {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> vehicleService.getParkedVehicles(1L, null, null, null, cursor, 50));
+    }
+
+    @Test
+    void getParkedVehicles_InvalidPlatePrefix_ThrowsValidationException() {
+        // Arrange
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+
+        // Act & Assert
+        assertThrows(ValidationException.class,
+                () -> vehicleService.getParkedVehicles(1L, null, null, "AB%", null, 50));
+        verify(parkingRecordRepository, never()).findParkedPage(anyLong(), any(), any(), any(), anyLong(), anyString(), any());
     }
 
     @Test
     void getParkedVehicles_ParkingNotFound_ThrowsValidationException() {
         // Arrange
-        when(parkingRepository.existsById(999L)).thenReturn(false);
+        when(parkingRepository.findCachedById(999L)).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ValidationException.class,
-                () -> vehicleService.getParkedVehicles(999L));
+                () -> vehicleService.getParkedVehicles(999L, null, null, null, null, 50));
+    }
+
+    @Test
+    void locateVehicle_Success() {
+        // Arrange
+        LocalDateTime entry = LocalDateTime.now().minusMinutes(30);
+        when(activePlateIndex.find("ABC123"))
+                .thenReturn(Optional.of(new ActivePlateIndex.ActiveVehicle(7L, 1L, entry)));
+
+        // Act
+        Map<String, Object> result = vehicleService.locateVehicle("abc123");
+
+        // Assert
+        assertEquals("ABC123", result.get("placa"));
+        assertEquals(1L, result.get("parkingId"));
+        assertEquals(7L, result.get("registroId"));
+        verifyNoInteractions(parkingRecordRepository);
+    }
+
+    @Test
+    void locateVehicle_NotParked_ThrowsValidationException() {
+        // Arrange
+        when(activePlateIndex.find("ABC123")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ValidationException.class, () -> vehicleService.locateVehicle("ABC123"));
     }
 
     @Test
     void searchVehiclesByPlate_Success() {
         // Arrange
-        List<Vehicle> vehicles = List.of(testVehicle);
+        List<VehicleResponse> vehicles = List.of(new VehicleResponse(1L, "ABC123"));
         when(vehicleRepository.findByLicensePlateContaining("ABC")).thenReturn(vehicles);
 
         // Act
-        List<Vehicle> result = vehicleService.searchVehiclesByPlate("ABC");
+        List<VehicleResponse> result = vehicleService.searchVehiclesByPlate("ABC");
 
         // Assert
         assertNotNull(result);
         assertEquals(1, result.size());
-        assertEquals("ABC123", result.getFirst().getLicensePlate());
+        assertEquals("ABC123", result.getFirst().licensePlate());
     }
 
     @ParameterizedTest(name = "[{index}] placa inválida: {0}")
@@ -274,12 +496,12 @@ class VehicleServiceTest {
     void registerVehicleEntry_LicensePlateUpperCase_Success() {
         // Arrange
         entryRequest.setLicensePlate("abc123");
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
-        when(parkingRecordRepository.findActiveByLicensePlate("ABC123")).thenReturn(Optional.empty());
-        when(parkingRecordRepository.countActiveByParkingId(1L)).thenReturn(25L);
-        when(vehicleRepository.findByLicensePlate("ABC123")).thenReturn(Optional.of(testVehicle));
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.reserve("ABC123", 1L)).thenReturn(true);
+        when(parkingRepository.tryReserveSpot(1L)).thenReturn(1);
+        when(vehicleIdResolver.resolve("ABC123")).thenReturn(1L);
+        when(vehicleRepository.getReferenceById(1L)).thenReturn(testVehicle);
         when(parkingRecordRepository.save(any(ParkingRecord.class))).thenReturn(testParkingRecord);
-        when(emailService.sendEmail(anyString(), anyString(), anyString(), anyString())).thenReturn(true);
 
         // Act
         Long result = vehicleService.registerVehicleEntry(entryRequest);
@@ -293,12 +515,11 @@ class VehicleServiceTest {
     void registerVehicleExit_LicensePlateUpperCase_Success() {
         // Arrange
         exitRequest.setLicensePlate("abc123");
-        when(parkingRepository.findById(1L)).thenReturn(Optional.of(testParking));
-        when(parkingRecordRepository.findActiveByLicensePlateAndParking("ABC123", 1L))
-                .thenReturn(Optional.of(testParkingRecord));
+        when(parkingRepository.findCachedById(1L)).thenReturn(Optional.of(testParking));
+        when(activePlateIndex.claim("ABC123", 1L))
+                .thenReturn(Optional.of(new ActivePlateIndex.ActiveVehicle(1L, 1L, testParkingRecord.getEntryDateTime())));
+        when(parkingRecordRepository.lockActiveById(1L)).thenReturn(Optional.of(testParkingRecord));
         when(parkingRecordRepository.save(any(ParkingRecord.class))).thenReturn(testParkingRecord);
-        when(vehicleHistoryRepository.save(any(VehicleHistory.class))).thenReturn(new VehicleHistory());
-        when(emailService.sendEmail(anyString(), anyString(), anyString(), anyString())).thenReturn(true);
 
         // Act
         String result = vehicleService.registerVehicleExit(exitRequest);
@@ -0,0 +1,41 @@
+package com.nelumbo.parking.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvWriterTest {
+
+    @Test
+    void writeRow_FormatsValuesAndEndsWithCrlf() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CsvWriter csv = new CsvWriter(out);
+
+        // Act
+        csv.writeRow("ABC123", 3L, new BigDecimal("1E+4"), LocalDateTime.of(2024, 1, 1, 8, 0), null);
+        csv.flush();
+
+        // Assert
+        assertEquals("ABC123,3,10000,2024-01-01T08:00,\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void format_QuotesSeparatorsAndQuotes() {
+        assertEquals("\"Parqueadero, Centro\"", CsvWriter.format("Parqueadero, Centro"));
+        assertEquals("\"El \"\"Norte\"\"\"", CsvWriter.format("El \"Norte\""));
+        assertEquals("\"a\nb\"", CsvWriter.format("a\nb"));
+    }
+
+    @Test
+    void format_EscapesFormulaPrefixes() {
+        assertEquals("'=SUM(A1)", CsvWriter.format("=SUM(A1)"));
+        assertEquals("'@cmd", CsvWriter.format("@cmd"));
+        assertEquals("-5", CsvWriter.format(-5L));
+    }
+}
@@ -0,0 +1,85 @@
+package com.nelumbo.parking.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    private static HyperLogLog sketchOf(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = from; i < to; i++) {
+            sketch.add(String.format("PLT%06d", i));
+        }
+        return sketch;
+    }
+
+    private static void assertWithinError(long expected, long estimate) {
+        // Tres errores estándar: el test no debe fallar por azar
+        double tolerance = 3 * HyperLogLog.STANDARD_ERROR * expected;
+        assertTrue(Math.abs(estimate - expected) <= tolerance,
+                "estimado " + estimate + ", esperado " + expected + " ± " + tolerance);
+    }
+
+    @Test
+    void estimate_EmptySketch_IsZero() {
+        HyperLogLog sketch = new HyperLogLog();
+
+        assertTrue(sketch.isEmpty());
+        assertEquals(0, sketch.estimate());
+    }
+
+    @Test
+    void estimate_SmallCardinality_IsNearlyExact() {
+        assertEquals(100, sketchOf(0, 100).estimate(), 2);
+    }
+
+    @Test
+    void estimate_LargeCardinality_WithinStandardError() {
+        assertWithinError(100_000, sketchOf(0, 100_000).estimate());
+    }
+
+    @Test
+    void add_RepeatedPlates_DoNotChangeEstimate() {
+        HyperLogLog sketch = sketchOf(0, 1_000);
+        long before = sketch.estimate();
+
+        for (int i = 0; i < 1_000; i++) {
+            sketch.add(String.format("PLT%06d", i));
+        }
+
+        assertEquals(before, sketch.estimate());
+    }
+
+    @Test
+    void merge_EstimatesUnionWithoutDoubleCounting() {
+        HyperLogLog monday = sketchOf(0, 30_000);
+        HyperLogLog tuesday = sketchOf(20_000, 50_000);
+
+        monday.merge(tuesday);
+
+        assertEquals(sketchOf(0, 50_000), monday);
+        assertWithinError(50_000, monday.estimate());
+    }
+
+    @Test
+    void fromBytes_RoundTripsRegisters() {
+        HyperLogLog sketch = sketchOf(0, 5_000);
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertEquals(HyperLogLog.REGISTERS, sketch.toBytes().length);
+        assertEquals(sketch.estimate(), restored.estimate());
+    }
+
+    @Test
+    void fromBytes_WrongLength_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[16]));
+    }
+
+    @Test
+    void rank_IsBoundedByRemainingBits() {
+        assertEquals(Long.SIZE - HyperLogLog.PRECISION + 1, HyperLogLog.rank(0L));
+        assertEquals(1, HyperLogLog.rank(1L << (Long.SIZE - HyperLogLog.PRECISION - 1)));
+    }
+}
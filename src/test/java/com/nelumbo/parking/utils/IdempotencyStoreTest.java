@@ -0,0 +1,83 @@
+package com.nelumbo.parking.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyStoreTest {
+
+    @Test
+    void begin_NewKey_Started() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(10, 60000);
+
+        assertEquals(IdempotencyStore.State.STARTED, store.begin("k1", "f1").state());
+        assertEquals(IdempotencyStore.State.IN_PROGRESS, store.begin("k1", "f1").state());
+    }
+
+    @Test
+    void begin_CompletedKey_ReturnsStoredValue() {
+        // Arrange
+        IdempotencyStore<String> store = new IdempotencyStore<>(10, 60000);
+        store.begin("k1", "f1");
+        store.complete("k1", "respuesta");
+
+        // Act
+        IdempotencyStore.Lookup<String> lookup = store.begin("k1", "f1");
+
+        // Assert
+        assertEquals(IdempotencyStore.State.COMPLETED, lookup.state());
+        assertEquals("respuesta", lookup.value());
+    }
+
+    @Test
+    void begin_DifferentFingerprint_Mismatch() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(10, 60000);
+        store.begin("k1", "f1");
+        store.complete("k1", "respuesta");
+
+        assertEquals(IdempotencyStore.State.MISMATCH, store.begin("k1", "f2").state());
+    }
+
+    @Test
+    void abandon_AllowsRetry() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(10, 60000);
+        store.begin("k1", "f1");
+        store.abandon("k1");
+
+        assertEquals(IdempotencyStore.State.STARTED, store.begin("k1", "f1").state());
+    }
+
+    @Test
+    void begin_OverCapacity_EvictsOldestCompleted() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(2, 60000);
+        store.begin("k1", "f1");
+        store.complete("k1", "r1");
+        store.begin("k2", "f2");
+        store.complete("k2", "r2");
+        store.begin("k3", "f3");
+
+        assertEquals(2, store.size());
+        assertEquals(IdempotencyStore.State.COMPLETED, store.begin("k2", "f2").state());
+        assertEquals(IdempotencyStore.State.STARTED, store.begin("k1", "f1").state());
+    }
+
+    @Test
+    void begin_OverCapacity_KeepsInProgressKeys() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(2, 60000);
+        store.begin("k1", "f1");
+        store.begin("k2", "f2");
+        store.begin("k3", "f3");
+
+        assertEquals(3, store.size());
+        assertEquals(IdempotencyStore.State.IN_PROGRESS, store.begin("k1", "f1").state());
+    }
+
+    @Test
+    void begin_ExpiredKey_Started() {
+        IdempotencyStore<String> store = new IdempotencyStore<>(10, 0);
+        store.begin("k1", "f1");
+        store.complete("k1", "respuesta");
+
+        assertEquals(IdempotencyStore.State.STARTED, store.begin("k1", "f1").state());
+    }
+}
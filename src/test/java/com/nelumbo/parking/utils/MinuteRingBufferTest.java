@@ -0,0 +1,71 @@
+package com.nelumbo.parking.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinuteRingBufferTest {
+
+    @Test
+    void get_RecordedMinutes_ReturnsValuesAndMissingForGaps() {
+        MinuteRingBuffer ring = new MinuteRingBuffer(10);
+        ring.record(100, 3);
+        ring.record(101, 4);
+        ring.record(104, 6);
+
+        assertEquals(3, ring.get(100));
+        assertEquals(4, ring.get(101));
+        assertEquals(MinuteRingBuffer.MISSING, ring.get(102));
+        assertEquals(6, ring.get(104));
+        assertEquals(MinuteRingBuffer.MISSING, ring.get(105));
+    }
+
+    @Test
+    void record_PastCapacity_DropsOldestMinutes() {
+        MinuteRingBuffer ring = new MinuteRingBuffer(5);
+        for (long minute = 0; minute < 8; minute++) {
+            ring.record(minute, (int) minute);
+        }
+
+        assertEquals(MinuteRingBuffer.MISSING, ring.get(2));
+        assertEquals(3, ring.get(3));
+        assertEquals(7, ring.get(7));
+        assertEquals(3, ring.oldestMinute());
+    }
+
+    @Test
+    void record_GapLongerThanCapacity_ClearsPreviousWindow() {
+        MinuteRingBuffer ring = new MinuteRingBuffer(5);
+        ring.record(0, 1);
+        ring.record(1, 2);
+
+        ring.record(12, 9);
+
+        assertEquals(9, ring.get(12));
+        for (long minute = 8; minute < 12; minute++) {
+            assertEquals(MinuteRingBuffer.MISSING, ring.get(minute));
+        }
+    }
+
+    @Test
+    void summarize_SkipsMissingMinutes() {
+        MinuteRingBuffer ring = new MinuteRingBuffer(60);
+        ring.record(0, 2);
+        ring.record(1, 4);
+        ring.record(3, 9);
+
+        MinuteRingBuffer.Summary summary = ring.summarize(0, 60);
+
+        assertEquals(new MinuteRingBuffer.Summary(15, 3, 2, 9), summary);
+        assertEquals(5.0, summary.average());
+    }
+
+    @Test
+    void summaryMerge_CombinesSumsAndBounds() {
+        MinuteRingBuffer.Summary first = new MinuteRingBuffer.Summary(10, 2, 4, 6);
+        MinuteRingBuffer.Summary second = new MinuteRingBuffer.Summary(3, 3, 0, 2);
+
+        assertEquals(new MinuteRingBuffer.Summary(13, 5, 0, 6), first.merge(second));
+        assertEquals(first, MinuteRingBuffer.Summary.EMPTY.merge(first));
+    }
+}
@@ -0,0 +1,28 @@
+package com.nelumbo.parking.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void toMinor_RoundsHalfUp() {
+        assertEquals(5000L, Money.toMinor(new BigDecimal("5000.00")));
+        assertEquals(5001L, Money.toMinor(new BigDecimal("5000.50")));
+        assertEquals(5000L, Money.toMinor(new BigDecimal("5000.49")));
+    }
+
+    @Test
+    void toDecimal_ConvertsAtApiBoundary() {
+        assertEquals(new BigDecimal("15000"), Money.toDecimal(15000L));
+    }
+
+    @Test
+    void nullValues_ReturnNull() {
+        assertNull(Money.toMinor(null));
+        assertNull(Money.toDecimal(null));
+    }
+}
@@ -0,0 +1,53 @@
+package com.nelumbo.parking.utils;
+
+import com.lowagie.text.pdf.PdfReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfTableWriterTest {
+
+    @Test
+    void writeRow_ManyRows_SpansSeveralPages() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        try (PdfTableWriter pdf = new PdfTableWriter(out, "Reporte", "Prueba", "Placa", "Registros")) {
+            for (int i = 0; i < PdfTableWriter.ROWS_PER_CHUNK * 2 + 5; i++) {
+                pdf.writeRow("ABC" + i, (long) i);
+            }
+            pdf.writeSummary("Total vehículos: 405");
+        }
+
+        // Assert
+        PdfReader reader = new PdfReader(out.toByteArray());
+        assertTrue(reader.getNumberOfPages() > 1);
+        reader.close();
+    }
+
+    @Test
+    void close_WithoutRows_ProducesValidDocument() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        new PdfTableWriter(out, "Reporte", "Prueba", "Placa").close();
+
+        // Assert
+        PdfReader reader = new PdfReader(out.toByteArray());
+        assertEquals(1, reader.getNumberOfPages());
+        reader.close();
+    }
+
+    @Test
+    void format_UsesReadableValues() {
+        assertEquals("2024-01-01 08:00", PdfTableWriter.format(LocalDateTime.of(2024, 1, 1, 8, 0)));
+        assertEquals("10000", PdfTableWriter.format(new BigDecimal("1E+4")));
+        assertEquals("", PdfTableWriter.format(null));
+    }
+}
@@ -0,0 +1,79 @@
+package com.nelumbo.parking.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    private static void offer(SpaceSaving summary, String item, int times) {
+        for (int i = 0; i < times; i++) {
+            summary.offer(item);
+        }
+    }
+
+    @Test
+    void top_BelowCapacity_IsExactAndOrdered() {
+        SpaceSaving summary = new SpaceSaving(10);
+        offer(summary, "XYZ789", 3);
+        offer(summary, "ABC123", 5);
+        offer(summary, "DEF456", 3);
+
+        List<SpaceSaving.Entry> top = summary.top(3);
+
+        assertEquals(List.of(
+                new SpaceSaving.Entry("ABC123", 5, 0),
+                new SpaceSaving.Entry("DEF456", 3, 0),
+                new SpaceSaving.Entry("XYZ789", 3, 0)), top);
+    }
+
+    @Test
+    void offer_FullSummary_ReplacesMinimumAndKeepsErrorBound() {
+        SpaceSaving summary = new SpaceSaving(2);
+        offer(summary, "ABC123", 5);
+        offer(summary, "XYZ789", 2);
+
+        summary.offer("DEF456");
+
+        assertEquals(2, summary.size());
+        assertEquals(new SpaceSaving.Entry("DEF456", 3, 2), summary.top(2).get(1));
+        assertEquals(new SpaceSaving.Entry("ABC123", 5, 0), summary.top(1).get(0));
+    }
+
+    @Test
+    void top_SkewedStream_FindsHeavyHitters() {
+        SpaceSaving summary = new SpaceSaving(20);
+        for (int round = 0; round < 100; round++) {
+            summary.offer("FRE001");
+            summary.offer("FRE002");
+            if (round % 2 == 0) {
+                summary.offer("FRE003");
+            }
+            for (int i = 0; i < 5; i++) {
+                summary.offer(String.format("R%05d", round * 5 + i));
+            }
+        }
+
+        List<SpaceSaving.Entry> top = summary.top(3);
+
+        assertEquals(List.of("FRE001", "FRE002", "FRE003"), top.stream().map(SpaceSaving.Entry::item).toList());
+        for (SpaceSaving.Entry entry : top) {
+            assertTrue(entry.count() - entry.error() <= (entry.item().equals("FRE003") ? 50 : 100));
+            assertTrue(entry.count() >= (entry.item().equals("FRE003") ? 50 : 100));
+        }
+    }
+
+    @Test
+    void restore_KeepsLargestEntriesWithinCapacity() {
+        SpaceSaving summary = SpaceSaving.restore(2, List.of(
+                new SpaceSaving.Entry("XYZ789", 1, 0),
+                new SpaceSaving.Entry("ABC123", 9, 0),
+                new SpaceSaving.Entry("DEF456", 4, 1)));
+
+        assertEquals(List.of(
+                new SpaceSaving.Entry("ABC123", 9, 0),
+                new SpaceSaving.Entry("DEF456", 4, 1)), summary.entries());
+    }
+}
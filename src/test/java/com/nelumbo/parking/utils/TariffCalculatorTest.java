@@ -0,0 +1,27 @@
+package com.nelumbo.parking.utils;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TariffCalculatorTest {
+
+    private static final LocalDateTime ENTRY = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    @ParameterizedTest(name = "[{index}] {0} minutos a {1}/hora = {2}")
+    @CsvSource({
+            "0, 5000, 5000",      // mínimo una hora
+            "30, 5000, 5000",     // menos de una hora
+            "60, 5000, 5000",
+            "90, 5000, 7500",     // 1.50 horas
+            "61, 5000, 5100",     // 1.02 horas (1 minuto redondea hacia arriba)
+            "125, 3000, 6270",    // 2.09 horas
+            "1440, 5000, 120000"  // un día
+    })
+    void calculateCost_MatchesHourlyTariff(long minutes, long hourlyRate, long expected) {
+        assertEquals(expected, TariffCalculator.calculateCost(hourlyRate, ENTRY, ENTRY.plusMinutes(minutes)));
+    }
+}